@@ -0,0 +1,63 @@
+// MIT License
+
+// Copyright (c) 2024 Saab AB
+
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+
+package models.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import models.analysis.SDFAnalysis;
+import models.analysis.SymbolicHSDF;
+import models.application_model.ApplicationHandler;
+import models.application_model.ApplicationIR;
+
+
+/**
+ * Analyses of SDF applications: the consistency/deadlock check and the
+ * symbolic HSDF expansion, on sequential applications of increasing size.
+ * The realistic video pipeline is measured by RealisticAnalysisBenchmark.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+public class AnalysisBenchmark {
+    private static final long FREQUENCY = 1_000_000_000L;
+
+    @Param({"100", "1000", "10000"})
+    public int actors;
+
+    private ApplicationIR sequential;
+    private SDFAnalysis sequentialSdf;
+    private double[] sequentialTimes;
+
+    @Setup(Level.Trial)
+    public void BuildApplication() {
+        sequential = ApplicationIR.FromGraph(
+            ApplicationHandler.SequentialSDF("Bench", actors, actors / 2)
+        );
+        sequentialSdf = new SDFAnalysis(sequential);
+        sequentialTimes = SymbolicHSDF.UnmappedFiringTimes(sequential, FREQUENCY);
+    }
+
+    @Benchmark
+    public SDFAnalysis CheckSDF() {
+        return new SDFAnalysis(sequential);
+    }
+
+    @Benchmark
+    public double SymbolicHSDF() {
+        return new SymbolicHSDF(sequential, sequentialSdf, sequentialTimes, true).Period();
+    }
+}
@@ -0,0 +1,110 @@
+// MIT License
+
+// Copyright (c) 2024 Saab AB
+
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+
+package models.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import forsyde.io.core.SystemGraph;
+import models.application_model.ApplicationBuilder;
+import models.application_model.ApplicationHandler;
+import models.application_model.ApplicationIR;
+
+
+/**
+ * Construction of SDF application models of increasing size.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+public class ApplicationBenchmark {
+    @Param({"100", "1000", "10000"})
+    public int actors;
+
+    private ApplicationBuilder withActors;
+    private SystemGraph sequential;
+
+    @Setup(Level.Trial)
+    public void BuildSequential() {
+        sequential = ApplicationHandler.SequentialSDF("Bench", actors, actors / 2);
+    }
+
+    /**
+     * A fresh application with all actors but no channels, for CreateChannel.
+     */
+    @Setup(Level.Invocation)
+    public void AddAllActors() {
+        withActors = new ApplicationBuilder("Bench");
+        for (int a = 0; a < actors; a++) {
+            withActors.AddActor("Actor_" + a);
+        }
+    }
+
+    @Benchmark
+    public SystemGraph AddActor() {
+        var app = new ApplicationBuilder("Bench");
+        for (int a = 0; a < actors; a++) {
+            app.AddActor("Actor_" + a);
+        }
+        return app.GetGraph();
+    }
+
+    @Benchmark
+    public SystemGraph CreateChannel() {
+        for (int a = 1; a < actors; a++) {
+            withActors.CreateChannel("Actor_" + (a - 1), "Actor_" + a, 5, 5);
+        }
+        return withActors.GetGraph();
+    }
+
+    @Benchmark
+    public SystemGraph CreateChannelBulk() {
+        withActors.BeginBulk();
+        for (int a = 1; a < actors; a++) {
+            withActors.CreateChannel("Actor_" + (a - 1), "Actor_" + a, 5, 5);
+        }
+        withActors.CommitBulk();
+        return withActors.GetGraph();
+    }
+
+    @Benchmark
+    public SystemGraph FanOut() {
+        for (int a = 1; a < actors; a++) {
+            withActors.CreateChannel("Actor_0", "Actor_" + a, 1, 1);
+        }
+        return withActors.GetGraph();
+    }
+
+    @Benchmark
+    public SystemGraph FanOutBulk() {
+        withActors.BeginBulk();
+        for (int a = 1; a < actors; a++) {
+            withActors.CreateChannel("Actor_0", "Actor_" + a, 1, 1);
+        }
+        withActors.CommitBulk();
+        return withActors.GetGraph();
+    }
+
+    @Benchmark
+    public SystemGraph SequentialSDF() {
+        return ApplicationHandler.SequentialSDF("Bench", actors, actors / 2);
+    }
+
+    @Benchmark
+    public ApplicationIR ToIR() {
+        return ApplicationIR.FromGraph(sequential);
+    }
+}
@@ -0,0 +1,154 @@
+// MIT License
+
+// Copyright (c) 2024 Saab AB
+
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+
+package models.benchmarks;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import forsyde.io.core.SystemGraph;
+import forsyde.io.core.Vertex;
+import forsyde.io.lib.hierarchy.ForSyDeHierarchy.AnalyzedBehavior;
+import forsyde.io.lib.hierarchy.ForSyDeHierarchy.BoundedBufferLike;
+import forsyde.io.lib.hierarchy.ForSyDeHierarchy.GenericMemoryModule;
+import forsyde.io.lib.hierarchy.ForSyDeHierarchy.MemoryMapped;
+import forsyde.io.lib.hierarchy.ForSyDeHierarchy.SDFActor;
+import forsyde.io.lib.hierarchy.ForSyDeHierarchy.SDFChannel;
+import models.application_model.ApplicationHandler;
+import models.platform_model.PlatformBuilder;
+import models.utils.Requirements;
+import models.utils.Units;
+
+
+/**
+ * Synthetic models of a given size shared by the benchmarks.
+ */
+final class BenchmarkModels {
+    static final String BUS = "BUS";
+    static final String MEMORY = "MEM";
+    static final int CORES_PER_CPU = 2;
+    static final Map<String, Map<String, Integer>> INSTRUCTIONS = Map.of(
+        Requirements.SW_INSTRUCTIONS,
+        Map.of(Requirements.FLOP, 2, Requirements.INTOP, 1)
+    );
+
+    private BenchmarkModels() {}
+
+    /**
+     * Discard stdout, so the progress messages of the benchmarked code don't
+     * measure the console.
+     * @return The previous stdout, to restore with System.setOut.
+     */
+    static PrintStream Silence() {
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        return out;
+    }
+
+    /**
+     * Sequential SDF application, half of the actors with a hardware
+     * implementation.
+     * @param actors The number of actors.
+     * @return The application.
+     */
+    static SystemGraph Application(int actors) {
+        return ApplicationHandler.SequentialSDF("Bench", actors, actors / 2);
+    }
+
+    /**
+     * Star platform of dual-core CPUs and one memory around a single bus,
+     * with no connections yet.
+     * @param cpus The number of CPUs.
+     * @return The platform builder.
+     */
+    static PlatformBuilder UnconnectedPlatform(int cpus) {
+        var platform = new PlatformBuilder("BenchPlatform");
+        platform.AddMemory(MEMORY, 600 * Units.MHz, 4 * Units.GB * Units.BYTES_TO_BITS);
+        platform.AddSwitch(BUS, 200 * Units.MHz, 128 * Units.BIT);
+        for (int i = 0; i < cpus; i++) {
+            platform.AddCPU(CpuName(i), CORES_PER_CPU, 1500 * Units.MHz, INSTRUCTIONS);
+        }
+        return platform;
+    }
+
+    /**
+     * Connect all CPUs and the memory of an unconnected platform to the bus.
+     * @param platform The platform from UnconnectedPlatform.
+     * @param cpus The number of CPUs.
+     */
+    static void Connect(PlatformBuilder platform, int cpus) {
+        platform.ConnectTwoWay(MEMORY, BUS);
+        for (int i = 0; i < cpus; i++) {
+            // trailing '_' so that CPU1_ doesn't match the cores of CPU10
+            platform.ConnectTwoWay(CpuName(i) + "_", BUS);
+        }
+    }
+
+    /**
+     * Bus routes between every core and the memory.
+     * @param cpus The number of CPUs.
+     * @return The routes for AddInternalSwitchRoutes.
+     */
+    static Map<String, List<String>> Routes(int cpus) {
+        Map<String, List<String>> routes = new HashMap<>();
+        List<String> cores = new ArrayList<>();
+        for (int i = 0; i < cpus; i++) {
+            for (int c = 0; c < CORES_PER_CPU; c++) {
+                String core = CpuName(i) + "_C" + c;
+                cores.add(core);
+                routes.put(core, List.of(MEMORY));
+            }
+        }
+        routes.put(MEMORY, cores);
+        return routes;
+    }
+
+    private static String CpuName(int i) {
+        return "CPU" + i;
+    }
+
+    /**
+     * Solution-like model: a sequential SDF application whose actors and
+     * channels are mapped to a memory, with analyzed throughputs and bounded
+     * buffers, as SolutionParser finds them in IDeSyDe solutions.
+     * @param actors The number of actors.
+     * @return The solution.
+     */
+    static SystemGraph Solution(int actors) {
+        SystemGraph g = Application(actors);
+        var platform = new PlatformBuilder("BenchPlatform", g);
+        platform.AddMemory(MEMORY, 600 * Units.MHz, 4 * Units.GB * Units.BYTES_TO_BITS);
+        var memory = GenericMemoryModule.enforce(platform.viewers.get(MEMORY));
+
+        List<Vertex> vertices = new ArrayList<>(g.vertexSet());
+        for (Vertex v : vertices) {
+            if (SDFActor.tryView(g, v).isPresent()) {
+                MemoryMapped.enforce(g, v).mappingHost(memory);
+                var behavior = AnalyzedBehavior.enforce(g, v);
+                behavior.throughputInSecsNumerator(1000L + v.getIdentifier().length());
+                behavior.throughputInSecsDenominator(3L);
+            } else if (SDFChannel.tryView(g, v).isPresent()) {
+                MemoryMapped.enforce(g, v).mappingHost(memory);
+                var buffer = BoundedBufferLike.enforce(g, v);
+                buffer.maxElements(5);
+                buffer.elementSizeInBits(32L);
+            }
+        }
+        return g;
+    }
+}
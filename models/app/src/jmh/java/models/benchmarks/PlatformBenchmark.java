@@ -0,0 +1,101 @@
+// MIT License
+
+// Copyright (c) 2024 Saab AB
+
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+
+package models.benchmarks;
+
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import forsyde.io.core.SystemGraph;
+import models.analysis.CommunicationMatrix;
+import models.platform_model.PlatformBuilder;
+import models.platform_model.PlatformHandler;
+import models.platform_model.PlatformIR;
+
+
+/**
+ * Construction of platform models: connecting components by namespace and
+ * adding switch routes, for star platforms of increasing size, building
+ * their primitive-array representation and its communication matrix.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class PlatformBenchmark {
+    @Param({"4", "16", "64"})
+    public int cpus;
+
+    private PlatformBuilder unconnected;
+    private PlatformBuilder connected;
+    private Map<String, List<String>> routes;
+    private PlatformIR ir;
+    private PrintStream stdout;
+
+    @Setup(Level.Trial)
+    public void BuildConnected() {
+        // MPSoCGraph reports the components and synthesized routes
+        stdout = BenchmarkModels.Silence();
+        connected = BenchmarkModels.UnconnectedPlatform(cpus);
+        BenchmarkModels.Connect(connected, cpus);
+        routes = BenchmarkModels.Routes(cpus);
+        // without source hash, so the matrix isn't cached between invocations
+        ir = PlatformIR.FromGraph(connected.GetGraph(), null);
+    }
+
+    @TearDown(Level.Trial)
+    public void RestoreOutput() {
+        System.setOut(stdout);
+    }
+
+    /**
+     * A fresh platform for ConnectTwoWay, connecting twice would duplicate
+     * the connections.
+     */
+    @Setup(Level.Invocation)
+    public void BuildUnconnected() {
+        unconnected = BenchmarkModels.UnconnectedPlatform(cpus);
+    }
+
+    @Benchmark
+    public SystemGraph ConnectTwoWay() {
+        BenchmarkModels.Connect(unconnected, cpus);
+        return unconnected.GetGraph();
+    }
+
+    @Benchmark
+    public SystemGraph AddInternalSwitchRoutes() {
+        // replaces the routes of the previous invocation
+        connected.AddInternalSwitchRoutes(BenchmarkModels.BUS, routes);
+        return connected.GetGraph();
+    }
+
+    @Benchmark
+    public SystemGraph MPSoCGraph() {
+        return PlatformHandler.MPSoCGraph();
+    }
+
+    @Benchmark
+    public PlatformIR ToIR() {
+        return PlatformIR.FromGraph(connected.GetGraph(), null);
+    }
+
+    @Benchmark
+    public CommunicationMatrix CommunicationMatrix() {
+        return CommunicationMatrix.Of(ir);
+    }
+}
@@ -0,0 +1,97 @@
+// MIT License
+
+// Copyright (c) 2024 Saab AB
+
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+
+package models.benchmarks;
+
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.*;
+
+import forsyde.io.core.ModelHandler;
+import forsyde.io.core.SystemGraph;
+import forsyde.io.lib.hierarchy.ForSyDeHierarchy;
+import models.utils.BinaryGraphFormat;
+import models.utils.Printer;
+
+
+/**
+ * Writing and reading application models of increasing size: the plain
+ * .fiodl parse, the cached Printer.Read and the binary format.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+public class PrinterBenchmark {
+    @Param({"100", "1000", "10000"})
+    public int actors;
+
+    private final ModelHandler handler = new ModelHandler()
+        .registerTraitHierarchy(new ForSyDeHierarchy());
+
+    private Path dir;
+    private SystemGraph model;
+    private String modelPath;
+    private Path binaryPath;
+    private PrintStream stdout;
+
+    @Setup(Level.Trial)
+    public void WriteModels() throws Exception {
+        // PrintFIODL reports every file it writes
+        stdout = BenchmarkModels.Silence();
+        dir = Files.createTempDirectory("printer-bench");
+        model = BenchmarkModels.Application(actors);
+        modelPath = dir.resolve("model" + Printer.FIODL_EXT).toString();
+        handler.writeModel(model, modelPath);
+        binaryPath = dir.resolve("model" + BinaryGraphFormat.BINARY_EXT);
+        BinaryGraphFormat.Write(model, null, binaryPath);
+        // fill the model cache, so Read measures a cache hit
+        new Printer(modelPath).Read();
+    }
+
+    @TearDown(Level.Trial)
+    public void DeleteModels() throws Exception {
+        System.setOut(stdout);
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path p : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(p);
+            }
+        }
+    }
+
+    @Benchmark
+    public void PrintFIODL() throws Exception {
+        var printer = new Printer(dir.resolve("out" + Printer.FIODL_EXT).toString());
+        printer.PrintFIODL(model);
+    }
+
+    @Benchmark
+    public SystemGraph ReadParse() throws Exception {
+        return handler.loadModel(modelPath);
+    }
+
+    @Benchmark
+    public SystemGraph Read() throws Exception {
+        return new Printer(modelPath).Read();
+    }
+
+    @Benchmark
+    public SystemGraph ReadBinary() throws Exception {
+        return BinaryGraphFormat.Read(binaryPath);
+    }
+}
@@ -0,0 +1,92 @@
+// MIT License
+
+// Copyright (c) 2024 Saab AB
+
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+
+package models.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import models.analysis.SDFAnalysis;
+import models.analysis.SymbolicHSDF;
+import models.analysis.ThroughputEvaluator;
+import models.analysis.ThroughputEvaluator.Mapping;
+import models.application_model.ApplicationHandler;
+import models.application_model.ApplicationIR;
+import models.platform_model.PlatformHandler;
+import models.platform_model.PlatformIR;
+import models.platform_model.PlatformIR.Kind;
+
+
+/**
+ * Analyses of the realistic video pipeline, which has a fixed size: the
+ * symbolic HSDF expansion and the evaluation of a mapping onto the MPSoC.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+public class RealisticAnalysisBenchmark {
+    private static final long FREQUENCY = 1_000_000_000L;
+
+    private ApplicationIR realistic;
+    private SDFAnalysis realisticSdf;
+    private double[] realisticTimes;
+    private ThroughputEvaluator evaluator;
+    private Mapping mapping;
+
+    @Setup(Level.Trial)
+    public void BuildApplication() {
+        realistic = ApplicationIR.FromGraph(ApplicationHandler.Realistic());
+        realisticSdf = new SDFAnalysis(realistic);
+        realisticTimes = SymbolicHSDF.UnmappedFiringTimes(realistic, FREQUENCY);
+
+        var platform = PlatformIR.FromGraph(PlatformHandler.MPSoCGraph(), null);
+        evaluator = new ThroughputEvaluator(realistic, platform);
+        mapping = RoundRobin(realistic, platform);
+    }
+
+    /**
+     * Software actors round-robin over the processors, hardware-only actors
+     * on the FPGA and all channels in the first memory.
+     */
+    private static Mapping RoundRobin(ApplicationIR app, PlatformIR platform) {
+        List<Integer> processors = new ArrayList<>();
+        int fpga = -1, memory = -1;
+        for (int c = 0; c < platform.Size(); c++) {
+            if (platform.kinds[c] == Kind.PROCESSOR) processors.add(c);
+            if (platform.kinds[c] == Kind.FPGA && fpga < 0) fpga = c;
+            if (platform.kinds[c] == Kind.MEMORY && memory < 0) memory = c;
+        }
+        int[] processor = new int[app.NumActors()];
+        for (int a = 0; a < processor.length; a++) {
+            processor[a] = app.HasSoftware(a) ? processors.get(a % processors.size()) : fpga;
+        }
+        int[] channelMemory = new int[app.NumChannels()];
+        Arrays.fill(channelMemory, memory);
+        return new Mapping(processor, channelMemory);
+    }
+
+    @Benchmark
+    public double SymbolicHSDFRealistic() {
+        return new SymbolicHSDF(realistic, realisticSdf, realisticTimes, true).Period();
+    }
+
+    @Benchmark
+    public double EvaluateMapping() {
+        return evaluator.Evaluate(mapping).period();
+    }
+}
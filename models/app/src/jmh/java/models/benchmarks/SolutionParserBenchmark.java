@@ -0,0 +1,61 @@
+// MIT License
+
+// Copyright (c) 2024 Saab AB
+
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+
+package models.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import forsyde.io.core.SystemGraph;
+import models.utils.SolutionParser;
+import models.utils.SolutionRecord;
+import models.utils.SolutionSink;
+
+
+/**
+ * Parsing solutions of increasing size, with a sink that only consumes the
+ * records so that the traversal itself is measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+public class SolutionParserBenchmark {
+    @Param({"100", "1000", "10000"})
+    public int actors;
+
+    private SystemGraph solution;
+
+    @Setup(Level.Trial)
+    public void BuildSolution() {
+        solution = BenchmarkModels.Solution(actors);
+    }
+
+    @Benchmark
+    public double ParseSolution(Blackhole bh) throws IOException {
+        var parser = new SolutionParser(solution);
+        parser.ParseSolution(new SolutionSink() {
+            @Override
+            public void Accept(SolutionRecord record) {
+                bh.consume(record);
+            }
+
+            @Override
+            public void close() {}
+        });
+        return parser.GetMinThroughput();
+    }
+}
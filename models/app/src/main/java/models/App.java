@@ -19,10 +19,27 @@ import java.nio.file.Path;
 
 import forsyde.io.core.SystemGraph;
 
+import models.analysis.ChainFusion;
+import models.analysis.DesignSpace;
+import models.analysis.FissionExplorer;
+import models.analysis.FPGAFeasibility;
+import models.analysis.PlatformReachability;
+import models.analysis.PlatformSymmetry;
+import models.analysis.SDFAnalysis;
+import models.analysis.ThroughputEvaluator;
 import models.application_model.*;
 import models.platform_model.*;
+import models.utils.ArtifactStore;
+import models.utils.BinaryGraphFormat;
 import models.utils.Printer;
+import models.utils.SolutionDatabase;
+import models.utils.FusionTrace;
 import models.utils.SolutionParser;
+import models.utils.SolutionSink;
+import models.utils.TextSolutionSink;
+import models.utils.Units;
+import models.utils.SolutionProcessor;
+import models.utils.SolutionWatcher;
 
 /**
  * The entry point to the ForSyDe IO interfacing application.
@@ -37,8 +54,29 @@ public class App {
             Usage: gradle run --args=\"[
                 build <platformType> <applicationType> <outDir> |
                 to_kgt <inPath> <outDir> |
-                parse_solution <inPath> <outDir> |
-                build_bench_application <numActors> <numHwImpls> <outDir>
+                to_binary <inPath> <outDir> |
+                from_binary <inPath> <outDir> |
+                decompress <inPath> <outDir> |
+                check_sdf <inPath> <outDir> |
+                check_platform <inPath> <outDir> |
+                prune_fpga <applicationPath> <platformPath> <outDir> |
+                reduce_space <applicationPath> <platformPath> <outDir> |
+                platform_symmetry <inPath> <outDir> |
+                fuse_chains <inPath> <outDir> |
+                explore_fission <platformPath> <minSplit> <maxSplit> [threads] <outDir> |
+                parse_solution <inPath> [format] [trace] <outDir> |
+                parse_solutions <solutionDir> [threads] <outDir> |
+                evaluate_solution <inPath> <outDir> |
+                expand_solution <inPath> [limit] <outDir> |
+                watch_solutions <solutionDir> <stopFile> <outDir> |
+                db_ingest <artifactsDir> <dbDir> |
+                db_query <platform> <application> <actor> <dbDir> |
+                store_ingest <runDir> <artifactsDir> |
+                store_checkout <runDir> <artifactsDir> |
+                store_gc <artifactsDir> |
+                build_bench_application <numActors> <numHwImpls> <outDir> |
+                batch <manifestPath> |
+                serve <socketPath>
             ]\"
 
             \033[4mbuild\033[0m - build system specifications:
@@ -48,27 +86,129 @@ public class App {
             \033[4mto_kgt\033[0m - convert fiodl to kgt (visualization format)
             \t<inPath>: path to the solution file (fiodl)
             \t<outDir>: where to store the resulting specification
+            \033[4mto_binary\033[0m - convert fiodl to the binary format (fiodlb)
+            \t<inPath>: path to the specification file (fiodl)
+            \t<outDir>: where to store the resulting specification
+            \033[4mfrom_binary\033[0m - convert the binary format (fiodlb) back to fiodl
+            \t<inPath>: path to the specification file (fiodlb)
+            \t<outDir>: where to store the resulting specification
+            \033[4mdecompress\033[0m - decompress a .gz artifact, e.g. before handing it to IDeSyDe
+            \t<inPath>: path to the compressed file (fiodl.gz or kgt.gz)
+            \t<outDir>: where to store the uncompressed file
+            \033[4mcheck_sdf\033[0m - check that an application is consistent and deadlock free
+            \t<inPath>: path to the application specification (fiodl)
+            \t<outDir>: where to store the report with the repetition vector
+            \033[4mcheck_platform\033[0m - list memories processing units can't reach and dead switch ports
+            \t<inPath>: path to the platform specification (fiodl)
+            \t<outDir>: where to store the report
+            \033[4mprune_fpga\033[0m - remove hardware implementations that fit no FPGA of the platform
+            \t<applicationPath>: path to the application specification (fiodl)
+            \t<platformPath>: path to the platform specification (fiodl)
+            \t<outDir>: where to store <application>_pruned.fiodl and the report
+            \033[4mreduce_space\033[0m - report the design space size and remove dominated hardware implementations
+            \t<applicationPath>: path to the application specification (fiodl)
+            \t<platformPath>: path to the platform specification (fiodl)
+            \t<outDir>: where to store <application>_reduced.fiodl and the report
+            \033[4mplatform_symmetry\033[0m - list interchangeable platform components (report only, the DSE is not restricted)
+            \t<inPath>: path to the platform specification (fiodl)
+            \t<outDir>: where to store the report
+            \033[4mfuse_chains\033[0m - fuse chains of software-only actors before the DSE
+            \t<inPath>: path to the application specification (fiodl)
+            \t<outDir>: where to store <application>_fused.fiodl and its trace
+            \033[4mexplore_fission\033[0m - throughput of the realistic application per number of Grayscale/Sobel lanes
+            \t<platformPath>: path to the platform specification (fiodl)
+            \t<minSplit>, <maxSplit>: range of lanes to evaluate
+            \t[threads]: variants evaluated at once (default: all cores)
+            \t<outDir>: where to store the CSV
             \033[4mparse_solution\033[0m - extract concise information from a solution
             \t<inPath>: path to the solution file (fiodl)
+            \t[format]: 'txt' (default), 'jsonl' or 'csv'
+            \t[trace]: fusion trace of the application, expands fused actors
             \t<outDir>: where to store the resulting specification
+            \033[4mparse_solutions\033[0m - visualize and parse all solutions in parallel
+            \t<solutionDir>: folder with the solutions (e.g. 'reversed')
+            \t[threads]: solutions processed at once (default: all cores)
+            \t<outDir>: where to store solution_N.fiodl/.kgt/.txt
+            \033[4mevaluate_solution\033[0m - compute the throughput of a solution's mapping analytically
+            \t<inPath>: path to the solution file (fiodl)
+            \t<outDir>: where to store the evaluation
+            \033[4mexpand_solution\033[0m - list the assignments symmetric to a solution's mapping
+            \t<inPath>: path to the solution file (fiodl)
+            \t[limit]: maximum number of assignments (default: 1000)
+            \t<outDir>: where to store the assignments
+            \033[4mwatch_solutions\033[0m - process solutions as soon as they are written
+            \t<solutionDir>: folder IDeSyDe writes solutions to (e.g. 'reversed')
+            \t<stopFile>: stop once this file exists, after processing the remaining solutions
+            \t<outDir>: where to store the solutions and the summary
+            \033[4mdb_ingest\033[0m - add all solution_N.fiodl of the run folders to a solution database
+            \t<artifactsDir>: folder with <platform>-<app>-<time> run folders
+            \t<dbDir>: where the database is stored
+            \033[4mdb_query\033[0m - list actors/buffers of stored solutions
+            \t<platform>, <application>, <actor>: names to match, '*' matches all
+            \t<dbDir>: where the database is stored
+            \033[4mstore_ingest\033[0m - deduplicate the files of a run folder into the artifact store
+            \t<runDir>: the run folder, its files become links to the stored blobs
+            \t<artifactsDir>: folder holding the run folders and the store
+            \033[4mstore_checkout\033[0m - restore files of a run folder that only exist in its manifest
+            \t<runDir>: the run folder
+            \t<artifactsDir>: folder holding the run folders and the store
+            \033[4mstore_gc\033[0m - delete stored blobs no run folder refers to
+            \t<artifactsDir>: folder holding the run folders and the store
             \033[4mbuild_bench_application\033[0m - create sequential SDF application
             \t<numActors>: number of actors
             \t<numHwImpls>: how many actors having hw and sw implementations
             \t<outDir>: where to store the resulting specification
+            \033[4mbatch\033[0m - run the commands of a manifest in one JVM
+            \t<manifestPath>: file with one command per line ('#' comments)
+            \033[4mserve\033[0m - accept commands over a local (unix domain) socket
+            \t<socketPath>: where to create the socket, 'shutdown' stops it
         """;
+        if (inSession) {
+            throw new IllegalArgumentException("Invalid command, see usage.");
+        }
         System.out.println(USAGE);
         System.exit(1);
     }
 
+    /**
+     * Whether commands are run inside a batch or serve session, in which case
+     * invalid commands must not terminate the JVM.
+     */
+    private static boolean inSession = false;
+
     public static void main(String[] args) throws Exception {
         if (args.length < 2)
             SystemExit();
 
+        String action = args[0];
+        if (action.equals("batch") || action.equals("serve")) {
+            inSession = true;
+            var session = new BatchSession(App::Dispatch);
+            boolean success = action.equals("batch")
+                ? session.RunManifest(Path.of(args[1]))
+                : session.Serve(Path.of(args[1]));
+            System.exit(success ? 0 : 1);
+        }
+        Dispatch(args);
+    }
+
+    /**
+     * Run a single command, as given on the command line.
+     * @param args The action followed by its arguments.
+     * @throws Exception If the action fails.
+     */
+    static void Dispatch(String[] args) throws Exception {
+        if (args.length < 2)
+            SystemExit();
+
         String outDir;
         try {
             outDir = args[args.length - 1];
             Path.of(outDir); // simple check if the path is valid
         } catch (InvalidPathException e) {
+            if (inSession) {
+                throw new IllegalArgumentException("Invalid output directory.");
+            }
             System.out.println("Invalid output directory.");
             System.exit(1);
             return;
@@ -78,8 +218,46 @@ public class App {
             CreateBuildSpecification(args, outDir);
         } else if (action.equals("to_kgt")) {
             ConvertFiodlToKGT(args, outDir);
+        } else if (action.equals("to_binary")) {
+            ConvertFiodlToBinary(args, outDir);
+        } else if (action.equals("from_binary")) {
+            ConvertBinaryToFiodl(args, outDir);
+        } else if (action.equals("decompress")) {
+            DecompressArtifact(args, outDir);
+        } else if (action.equals("check_sdf")) {
+            CheckSDF(args, outDir);
+        } else if (action.equals("check_platform")) {
+            CheckPlatform(args, outDir);
+        } else if (action.equals("prune_fpga")) {
+            PruneFPGAImplementations(args, outDir);
+        } else if (action.equals("reduce_space")) {
+            ReduceDesignSpace(args, outDir);
+        } else if (action.equals("platform_symmetry")) {
+            DetectPlatformSymmetry(args, outDir);
+        } else if (action.equals("fuse_chains")) {
+            FuseActorChains(args, outDir);
+        } else if (action.equals("explore_fission")) {
+            ExploreFission(args, outDir);
         } else if (action.equals("parse_solution")) {
             ParseDseSolution(args, outDir);
+        } else if (action.equals("parse_solutions")) {
+            ParseDseSolutions(args, outDir);
+        } else if (action.equals("evaluate_solution")) {
+            EvaluateDseSolution(args, outDir);
+        } else if (action.equals("expand_solution")) {
+            ExpandDseSolution(args, outDir);
+        } else if (action.equals("watch_solutions")) {
+            WatchDseSolutions(args, outDir);
+        } else if (action.equals("db_ingest")) {
+            IngestSolutions(args, outDir);
+        } else if (action.equals("db_query")) {
+            QuerySolutions(args, outDir);
+        } else if (action.equals("store_ingest")) {
+            IngestArtifacts(args, outDir);
+        } else if (action.equals("store_checkout")) {
+            CheckoutArtifacts(args, outDir);
+        } else if (action.equals("store_gc")) {
+            CollectArtifactGarbage(outDir);
         } else if (action.equals("build_bench_application")) {
             CreateBenchApplication(args, outDir);
         } else {
@@ -99,7 +277,7 @@ public class App {
             SystemExit();
 
         String path = args[1];
-        assert path.endsWith(Printer.FIODL_EXT): "Must provide a .fiodl file.";
+        assert Printer.IsFiodl(path): "Must provide a .fiodl file.";
 
         SystemGraph g = new Printer(path).Read();
         System.out.println("Converting " + path);
@@ -107,6 +285,223 @@ public class App {
             outDir + "/" + path.substring(path.lastIndexOf('/'), path.indexOf('.')) + Printer.KGT_EXT
         ).PrintKGT(g);
     }
+
+    /**
+     * Create the binary format (.fiodlb) of a system specification (.fiodl),
+     * which loads without parsing.
+     * @param args The path to the .fiodl file.
+     * @throws Exception If the .fiodl file can't be read or .fiodlb file
+     * can't be written.
+     */
+    private static void ConvertFiodlToBinary(String[] args, String outDir) throws Exception {
+        if (args.length < 3)
+            SystemExit();
+
+        String path = args[1];
+        assert Printer.IsFiodl(path): "Must provide a .fiodl file.";
+
+        Printer printer = new Printer(path);
+        SystemGraph g = printer.Read();
+        printer.SetOutDir(outDir);
+        printer.PrintBinary(g);
+    }
+
+    /**
+     * Recreate a system specification (.fiodl) from its binary format
+     * (.fiodlb), e.g. to hand it to IDeSyDe.
+     * @param args The path to the .fiodlb file.
+     * @throws Exception If the .fiodlb file can't be read or .fiodl file
+     * can't be written.
+     */
+    private static void ConvertBinaryToFiodl(String[] args, String outDir) throws Exception {
+        if (args.length < 3)
+            SystemExit();
+
+        String path = args[1];
+        assert path.endsWith(BinaryGraphFormat.BINARY_EXT): "Must provide a .fiodlb file.";
+
+        Printer printer = new Printer(path);
+        SystemGraph g = printer.Read();
+        printer.SetOutDir(outDir);
+        printer.PrintFIODL(g);
+    }
+
+    /**
+     * Decompresses a gzip-compressed artifact (.fiodl.gz, .kgt.gz), e.g. to
+     * hand a specification to IDeSyDe which only reads plain files.
+     * @param args The path to the .gz file.
+     * @throws Exception If the file can't be read or written.
+     */
+    private static void DecompressArtifact(String[] args, String outDir) throws Exception {
+        if (args.length < 3)
+            SystemExit();
+
+        String path = args[1];
+        assert path.endsWith(Printer.GZ_EXT): "Must provide a .gz file.";
+
+        String name = path.substring(path.lastIndexOf('/') + 1);
+        Path outPath = Path.of(outDir, name.substring(0, name.length() - Printer.GZ_EXT.length()));
+        Printer.Decompress(Path.of(path), outPath);
+        System.out.println("Decompressed '" + path + "' to '" + outPath + "'");
+    }
+
+    /**
+     * Check which memories the processing units of a platform can reach and
+     * which switch ports carry no route, e.g. after changing connections or
+     * internal switch routes.
+     * @param args The path to the platform .fiodl file.
+     * @throws Exception If the file can't be read or the report written.
+     */
+    private static void CheckPlatform(String[] args, String outDir) throws Exception {
+        if (args.length < 3)
+            SystemExit();
+
+        String path = args[1];
+        assert Printer.IsFiodl(path): "Must provide a .fiodl file.";
+
+        SystemGraph g = new Printer(path).Read();
+        String report = PlatformReport(g, PlatformIR.Load(Path.of(path)));
+
+        String name = Printer.BaseName(path.substring(path.lastIndexOf('/') + 1));
+        Path outPath = Path.of(outDir, name + "_reachability.txt");
+        Printer.WriteString(outPath, report);
+        System.out.print(report);
+        System.out.println("Reachability of '" + name + "' written to '" + outPath + "'");
+    }
+
+    /**
+     * Describe the reachability of a platform, including route entries that
+     * name ports its switches don't have.
+     */
+    private static String PlatformReport(SystemGraph g, PlatformIR ir) {
+        var sb = new StringBuilder(new PlatformReachability(ir).Report());
+        for (String port : PlatformReachability.UnknownRoutePorts(g)) {
+            sb.append("Route names unknown switch port ").append(port).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Remove the hardware implementations of an application that can't fit
+     * any FPGA of the platform, so IDeSyDe doesn't explore them, and report
+     * implementations that can never be co-resident.
+     * @param args The paths to the application and platform .fiodl files.
+     * @throws Exception If a file can't be read or written, or an actor has
+     * no implementation left.
+     */
+    private static void PruneFPGAImplementations(String[] args, String outDir) throws Exception {
+        if (args.length < 4)
+            SystemExit();
+
+        String appPath = args[1];
+        String platformPath = args[2];
+        assert Printer.IsFiodl(appPath) && Printer.IsFiodl(platformPath):
+            "Must provide .fiodl files.";
+
+        SystemGraph g = new Printer(appPath).Read();
+        var feasibility = new FPGAFeasibility(
+            ApplicationIR.FromGraph(g), PlatformIR.Load(Path.of(platformPath))
+        );
+        int removed = feasibility.Prune(g);
+
+        String name = Printer.BaseName(appPath.substring(appPath.lastIndexOf('/') + 1));
+        Path reportPath = Path.of(outDir, name + "_fpga.txt");
+        Printer.WriteString(reportPath, feasibility.Report());
+        new Printer(outDir + "/" + name + "_pruned" + Printer.FIODL_EXT).PrintFIODL(g);
+        System.out.println(
+            removed + " hardware implementation(s) of '" + name + "' pruned, report written to '" +
+            reportPath + "'"
+        );
+        if (!feasibility.UnmappableActors().isEmpty()) {
+            throw new IllegalStateException(
+                "No implementation left for " + feasibility.UnmappableActors()
+            );
+        }
+    }
+
+    /**
+     * Estimate the mapping design space of an application on a platform and
+     * write the application without dominated hardware implementations.
+     * @param args The paths to the application and platform .fiodl files.
+     * @throws Exception If a file can't be read or written.
+     */
+    private static void ReduceDesignSpace(String[] args, String outDir) throws Exception {
+        if (args.length < 4)
+            SystemExit();
+
+        String appPath = args[1];
+        String platformPath = args[2];
+        assert Printer.IsFiodl(appPath) && Printer.IsFiodl(platformPath):
+            "Must provide .fiodl files.";
+
+        SystemGraph g = new Printer(appPath).Read();
+        var space = new DesignSpace(
+            ApplicationIR.FromGraph(g), PlatformIR.Load(Path.of(platformPath))
+        );
+        space.Reduce(g);
+
+        String name = Printer.BaseName(appPath.substring(appPath.lastIndexOf('/') + 1));
+        Path reportPath = Path.of(outDir, name + "_space.txt");
+        Printer.WriteString(reportPath, space.Report());
+        new Printer(outDir + "/" + name + "_reduced" + Printer.FIODL_EXT).PrintFIODL(g);
+        System.out.print(space.Report());
+    }
+
+    /**
+     * Detect interchangeable components of a platform, e.g. identical cores
+     * with their runtimes and private memories, through verified
+     * automorphisms.
+     * @param args The path to the platform .fiodl file.
+     * @throws Exception If the file can't be read or the report written.
+     */
+    private static void DetectPlatformSymmetry(String[] args, String outDir) throws Exception {
+        if (args.length < 3)
+            SystemExit();
+
+        String path = args[1];
+        assert Printer.IsFiodl(path): "Must provide a .fiodl file.";
+
+        var symmetry = new PlatformSymmetry(PlatformIR.Load(Path.of(path)));
+        String name = Printer.BaseName(path.substring(path.lastIndexOf('/') + 1));
+        Path outPath = Path.of(outDir, name + "_symmetry.txt");
+        Printer.WriteString(outPath, symmetry.Report());
+        System.out.print(symmetry.Report());
+        System.out.println("Symmetries of '" + name + "' written to '" + outPath + "'");
+    }
+
+    /**
+     * Check that an application is consistent and deadlock free before it
+     * is handed to IDeSyDe, and write its repetition vector.
+     * @param args The path to the application .fiodl file.
+     * @throws Exception If the file can't be read or the report written, or
+     * the application is inconsistent or deadlocks.
+     */
+    private static void CheckSDF(String[] args, String outDir) throws Exception {
+        if (args.length < 3)
+            SystemExit();
+
+        String path = args[1];
+        assert Printer.IsFiodl(path): "Must provide a .fiodl file.";
+
+        SystemGraph g = new Printer(path).Read();
+        long start = System.nanoTime();
+        var analysis = new SDFAnalysis(ApplicationIR.FromGraph(g));
+        long millis = (System.nanoTime() - start) / 1_000_000;
+
+        String name = Printer.BaseName(path.substring(path.lastIndexOf('/') + 1));
+        Path outPath = Path.of(outDir, name + "_sdf.txt");
+        Printer.WriteString(outPath, analysis.Report());
+        System.out.println(
+            "SDF analysis of '" + name + "' (" + millis + " ms) written to '" + outPath + "'"
+        );
+        if (!analysis.IsDeadlockFree()) {
+            throw new IllegalStateException(
+                "Application '" + name + "' " + (analysis.IsConsistent()
+                    ? "deadlocks, blocked: " + analysis.BlockedActors().size() + " actor(s)"
+                    : "is inconsistent: " + analysis.Inconsistency())
+            );
+        }
+    }
     
     /**''
      * Create platform and application specifications based on command line
@@ -142,6 +537,9 @@ public class App {
 
         String platformPath = outDir + "/" + platformType + Printer.FIODL_EXT;
         new Printer(platformPath).PrintFIODL(gPlatform);
+        String writtenPath = platformPath + (Printer.Compressed() ? Printer.GZ_EXT : "");
+        var platformIR = PlatformIR.Store(gPlatform, Path.of(writtenPath));
+        System.out.print(PlatformReport(gPlatform, platformIR));
 
         String applicationPath = outDir + "/" + applicationType + Printer.FIODL_EXT;
         new Printer(applicationPath).PrintFIODL(gApplication);
@@ -168,8 +566,80 @@ public class App {
     }
         
     /**
-     * Parses a DSE solution produced by IDeSyDe into a text file.
-     * @param args The path to the solution .fiodl file
+     * Fuse chains of software-only actors of an application, so IDeSyDe maps
+     * fewer actors. Solutions on the fused application are expanded back to
+     * the original actors by parse_solution with the written trace.
+     * @param args The path to the application .fiodl file.
+     * @throws Exception If the file can't be read or written.
+     */
+    private static void FuseActorChains(String[] args, String outDir) throws Exception {
+        if (args.length < 3)
+            SystemExit();
+
+        String path = args[1];
+        assert Printer.IsFiodl(path): "Must provide a .fiodl file.";
+
+        SystemGraph g = new Printer(path).Read();
+        var fusion = new ChainFusion(g);
+        var trace = fusion.Fuse();
+
+        String name = Printer.BaseName(path.substring(path.lastIndexOf('/') + 1));
+        Path tracePath = Path.of(outDir, name + "_fused" + FusionTrace.TRACE_EXT);
+        trace.Write(tracePath);
+        new Printer(outDir + "/" + name + "_fused" + Printer.FIODL_EXT).PrintFIODL(g);
+        System.out.print(fusion.Report());
+        System.out.println(
+            trace.Size() + " chain(s) of '" + name + "' fused, trace written to '" + tracePath + "'"
+        );
+    }
+
+    /**
+     * Evaluate the realistic application for a range of Grayscale/Sobel
+     * lanes on a platform, each variant with a greedy mapping, and write the
+     * throughput per number of lanes.
+     * @param args The path to the platform .fiodl file, the range of lanes
+     * and optionally the number of threads.
+     * @throws Exception If the platform can't be read or the CSV written.
+     */
+    private static void ExploreFission(String[] args, String outDir) throws Exception {
+        if (args.length < 5)
+            SystemExit();
+
+        String platformPath = args[1];
+        int from = Integer.parseInt(args[2]);
+        int to = Integer.parseInt(args[3]);
+        int threads = args.length > 5
+            ? Integer.parseInt(args[4])
+            : Runtime.getRuntime().availableProcessors();
+        assert Printer.IsFiodl(platformPath): "Must provide a .fiodl file.";
+        assert 0 < from && from <= to: "Must provide a range of lanes >= 1.";
+
+        var explorer = new FissionExplorer(
+            ApplicationHandler::Realistic, PlatformIR.Load(Path.of(platformPath))
+        );
+        var points = explorer.Explore(from, to, threads);
+        String name = Printer.BaseName(platformPath.substring(platformPath.lastIndexOf('/') + 1));
+        Path outPath = Path.of(outDir, name + "_real_fission.csv");
+        Printer.WriteString(outPath, FissionExplorer.Csv(points));
+        for (var p : points) {
+            System.out.println(
+                p.splitFactor() + " lane(s): " + (p.Feasible()
+                    ? p.Throughput() + " iterations/s, " + p.hardwareActors() + " actor(s) on the FPGA"
+                    : "infeasible, " + p.reason())
+            );
+        }
+        var best = FissionExplorer.Best(points);
+        System.out.println(
+            (best == null ? "No feasible number of lanes" : "Best: " + best.splitFactor() + " lane(s)") +
+            ", written to '" + outPath + "'"
+        );
+    }
+
+    /**
+     * Parses a DSE solution produced by IDeSyDe into a text, JSON Lines or
+     * CSV file.
+     * @param args The path to the solution .fiodl file, optionally the format
+     * and the fusion trace of the application the solution was explored on.
      * @throws Exception If the file can't be read.
      */
     private static void ParseDseSolution(String[] args, String outDir) throws Exception {
@@ -177,17 +647,227 @@ public class App {
             SystemExit();
         
         String path = args[1];
-        assert path.endsWith(Printer.FIODL_EXT): "Must provide a .fiodl file.";
+        assert Printer.IsFiodl(path): "Must provide a .fiodl file.";
+
+        String format = args.length > 3 ? args[2] : "txt";
+        String tracePath = args.length > 4 ? args[3] : null;
+        String outPath = outDir + "/" +
+            Printer.BaseName(path.substring(path.lastIndexOf('/') + 1)) +
+            "." + format;
+
+        // print and write in a single pass over the solution
+        SystemGraph g = new Printer(path).Read();
+        var parser = tracePath == null
+            ? new SolutionParser(g)
+            : new SolutionParser(g, FusionTrace.Read(Path.of(tracePath)));
+        try (
+            var stdout = TextSolutionSink.Stdout();
+            var file = SolutionSink.ForFile(Path.of(outPath))
+        ) {
+            parser.ParseSolution(stdout, file);
+        }
+        System.out.println("Solution written to " + outPath);
+    }
+
+    /**
+     * Visualizes and parses every DSE solution of a directory in parallel.
+     * @param args The solution directory and optionally the number of threads.
+     * @throws Exception If the directory can't be read, or solutions failed.
+     */
+    private static void ParseDseSolutions(String[] args, String outDir) throws Exception {
+        if (args.length < 3)
+            SystemExit();
+
+        Path solutionDir = Path.of(args[1]);
+        int threads = args.length > 3
+            ? Integer.parseInt(args[2])
+            : Runtime.getRuntime().availableProcessors();
+
+        int failures = new SolutionProcessor(outDir)
+            .ProcessDirectory(solutionDir, threads);
+        if (failures > 0) {
+            throw new IllegalStateException(
+                failures + " solution(s) could not be processed"
+            );
+        }
+    }
+
+    /**
+     * Evaluates the throughput of the mapping of a DSE solution in-process,
+     * next to the throughput IDeSyDe reported in its AnalyzedBehavior.
+     * @param args The path to the solution .fiodl file.
+     * @throws Exception If the solution can't be read or the evaluation
+     * written.
+     */
+    private static void EvaluateDseSolution(String[] args, String outDir) throws Exception {
+        if (args.length < 3)
+            SystemExit();
+
+        String path = args[1];
+        assert Printer.IsFiodl(path): "Must provide a .fiodl file.";
 
-        var parser = new SolutionParser(new Printer(path).Read());
+        SystemGraph g = new Printer(path).Read();
+        var app = ApplicationIR.FromGraph(g);
+        var platform = PlatformIR.FromGraph(g, null);
+        var evaluator = new ThroughputEvaluator(app, platform);
+        var mapping = ThroughputEvaluator.Mapping.FromSolution(g, app, platform);
+        var result = evaluator.Evaluate(mapping);
+
+        var parser = new SolutionParser(g);
         parser.ParseSolution();
-        
-        parser.PrintSolution();
-        parser.WriteSolution(
-            outDir + "/" +
-            path.substring(path.lastIndexOf('/'), path.lastIndexOf('.'))
-            + ".txt"
+        String report = evaluator.Report(mapping, result) +
+            "Reported minimum throughput: " + parser.GetMinThroughput() + "\n";
+
+        String name = Printer.BaseName(path.substring(path.lastIndexOf('/') + 1));
+        Path outPath = Path.of(outDir, name + "_eval.txt");
+        Printer.WriteString(outPath, report);
+        System.out.println(
+            "Evaluation of '" + name + "' (" + (result.Feasible()
+                ? result.Throughput() + " iterations/s"
+                : "infeasible") + ") written to '" + outPath + "'"
+        );
+    }
+
+    /**
+     * Expands the mapping of a DSE solution to all mappings that are
+     * equivalent under the symmetries of the platform, e.g. the same
+     * assignment with two identical cores swapped.
+     * @param args The path to the solution .fiodl file and optionally the
+     * maximum number of assignments.
+     * @throws Exception If the solution can't be read or the assignments
+     * written.
+     */
+    private static void ExpandDseSolution(String[] args, String outDir) throws Exception {
+        if (args.length < 3)
+            SystemExit();
+
+        String path = args[1];
+        int limit = args.length > 3 ? Integer.parseInt(args[2]) : 1000;
+        assert Printer.IsFiodl(path): "Must provide a .fiodl file.";
+
+        SystemGraph g = new Printer(path).Read();
+        var app = ApplicationIR.FromGraph(g);
+        var platform = PlatformIR.FromGraph(g, null);
+        var mapping = ThroughputEvaluator.Mapping.FromSolution(g, app, platform);
+        int actors = app.NumActors();
+        int[] assignment = new int[actors + app.NumChannels()];
+        System.arraycopy(mapping.processor(), 0, assignment, 0, actors);
+        System.arraycopy(mapping.channelMemory(), 0, assignment, actors, app.NumChannels());
+
+        var sb = new StringBuilder();
+        var expanded = new PlatformSymmetry(platform).Expand(assignment, limit);
+        for (int[] a : expanded) {
+            for (int i = 0; i < a.length; i++) {
+                if (a[i] < 0) continue;
+                String element = i < actors ? app.ActorName(i) : app.ChannelName(i - actors);
+                sb.append(element).append('=').append(platform.names[a[i]]).append(' ');
+            }
+            sb.append('\n');
+        }
+        String name = Printer.BaseName(path.substring(path.lastIndexOf('/') + 1));
+        Path outPath = Path.of(outDir, name + "_expanded.txt");
+        Printer.WriteString(outPath, sb.toString());
+        System.out.println(expanded.size() + " symmetric assignment(s) written to '" + outPath + "'");
+    }
+
+    /**
+     * Processes DSE solutions while they are produced by IDeSyDe.
+     * @param args The solution directory and the file that is created when
+     * the DSE has finished.
+     * @throws Exception If the directory can't be watched, or solutions failed.
+     */
+    private static void WatchDseSolutions(String[] args, String outDir) throws Exception {
+        if (args.length < 4)
+            SystemExit();
+
+        Path solutionDir = Path.of(args[1]);
+        Path stopFile = Path.of(args[2]);
+        int failures = new SolutionWatcher(solutionDir, outDir).Watch(stopFile);
+        if (failures > 0) {
+            throw new IllegalStateException(
+                failures + " solution(s) could not be processed"
+            );
+        }
+    }
+
+    /**
+     * Adds the solutions of all run folders to the solution database.
+     * @param args The artifacts folder holding the run folders.
+     * @throws Exception If a solution can't be read or the database written.
+     */
+    private static void IngestSolutions(String[] args, String dbDir) throws Exception {
+        if (args.length < 3)
+            SystemExit();
+
+        var db = new SolutionDatabase(Path.of(dbDir));
+        int added = db.IngestArtifacts(Path.of(args[1]));
+        System.out.println(
+            added + " solution(s) added, " + db.Size() + " rows in " + dbDir
+        );
+    }
+
+    /**
+     * Lists the stored actors/buffers matching a platform, application and
+     * actor name.
+     * @param args The names to match, '*' matches all.
+     * @throws Exception If the database can't be read.
+     */
+    private static void QuerySolutions(String[] args, String dbDir) throws Exception {
+        if (args.length < 5)
+            SystemExit();
+
+        var db = new SolutionDatabase(Path.of(dbDir));
+        long start = System.nanoTime();
+        var rows = db.Query(
+            args[1].equals("*") ? null : args[1],
+            args[2].equals("*") ? null : args[2],
+            args[3].equals("*") ? null : args[3]
+        );
+        long elapsed = System.nanoTime() - start;
+        rows.forEach(System.out::println);
+        System.out.println(
+            rows.size() + " row(s) in " + String.format("%.2f", elapsed / 1e6) + " ms"
+        );
+    }
+
+    /**
+     * Moves the files of a run folder into the content-addressed artifact
+     * store, leaving links to the stored blobs and a manifest.
+     * @param args The run folder.
+     * @throws Exception If a file can't be moved or linked.
+     */
+    private static void IngestArtifacts(String[] args, String artifactsDir) throws Exception {
+        if (args.length < 3)
+            SystemExit();
+
+        var stats = new ArtifactStore(Path.of(artifactsDir)).Ingest(Path.of(args[1]));
+        System.out.println(
+            stats.files() + " file(s) stored, " + stats.bytes() / Units.kB +
+            " kB deduplicated"
+        );
+    }
+
+    /**
+     * Restores the files of a run folder that only exist in its manifest.
+     * @param args The run folder.
+     * @throws Exception If a blob is missing or can't be copied.
+     */
+    private static void CheckoutArtifacts(String[] args, String artifactsDir) throws Exception {
+        if (args.length < 3)
+            SystemExit();
+
+        int restored = new ArtifactStore(Path.of(artifactsDir)).Checkout(Path.of(args[1]));
+        System.out.println(restored + " file(s) restored");
+    }
+
+    /**
+     * Deletes the stored blobs that no run folder refers to anymore.
+     * @throws Exception If the store can't be read or a blob deleted.
+     */
+    private static void CollectArtifactGarbage(String artifactsDir) throws Exception {
+        var stats = new ArtifactStore(Path.of(artifactsDir)).CollectGarbage();
+        System.out.println(
+            stats.files() + " blob(s) deleted, " + stats.bytes() / Units.kB + " kB freed"
         );
     }
 }
-    
\ No newline at end of file
@@ -0,0 +1,195 @@
+// MIT License
+
+// Copyright (c) 2024 Saab AB
+
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+
+package models;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+
+/**
+ * Runs several App commands in one long-lived JVM, either from a manifest file
+ * or from a local socket, so Gradle and JVM startup is only paid once. All
+ * commands share the model handler of the Printer.
+ */
+public class BatchSession {
+    private static final String SHUTDOWN = "shutdown";
+
+    /**
+     * A single App command, e.g. App::Dispatch.
+     */
+    @FunctionalInterface
+    public interface Command {
+        void Run(String[] args) throws Exception;
+    }
+
+    private final Command command;
+    private int executed = 0;
+    private int failed = 0;
+    private long totalNanos = 0;
+
+    /**
+     * Create a new session.
+     * @param command What to run for every command line.
+     */
+    public BatchSession(Command command) {
+        this.command = command;
+    }
+
+    /**
+     * Split a command line into its arguments.
+     * @param line The command line.
+     * @return The arguments, empty for blank lines and comments.
+     */
+    private static String[] Tokenize(String line) {
+        String trimmed = line.strip();
+        if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+            return new String[0];
+        }
+        return trimmed.split("\\s+");
+    }
+
+    /**
+     * Run one command line and measure how long it takes.
+     * @param line The command line.
+     * @return null on success, otherwise the reason of the failure.
+     */
+    private String Execute(String line) {
+        String[] args = Tokenize(line);
+        if (args.length == 0) return null;
+        if (args[0].equals("batch") || args[0].equals("serve")) {
+            failed++;
+            return "Sessions cannot be nested: " + line.strip();
+        }
+
+        long start = System.nanoTime();
+        String error = null;
+        try {
+            command.Run(args);
+        } catch (Exception | AssertionError e) {
+            error = e.getClass().getSimpleName() + ": " + e.getMessage();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        executed++;
+        totalNanos += elapsed;
+        if (error != null) failed++;
+        System.out.println(
+            "[" + (error == null ? "ok" : "failed") + "] " + line.strip() +
+            " (" + FormatMillis(elapsed) + " ms)"
+        );
+        return error;
+    }
+
+    private static String FormatMillis(long nanos) {
+        return String.format("%.1f", nanos / 1e6);
+    }
+
+    /**
+     * Print the number of commands and their accumulated latency.
+     */
+    private void PrintSummary() {
+        System.out.println(
+            executed + " command(s) executed, " + failed + " failed, " +
+            FormatMillis(totalNanos) + " ms in total"
+        );
+    }
+
+    /**
+     * Run every command in the manifest, one command per line. Failing
+     * commands are reported but do not stop the remaining ones.
+     * @param manifest Path to the manifest.
+     * @return Whether all commands succeeded.
+     * @throws IOException If the manifest can't be read.
+     */
+    public boolean RunManifest(Path manifest) throws IOException {
+        List<String> lines = Files.readAllLines(manifest);
+        for (String line : lines) {
+            String error = Execute(line);
+            if (error != null) {
+                System.err.println(error);
+            }
+        }
+        PrintSummary();
+        return failed == 0;
+    }
+
+    /**
+     * Accept clients on a unix domain socket until a 'shutdown' command is
+     * received. Each line sent by a client is run as a command and answered
+     * with 'OK <ms>' or 'ERR <reason>'.
+     * @param socketPath Where to create the socket.
+     * @return Whether all commands succeeded.
+     * @throws IOException If the socket can't be created.
+     */
+    public boolean Serve(Path socketPath) throws IOException {
+        Files.deleteIfExists(socketPath);
+        var address = UnixDomainSocketAddress.of(socketPath);
+        try (var server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(address);
+            System.out.println("Serving commands on " + socketPath);
+            boolean running = true;
+            while (running) {
+                try (SocketChannel client = server.accept()) {
+                    running = HandleClient(client);
+                }
+            }
+        } finally {
+            Files.deleteIfExists(socketPath);
+        }
+        PrintSummary();
+        return failed == 0;
+    }
+
+    /**
+     * Run the commands of one client connection.
+     * @param client The connected client.
+     * @return False if the client requested a shutdown.
+     * @throws IOException If the connection fails.
+     */
+    private boolean HandleClient(SocketChannel client) throws IOException {
+        var reader = new BufferedReader(new InputStreamReader(
+            Channels.newInputStream(client), StandardCharsets.UTF_8
+        ));
+        var writer = new PrintWriter(
+            Channels.newOutputStream(client), true, StandardCharsets.UTF_8
+        );
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.strip().equals(SHUTDOWN)) {
+                writer.println("OK shutdown");
+                return false;
+            }
+            long before = totalNanos;
+            String error = Execute(line);
+            if (error == null) {
+                writer.println("OK " + FormatMillis(totalNanos - before));
+            } else {
+                writer.println("ERR " + error);
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,283 @@
+// MIT License
+
+// Copyright (c) 2024 Saab AB
+
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+
+package models.analysis;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import forsyde.io.core.EdgeInfo;
+import forsyde.io.core.SystemGraph;
+import forsyde.io.core.Trait;
+import forsyde.io.core.Vertex;
+import forsyde.io.lib.hierarchy.ForSyDeHierarchy.InstrumentedSoftwareBehaviour;
+import forsyde.io.lib.hierarchy.ForSyDeHierarchy.SDFActor;
+import models.application_model.ApplicationIR;
+import models.utils.FusionTrace;
+import models.utils.Requirements;
+
+
+/**
+ * Pre-DSE fusion of chains of software-only actors. Two actors are chained
+ * when the first only produces into one channel, without initial tokens,
+ * that the second only consumes from, and the repetition count of one
+ * divides the other. A chain becomes its head actor: each fused firing runs
+ * every member repetitions/gcd times, so the fused actor needs the summed
+ * instructions and code of its members, consumes as the head and produces as
+ * the tail.
+ * <p>
+ * The channels inside a chain are removed, so nothing maps them to a memory
+ * anymore. Their buffers (the tokens a member produces in one fused firing)
+ * are added to the size of the fused actor instead, as they live in its
+ * memory next to its code. The FusionTrace of the fusion expands solutions on the fused
+ * application back to the original actors.
+ */
+public class ChainFusion {
+    /** Firings of a member per fused firing, above it actors are not fused. */
+    private static final long MAX_FIRINGS = 1024;
+
+    private final SystemGraph g;
+    private final ApplicationIR app;
+    private final SDFAnalysis sdf;
+    /** Member actors of each chain, in order. */
+    private final List<int[]> chains = new ArrayList<>();
+    /** Firings of each member per fused firing, parallel to chains. */
+    private final List<long[]> firings = new ArrayList<>();
+    private boolean fused = false;
+
+    /**
+     * Find the fusible chains of an application.
+     * @param g The application graph, fused in place by Fuse.
+     */
+    public ChainFusion(SystemGraph g) {
+        this.g = g;
+        this.app = ApplicationIR.FromGraph(g);
+        this.sdf = new SDFAnalysis(app);
+        if (sdf.IsConsistent()) FindChains();
+    }
+
+    /**
+     * Follow the fusible links from every actor that is not itself the end of
+     * one. Cycles of fusible links have no such actor and are left alone.
+     */
+    private void FindChains() {
+        int n = app.NumActors();
+        BigInteger[] q = sdf.Repetitions();
+        int[] next = new int[n];
+        boolean[] linked = new boolean[n];
+        for (int a = 0; a < n; a++) {
+            next[a] = Link(a, q);
+            if (next[a] >= 0) linked[next[a]] = true;
+        }
+        for (int a = 0; a < n; a++) {
+            if (linked[a] || next[a] < 0) continue;
+            List<Integer> chain = new ArrayList<>();
+            BigInteger gcd = BigInteger.ZERO;
+            for (int m = a; m >= 0; m = next[m]) {
+                chain.add(m);
+                gcd = gcd.gcd(q[m]);
+            }
+            long[] f = new long[chain.size()];
+            boolean bounded = true;
+            for (int i = 0; i < f.length; i++) {
+                BigInteger k = q[chain.get(i)].divide(gcd);
+                bounded &= k.compareTo(BigInteger.valueOf(MAX_FIRINGS)) <= 0;
+                f[i] = k.longValue();
+            }
+            if (!bounded) continue;
+            chains.add(chain.stream().mapToInt(Integer::intValue).toArray());
+            firings.add(f);
+        }
+    }
+
+    /**
+     * Get the actor a software-only actor can be fused with.
+     * @return The consumer of its only channel, -1 if not fusible.
+     */
+    private int Link(int a, BigInteger[] q) {
+        if (!SoftwareOnly(a) || app.outOffsets[a + 1] - app.outOffsets[a] != 1) return -1;
+        if (RatePorts(a, true) != 1) return -1;
+        int c = app.outChannels[app.outOffsets[a]];
+        int b = app.channelDst[c];
+        if (b < 0 || b == a || !SoftwareOnly(b) || app.initialTokens[c] != 0) return -1;
+        if (app.inOffsets[b + 1] - app.inOffsets[b] != 1 || RatePorts(b, false) != 1) return -1;
+        boolean compatible = q[a].mod(q[b]).signum() == 0 || q[b].mod(q[a]).signum() == 0;
+        return compatible ? b : -1;
+    }
+
+    private boolean SoftwareOnly(int a) {
+        return app.HasSoftware(a) && !app.HasHardware(a);
+    }
+
+    /**
+     * Count the production or consumption ports of an actor, which include
+     * the application inputs and outputs that have no channel.
+     */
+    private int RatePorts(int a, boolean production) {
+        var actor = SDFActor.tryView(g, VertexOf(a)).get();
+        return (production ? actor.production() : actor.consumption()).size();
+    }
+
+    private Vertex VertexOf(int a) {
+        return g.queryVertex(app.ActorName(a)).get();
+    }
+
+    /**
+     * Get the fusible chains.
+     * @return The member actors of each chain, in order.
+     */
+    public List<List<String>> Chains() {
+        List<List<String>> names = new ArrayList<>();
+        for (int[] chain : chains) {
+            List<String> members = new ArrayList<>();
+            for (int a : chain) members.add(app.ActorName(a));
+            names.add(members);
+        }
+        return names;
+    }
+
+    /**
+     * Get the number of actors left after fusion.
+     */
+    public int FusedSize() {
+        int removed = 0;
+        for (int[] chain : chains) removed += chain.length - 1;
+        return app.NumActors() - removed;
+    }
+
+    /**
+     * Fuse every chain into its head actor: the other members and the
+     * channels between them are removed and the channels of the tail are
+     * reconnected to the head.
+     * @return The trace of the fused actors.
+     * @throws IllegalStateException If the graph was already fused.
+     */
+    public FusionTrace Fuse() {
+        if (fused) throw new IllegalStateException("Chains are already fused.");
+        fused = true;
+        var trace = new FusionTrace();
+        for (int i = 0; i < chains.size(); i++) {
+            FuseChain(chains.get(i), firings.get(i), trace);
+        }
+        return trace;
+    }
+
+    private void FuseChain(int[] chain, long[] f, FusionTrace trace) {
+        int last = chain.length - 1;
+        Vertex head = VertexOf(chain[0]);
+        Vertex tail = VertexOf(chain[last]);
+        var headActor = SDFActor.tryView(g, head).get();
+        var tailActor = SDFActor.tryView(g, tail).get();
+
+        Map<String, Long> instrs = new LinkedHashMap<>();
+        // code of the members and buffers of the channels between them
+        long sizeInBits = 0;
+        List<FusionTrace.Member> members = new ArrayList<>();
+        List<FusionTrace.Internal> internals = new ArrayList<>();
+        Set<Vertex> removed = new HashSet<>();
+        for (int i = 0; i < chain.length; i++) {
+            int a = chain[i];
+            for (int t = 0; t < app.instructionTypes.length; t++) {
+                long n = app.swInstructions[a * app.instructionTypes.length + t] * f[i];
+                if (n > 0) instrs.merge(app.instructionTypes[t], n, Long::sum);
+            }
+            sizeInBits += app.swSizeInBits[a];
+            members.add(new FusionTrace.Member(app.ActorName(a), f[i]));
+            if (i == last) break;
+            int c = app.outChannels[app.outOffsets[a]];
+            sizeInBits += app.production[c] * f[i] * app.tokenSizeInBits[c];
+            internals.add(new FusionTrace.Internal(
+                app.ChannelName(c), app.production[c] * f[i], app.tokenSizeInBits[c]
+            ));
+            removed.add(g.queryVertex(app.ChannelName(c)).get());
+            if (i > 0) removed.add(VertexOf(a));
+        }
+        removed.add(tail);
+
+        var consumption = Scaled(headActor.consumption(), f[0]);
+        var production = Scaled(tailActor.production(), f[last]);
+        // the head's only production port leads into the chain
+        head.getPorts().removeAll(headActor.production().keySet());
+        List<Reconnection> reconnections = new ArrayList<>();
+        for (EdgeInfo e : g.outgoingEdgesOf(tail)) {
+            Vertex target = g.getEdgeTarget(e);
+            if (!removed.contains(target)) reconnections.add(new Reconnection(head, target, e));
+        }
+        for (EdgeInfo e : g.incomingEdgesOf(tail)) {
+            Vertex source = g.getEdgeSource(e);
+            if (!removed.contains(source)) reconnections.add(new Reconnection(source, head, e));
+        }
+        for (Vertex v : removed) g.removeVertex(v);
+
+        for (var r : reconnections) r.Apply(g, head);
+        headActor.consumption(consumption);
+        headActor.production(production);
+        var sw = InstrumentedSoftwareBehaviour.enforce(g, head);
+        sw.computationalRequirements(Map.of(Requirements.SW_INSTRUCTIONS, instrs));
+        sw.maxSizeInBits(Map.of(Requirements.SW_INSTRUCTIONS, sizeInBits));
+        trace.Add(head.getIdentifier(), members, internals);
+    }
+
+    /**
+     * An edge of the tail to recreate on the head.
+     */
+    private record Reconnection(Vertex source, Vertex target, EdgeInfo edge) {
+        void Apply(SystemGraph g, Vertex head) {
+            String sourcePort = edge.getSourcePort().orElse(null);
+            String targetPort = edge.getTargetPort().orElse(null);
+            for (EdgeInfo e : g.getAllEdges(source, target)) {
+                // e.g. the head is already contained in the same grey box
+                if (e.getSourcePort().equals(edge.getSourcePort())
+                    && e.getTargetPort().equals(edge.getTargetPort())) return;
+            }
+            String headPort = source == head ? sourcePort : targetPort;
+            if (headPort != null) head.addPort(headPort);
+            g.connect(source, target, sourcePort, targetPort, edge.getTraits().toArray(Trait[]::new));
+        }
+    }
+
+    private static Map<String, Integer> Scaled(Map<String, Integer> rates, long factor) {
+        Map<String, Integer> scaled = new LinkedHashMap<>();
+        rates.forEach((port, n) -> scaled.put(port, Math.toIntExact(n * factor)));
+        return scaled;
+    }
+
+    /**
+     * Describe the chains.
+     * @return The report, one line per chain.
+     */
+    public String Report() {
+        var sb = new StringBuilder();
+        if (!sdf.IsConsistent()) {
+            return sb.append("Not fused, INCONSISTENT: ").append(sdf.Inconsistency()).append('\n').toString();
+        }
+        sb.append("Chains: ").append(chains.size()).append(", actors: ")
+            .append(app.NumActors()).append(" -> ").append(FusedSize()).append('\n');
+        for (int i = 0; i < chains.size(); i++) {
+            int[] chain = chains.get(i);
+            sb.append("  ").append(app.ActorName(chain[0])).append(" =");
+            for (int j = 0; j < chain.length; j++) {
+                sb.append(' ').append(app.ActorName(chain[j]));
+                if (firings.get(i)[j] > 1) sb.append('*').append(firings.get(i)[j]);
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+}
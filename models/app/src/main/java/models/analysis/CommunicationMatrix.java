@@ -0,0 +1,166 @@
+// MIT License
+
+// Copyright (c) 2024 Saab AB
+
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+
+package models.analysis;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import models.platform_model.PlatformIR;
+import models.platform_model.PlatformIR.Kind;
+
+
+/**
+ * All-pairs cost of communication between the components of a platform.
+ * Traversing a switch takes, as documented in PlatformBuilder.AddSwitch,
+ * <p>
+ * initialLatency + ceil(size / flitSizeInBits) * (maxCyclesPerFlit / maxConcurrentFlits) / frequency
+ * <p>
+ * so a path costs the sum of the initial latencies plus size times the sum
+ * of the per-bit costs of its switches (ignoring the rounding to flits). For every pair the path with the
+ * lowest per-bit cost (then latency) is chosen, searching over directed
+ * links so one-way connections and the internal routes of switches are
+ * respected. One Dijkstra runs per source component, in parallel.
+ * <p>
+ * Matrices are cached per platform hash for the lifetime of the JVM.
+ */
+public class CommunicationMatrix {
+    private static final Map<String, CommunicationMatrix> cache = new ConcurrentHashMap<>();
+
+    private final PlatformIR platform;
+    /** Seconds per bit from a to b at [a * n + b], infinite if unreachable. */
+    public final double[] secondsPerBit;
+    /** Fixed seconds of a transfer from a to b, 0 for direct links. */
+    public final double[] latencySeconds;
+    /** Switches passed from a to b, -1 if unreachable. */
+    public final int[] switches;
+
+    private CommunicationMatrix(PlatformIR platform) {
+        this.platform = platform;
+        int n = platform.Size();
+        this.secondsPerBit = new double[n * n];
+        this.latencySeconds = new double[n * n];
+        this.switches = new int[n * n];
+        Arrays.fill(secondsPerBit, Double.POSITIVE_INFINITY);
+        Arrays.fill(switches, -1);
+
+        double[] switchPerBit = new double[n];
+        double[] switchLatency = new double[n];
+        for (int s = 0; s < n; s++) {
+            if (platform.kinds[s] != Kind.SWITCH) continue;
+            double f = platform.frequencyInHertz[s];
+            if (f <= 0 || platform.flitSizeInBits[s] <= 0) {
+                switchPerBit[s] = Double.POSITIVE_INFINITY;
+                continue;
+            }
+            double cyclesPerFlit = (double) Math.max(1, platform.maxCyclesPerFlit[s])
+                / Math.max(1, platform.maxConcurrentFlits[s]);
+            switchPerBit[s] = cyclesPerFlit / platform.flitSizeInBits[s] / f;
+            switchLatency[s] = platform.initialLatency[s] / f;
+        }
+        IntStream.range(0, n).parallel()
+            .filter(src -> platform.kinds[src] != Kind.SWITCH && platform.kinds[src] != Kind.RUNTIME)
+            .forEach(src -> Dijkstra(src, switchPerBit, switchLatency));
+    }
+
+    /**
+     * Get the matrix of a platform, computing it on first use.
+     * @param platform The platform, cached by its sourceHash if it has one.
+     * @return The matrix.
+     */
+    public static CommunicationMatrix Of(PlatformIR platform) {
+        if (platform.sourceHash == null) return new CommunicationMatrix(platform);
+        CommunicationMatrix m = cache.computeIfAbsent(platform.sourceHash, h -> new CommunicationMatrix(platform));
+        // a hash collision with a different platform instance is not trusted
+        return m.platform.Size() == platform.Size() ? m : new CommunicationMatrix(platform);
+    }
+
+    private record State(double perBit, double latency, int from, int to, int switches)
+        implements Comparable<State> {
+        @Override
+        public int compareTo(State o) {
+            int c = Double.compare(perBit, o.perBit);
+            return c != 0 ? c : Double.compare(latency, o.latency);
+        }
+    }
+
+    /**
+     * Shortest paths from one component over link states (u -> v), only
+     * continuing through switches along their routes. The cost of a switch
+     * is paid when a link enters it.
+     */
+    private void Dijkstra(int src, double[] switchPerBit, double[] switchLatency) {
+        int n = platform.Size();
+        // settled links u -> v
+        boolean[] settled = new boolean[n * n];
+        var queue = new PriorityQueue<State>();
+        int row = src * n;
+        secondsPerBit[row + src] = 0;
+        latencySeconds[row + src] = 0;
+        switches[row + src] = 0;
+        var out = platform.Neighbors(src);
+        for (int v = out.nextSetBit(0); v >= 0; v = out.nextSetBit(v + 1)) {
+            queue.add(Enter(src, v, 0, 0, 0, switchPerBit, switchLatency));
+        }
+        while (!queue.isEmpty()) {
+            State s = queue.poll();
+            int link = s.from() * n + s.to();
+            if (settled[link]) continue;
+            settled[link] = true;
+
+            int v = s.to();
+            if (platform.kinds[v] != Kind.SWITCH) {
+                if (switches[row + v] < 0) {
+                    secondsPerBit[row + v] = s.perBit();
+                    latencySeconds[row + v] = s.latency();
+                    switches[row + v] = s.switches();
+                }
+                continue;
+            }
+            if (s.perBit() == Double.POSITIVE_INFINITY) continue;
+            var next = platform.Neighbors(v);
+            for (int w = next.nextSetBit(0); w >= 0; w = next.nextSetBit(w + 1)) {
+                if (w == s.from() || settled[v * n + w] || !platform.CanForward(v, s.from(), w)) continue;
+                queue.add(Enter(v, w, s.perBit(), s.latency(), s.switches(), switchPerBit, switchLatency));
+            }
+        }
+    }
+
+    private State Enter(int u, int v, double perBit, double latency, int passed,
+                        double[] switchPerBit, double[] switchLatency) {
+        if (platform.kinds[v] != Kind.SWITCH) return new State(perBit, latency, u, v, passed);
+        return new State(perBit + switchPerBit[v], latency + switchLatency[v], u, v, passed + 1);
+    }
+
+    /**
+     * Get the time to transfer data between two components.
+     * @param from The sending component.
+     * @param to The receiving component.
+     * @param bits The size of the data.
+     * @return The seconds, infinite if to can't be reached from from.
+     */
+    public double TransferTime(int from, int to, long bits) {
+        int i = from * platform.Size() + to;
+        if (from == to || bits == 0) return 0;
+        if (switches[i] < 0) return Double.POSITIVE_INFINITY;
+        return latencySeconds[i] + bits * secondsPerBit[i];
+    }
+
+    public boolean Reachable(int from, int to) {
+        return switches[from * platform.Size() + to] >= 0;
+    }
+}
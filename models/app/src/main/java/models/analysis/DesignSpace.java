@@ -0,0 +1,204 @@
+// MIT License
+
+// Copyright (c) 2024 Saab AB
+
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+
+package models.analysis;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import forsyde.io.core.SystemGraph;
+import models.application_model.ApplicationIR;
+import models.platform_model.PlatformIR;
+import models.platform_model.PlatformIR.Kind;
+
+
+/**
+ * Estimate of the mapping design space of an application on a platform and
+ * of how far it shrinks when options that can't or shouldn't be chosen are
+ * removed. A mapping chooses, per actor, a processing unit (a processor,
+ * and thereby its scheduler, or an FPGA) and a memory for its code, and per
+ * channel a memory, so the raw size is
+ * <p>
+ * (processing units * memories)^actors * memories^channels
+ * <p>
+ * and is reported as log10. Options are removed in two steps:
+ * <p>
+ * - Unreachable: processing units that can't execute any implementation of
+ * the actor (missing instruction types, too little FPGA area/BRAM) and
+ * memories that the chosen units can't reach.
+ * <p>
+ * - Dominated: hardware implementations that are slower than the software
+ * implementation on every processor able to run it, yet occupy FPGA area.
+ * Removing them gives up offloading such actors to the FPGA, which is why
+ * the reduced model is written on request only.
+ */
+public class DesignSpace {
+    private final ApplicationIR app;
+    private final PlatformIR platform;
+    private final CommunicationMatrix communication;
+    private final double[] computeTime;
+    private final List<Integer> units = new ArrayList<>();
+    private final List<Integer> memories = new ArrayList<>();
+    private final List<Integer> dominated = new ArrayList<>();
+    private final BitSet isDominated = new BitSet();
+    private final double rawLog10;
+    private final double reachableLog10;
+    private final double reducedLog10;
+
+    /**
+     * Analyze the design space.
+     * @param app The application.
+     * @param platform The platform.
+     */
+    public DesignSpace(ApplicationIR app, PlatformIR platform) {
+        this.app = app;
+        this.platform = platform;
+        this.communication = CommunicationMatrix.Of(platform);
+        this.computeTime = ThroughputEvaluator.ComputeTimes(app, platform);
+        for (int c = 0; c < platform.Size(); c++) {
+            if (platform.kinds[c] == Kind.PROCESSOR || platform.kinds[c] == Kind.FPGA) units.add(c);
+            if (platform.kinds[c] == Kind.MEMORY) memories.add(c);
+        }
+        for (int a = 0; a < app.NumActors(); a++) {
+            if (!IsDominated(a)) continue;
+            dominated.add(a);
+            isDominated.set(a);
+        }
+
+        double channels = app.NumChannels() * Math.log10(Math.max(1, memories.size()));
+        this.rawLog10 = app.NumActors() * Math.log10(Math.max(1, units.size() * memories.size())) + channels;
+        this.reachableLog10 = Log10Options(false);
+        this.reducedLog10 = Log10Options(true);
+    }
+
+    private boolean Capable(int a, int unit) {
+        if (computeTime[a * platform.Size() + unit] == Double.POSITIVE_INFINITY) return false;
+        if (platform.kinds[unit] != Kind.FPGA) return true;
+        return app.hwArea[a] <= platform.logicArea[unit]
+            && app.hwBramInBits[a] <= platform.blockRamSizeInBits[unit];
+    }
+
+    /**
+     * Check if the hardware implementation of an actor is slower than its
+     * software on every processor that can run it.
+     */
+    private boolean IsDominated(int a) {
+        if (!app.HasHardware(a) || !app.HasSoftware(a)) return false;
+        double slowestSw = -1, fastestHw = Double.POSITIVE_INFINITY;
+        for (int u : units) {
+            if (!Capable(a, u)) continue;
+            double t = computeTime[a * platform.Size() + u];
+            if (platform.kinds[u] == Kind.PROCESSOR) slowestSw = Math.max(slowestSw, t);
+            else fastestHw = Math.min(fastestHw, t);
+        }
+        return slowestSw >= 0 && fastestHw < Double.POSITIVE_INFINITY && fastestHw >= slowestSw;
+    }
+
+    /**
+     * Count the options left per actor and channel, as log10 of their
+     * product.
+     */
+    private double Log10Options(boolean withoutDominated) {
+        int n = app.NumActors();
+        List<List<Integer>> targets = new ArrayList<>(n);
+        double log10 = 0;
+        for (int a = 0; a < n; a++) {
+            boolean hwAllowed = !(withoutDominated && isDominated.get(a));
+            List<Integer> ok = new ArrayList<>();
+            for (int u : units) {
+                if (Capable(a, u) && (hwAllowed || platform.kinds[u] != Kind.FPGA)) ok.add(u);
+            }
+            targets.add(ok);
+            long options = 0;
+            for (int u : ok) options += ReachableMemories(List.of(u));
+            log10 += Math.log10(Math.max(1, options));
+        }
+        for (int c = 0; c < app.NumChannels(); c++) {
+            List<Integer> ends = new ArrayList<>();
+            if (app.channelSrc[c] >= 0) ends.addAll(targets.get(app.channelSrc[c]));
+            if (app.channelDst[c] >= 0) ends.addAll(targets.get(app.channelDst[c]));
+            log10 += Math.log10(Math.max(1, ends.isEmpty() ? memories.size() : ReachableMemories(ends)));
+        }
+        return log10;
+    }
+
+    /**
+     * Count the memories at least one of the given units reaches.
+     */
+    private int ReachableMemories(List<Integer> from) {
+        int count = 0;
+        for (int m : memories) {
+            for (int u : from) {
+                if (communication.Reachable(u, m)) {
+                    count++;
+                    break;
+                }
+            }
+        }
+        return count;
+    }
+
+    public double RawLog10() {
+        return rawLog10;
+    }
+
+    public double ReachableLog10() {
+        return reachableLog10;
+    }
+
+    public double ReducedLog10() {
+        return reducedLog10;
+    }
+
+    /**
+     * Get the actors whose hardware implementation is dominated.
+     */
+    public List<String> DominatedImplementations() {
+        return dominated.stream().map(app::ActorName).toList();
+    }
+
+    /**
+     * Remove the dominated hardware implementations from the application.
+     * @param g The application graph the analysis was built from.
+     * @return The number of removed implementations.
+     */
+    public int Reduce(SystemGraph g) {
+        int removed = 0;
+        for (int a : dominated) {
+            if (FPGAFeasibility.RemoveHardwareImplementation(g, app.ActorName(a))) removed++;
+        }
+        return removed;
+    }
+
+    /**
+     * Describe the size of the design space before and after each step.
+     * @return The report.
+     */
+    public String Report() {
+        var sb = new StringBuilder();
+        sb.append("Actors: ").append(app.NumActors()).append(", channels: ").append(app.NumChannels())
+            .append(", processing units: ").append(units.size()).append(", memories: ")
+            .append(memories.size()).append('\n');
+        sb.append(String.format("Raw design space:          10^%.1f%n", rawLog10));
+        sb.append(String.format("Without unreachable:       10^%.1f (%.1f orders smaller)%n",
+            reachableLog10, rawLog10 - reachableLog10));
+        sb.append(String.format("Without dominated HW:      10^%.1f (%.1f orders smaller)%n",
+            reducedLog10, rawLog10 - reducedLog10));
+        for (int a : dominated) {
+            sb.append("Dominated hardware implementation of '").append(app.ActorName(a)).append("'\n");
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,214 @@
+// MIT License
+
+// Copyright (c) 2024 Saab AB
+
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+
+package models.analysis;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import forsyde.io.core.SystemGraph;
+import forsyde.io.core.Vertex;
+import models.application_model.ApplicationIR;
+import models.platform_model.PlatformIR;
+import models.platform_model.PlatformIR.Kind;
+
+
+/**
+ * Pre-DSE check of the hardware implementations of an application against
+ * the FPGAs of a platform. Implementations whose logic area or block RAM
+ * exceed every FPGA are removed, pairs of implementations that no FPGA can
+ * hold together are flagged, and a knapsack bound gives how many hardware
+ * implementations can be resident at once.
+ */
+public class FPGAFeasibility {
+    /** Flagged pairs listed in the report, all of them are counted. */
+    private static final int MAX_LISTED_PAIRS = 100;
+    private static final String HW_TRAIT = "InstrumentedHardwareBehaviour";
+    private static final String[] HW_PROPERTIES = {
+        "resourceRequirements", "latencyInSecsNumerators", "latencyInSecsDenominators"
+    };
+
+    private final ApplicationIR app;
+    private final PlatformIR platform;
+    private final int[] fpgas;
+    /** Actors with a hardware implementation that fits some FPGA. */
+    private final List<Integer> feasible = new ArrayList<>();
+    /** Actors whose hardware implementation fits no FPGA. */
+    private final List<Integer> infeasible = new ArrayList<>();
+    private long incompatiblePairs = 0;
+    private final List<String> listedPairs = new ArrayList<>();
+    private int maxResident = 0;
+
+    /**
+     * Check the hardware implementations of an application.
+     * @param app The application.
+     * @param platform The platform.
+     */
+    public FPGAFeasibility(ApplicationIR app, PlatformIR platform) {
+        this.app = app;
+        this.platform = platform;
+        this.fpgas = IntStream.range(0, platform.Size())
+            .filter(c -> platform.kinds[c] == Kind.FPGA)
+            .toArray();
+        for (int a = 0; a < app.NumActors(); a++) {
+            if (!app.HasHardware(a)) continue;
+            if (Fits(app.hwArea[a], app.hwBramInBits[a])) feasible.add(a);
+            else infeasible.add(a);
+        }
+        FlagIncompatiblePairs();
+        for (int f : fpgas) maxResident += ResidentBound(f);
+    }
+
+    /**
+     * Check if some FPGA can hold the given resources.
+     */
+    private boolean Fits(long area, long bram) {
+        for (int f : fpgas) {
+            if (area <= platform.logicArea[f] && bram <= platform.blockRamSizeInBits[f]) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Flag pairs of feasible implementations that together exceed every
+     * FPGA, so they can never be co-resident.
+     */
+    private void FlagIncompatiblePairs() {
+        for (int i = 0; i < feasible.size(); i++) {
+            for (int j = i + 1; j < feasible.size(); j++) {
+                int a = feasible.get(i), b = feasible.get(j);
+                if (Fits(app.hwArea[a] + app.hwArea[b], app.hwBramInBits[a] + app.hwBramInBits[b])) continue;
+                incompatiblePairs++;
+                if (listedPairs.size() < MAX_LISTED_PAIRS) {
+                    listedPairs.add(app.ActorName(a) + " + " + app.ActorName(b));
+                }
+            }
+        }
+    }
+
+    /**
+     * Upper bound on the number of implementations an FPGA holds at once:
+     * taking the smallest ones first maximizes the count for one resource,
+     * so the smaller count over area and block RAM bounds both.
+     */
+    private int ResidentBound(int f) {
+        long[] areas = feasible.stream()
+            .filter(a -> app.hwArea[a] <= platform.logicArea[f] && app.hwBramInBits[a] <= platform.blockRamSizeInBits[f])
+            .mapToLong(a -> app.hwArea[a]).sorted().toArray();
+        long[] brams = feasible.stream()
+            .filter(a -> app.hwArea[a] <= platform.logicArea[f] && app.hwBramInBits[a] <= platform.blockRamSizeInBits[f])
+            .mapToLong(a -> app.hwBramInBits[a]).sorted().toArray();
+        return Math.min(
+            GreedyCount(areas, platform.logicArea[f]),
+            GreedyCount(brams, platform.blockRamSizeInBits[f])
+        );
+    }
+
+    private static int GreedyCount(long[] sortedSizes, long capacity) {
+        int count = 0;
+        long used = 0;
+        for (long size : sortedSizes) {
+            if (used + size > capacity) break;
+            used += size;
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Get the actors whose hardware implementation fits no FPGA.
+     */
+    public List<String> InfeasibleImplementations() {
+        return infeasible.stream().map(app::ActorName).toList();
+    }
+
+    /**
+     * Get the actors that have no implementation left after pruning.
+     */
+    public List<String> UnmappableActors() {
+        return infeasible.stream()
+            .filter(a -> !app.HasSoftware(a))
+            .map(app::ActorName)
+            .toList();
+    }
+
+    public long IncompatiblePairs() {
+        return incompatiblePairs;
+    }
+
+    /**
+     * Get an upper bound on the hardware implementations resident at once
+     * over all FPGAs.
+     */
+    public int MaxResident() {
+        return maxResident;
+    }
+
+    /**
+     * Remove the infeasible hardware implementations from the application
+     * graph, i.e. their trait and properties.
+     * @param g The application graph the analysis was built from.
+     * @return The number of removed implementations.
+     */
+    public int Prune(SystemGraph g) {
+        int removed = 0;
+        for (int a : infeasible) {
+            if (RemoveHardwareImplementation(g, app.ActorName(a))) removed++;
+        }
+        return removed;
+    }
+
+    /**
+     * Remove the hardware implementation of an actor, i.e. its trait and
+     * properties, keeping any software implementation.
+     * @param g The application graph.
+     * @param actor The identifier of the actor.
+     * @return True if the actor was found.
+     */
+    static boolean RemoveHardwareImplementation(SystemGraph g, String actor) {
+        var v = g.queryVertex(actor);
+        if (v.isEmpty()) return false;
+        Vertex vertex = v.get();
+        vertex.getTraits().removeIf(t -> t.getName().endsWith(HW_TRAIT));
+        for (String property : HW_PROPERTIES) vertex.getProperties().remove(property);
+        return true;
+    }
+
+    /**
+     * Describe the findings.
+     * @return The report, one line per finding.
+     */
+    public String Report() {
+        var sb = new StringBuilder();
+        sb.append("FPGAs: ").append(fpgas.length).append(", hardware implementations: ")
+            .append(feasible.size() + infeasible.size()).append('\n');
+        for (int a : infeasible) {
+            sb.append("Removed hardware implementation of '").append(app.ActorName(a))
+                .append("' (area ").append(app.hwArea[a]).append(", BRAM ")
+                .append(app.hwBramInBits[a]).append(" bits fit no FPGA)\n");
+        }
+        for (String actor : UnmappableActors()) {
+            sb.append("ERROR: '").append(actor).append("' has no implementation left\n");
+        }
+        sb.append("Pairs that can never be co-resident: ").append(incompatiblePairs).append('\n');
+        for (String pair : listedPairs) sb.append("  ").append(pair).append('\n');
+        if (incompatiblePairs > listedPairs.size()) {
+            sb.append("  ... ").append(incompatiblePairs - listedPairs.size()).append(" more\n");
+        }
+        sb.append("At most ").append(maxResident).append(" of ").append(feasible.size())
+            .append(" feasible hardware implementations are resident at once\n");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,185 @@
+// MIT License
+
+// Copyright (c) 2024 Saab AB
+
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+
+package models.analysis;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+
+import forsyde.io.core.SystemGraph;
+import models.application_model.ApplicationIR;
+import models.platform_model.PlatformIR;
+import models.platform_model.PlatformIR.Kind;
+
+
+/**
+ * Exploration of the split factor of a data-parallel application, e.g. the
+ * number of Grayscale/Sobel lanes of ApplicationHandler.Realistic. A variant
+ * is generated for every split factor and scored with the greedy mapping of
+ * the ThroughputEvaluator, so the best factor for a platform is found
+ * without a DSE per variant.
+ */
+public class FissionExplorer {
+
+    /**
+     * The evaluation of one variant.
+     * @param splitFactor The split factor the variant was generated with.
+     * @param actors The number of actors of the variant.
+     * @param hardwareActors How many of them the mapping puts on an FPGA.
+     * @param period Seconds per iteration, infinite if infeasible.
+     * @param cycleMean The period bound of the expansion.
+     * @param reason Why the variant is infeasible, null if feasible.
+     */
+    public record Point(
+        int splitFactor, int actors, int hardwareActors,
+        double period, double cycleMean, String reason
+    ) {
+        public boolean Feasible() {
+            return reason == null;
+        }
+
+        /**
+         * Get the iterations per second.
+         */
+        public double Throughput() {
+            return period == 0.0 ? Double.POSITIVE_INFINITY : 1.0 / period;
+        }
+    }
+
+    private final IntFunction<SystemGraph> template;
+    private final PlatformIR platform;
+
+    /**
+     * Prepare the exploration.
+     * @param template Generates the application for a split factor.
+     * @param platform The platform the variants are mapped to.
+     */
+    public FissionExplorer(IntFunction<SystemGraph> template, PlatformIR platform) {
+        this.template = template;
+        this.platform = platform;
+    }
+
+    /**
+     * Generate and evaluate the variant of a split factor.
+     * @param splitFactor The split factor.
+     * @return The evaluation.
+     */
+    public Point Evaluate(int splitFactor) {
+        SystemGraph graph;
+        try {
+            graph = template.apply(splitFactor);
+        } catch (IllegalArgumentException e) {
+            // e.g. a factor that doesn't divide the data
+            return Infeasible(splitFactor, 0, e.getMessage());
+        }
+        var app = ApplicationIR.FromGraph(graph);
+        ThroughputEvaluator evaluator;
+        try {
+            evaluator = new ThroughputEvaluator(app, platform);
+        } catch (IllegalArgumentException e) {
+            return Infeasible(splitFactor, app.NumActors(), "Inconsistent or deadlocks");
+        }
+        var mapping = evaluator.GreedyMapping();
+        for (int c = 0; c < app.NumChannels(); c++) {
+            if (mapping.channelMemory()[c] < 0) {
+                return Infeasible(splitFactor, app.NumActors(), "Channel '" + app.ChannelName(c) + "' fits no memory");
+            }
+        }
+        var result = evaluator.Evaluate(mapping);
+        if (!result.Feasible()) return Infeasible(splitFactor, app.NumActors(), result.reason());
+        int hardware = 0;
+        for (int p : mapping.processor()) {
+            if (platform.kinds[p] == Kind.FPGA) hardware++;
+        }
+        return new Point(splitFactor, app.NumActors(), hardware, result.period(), result.cycleMean(), null);
+    }
+
+    private static Point Infeasible(int splitFactor, int actors, String reason) {
+        return new Point(
+            splitFactor, actors, 0, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, reason
+        );
+    }
+
+    /**
+     * Evaluate the variants of a range of split factors on a bounded
+     * work-stealing pool.
+     * @param from The smallest split factor.
+     * @param to The largest split factor, inclusive.
+     * @param parallelism The maximum number of variants evaluated at once.
+     * @return The evaluations in order of the split factor.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    public List<Point> Explore(int from, int to, int parallelism) throws InterruptedException {
+        List<Callable<Point>> tasks = new ArrayList<>();
+        for (int k = from; k <= to; k++) {
+            int splitFactor = k;
+            tasks.add(() -> Evaluate(splitFactor));
+        }
+
+        var pool = new ForkJoinPool(Math.max(1, parallelism));
+        List<Point> points = new ArrayList<>();
+        try {
+            List<Future<Point>> results = pool.invokeAll(tasks);
+            for (int i = 0; i < results.size(); i++) {
+                try {
+                    points.add(results.get(i).get());
+                } catch (ExecutionException e) {
+                    points.add(Infeasible(from + i, 0, String.valueOf(e.getCause().getMessage())));
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+        return points;
+    }
+
+    /**
+     * Get the variant with the highest throughput, the smallest split factor
+     * on ties as it has the fewest actors to map.
+     * @param points The evaluations.
+     * @return The best feasible evaluation, null if none is feasible.
+     */
+    public static Point Best(List<Point> points) {
+        return points.stream()
+            .filter(Point::Feasible)
+            .min(Comparator.comparingDouble(Point::period).thenComparingInt(Point::splitFactor))
+            .orElse(null);
+    }
+
+    /**
+     * Write the evaluations as CSV, one row per split factor.
+     * @param points The evaluations.
+     * @return The CSV with a header row.
+     */
+    public static String Csv(List<Point> points) {
+        var sb = new StringBuilder("split_factor,actors,hardware_actors,period_s,cycle_mean_s,throughput,reason\n");
+        for (Point p : points) {
+            sb.append(p.splitFactor()).append(',')
+                .append(p.actors()).append(',')
+                .append(p.hardwareActors()).append(',')
+                .append(p.Feasible() ? String.valueOf(p.period()) : "").append(',')
+                .append(p.Feasible() ? String.valueOf(p.cycleMean()) : "").append(',')
+                .append(p.Feasible() ? String.valueOf(p.Throughput()) : "0").append(',')
+                .append(p.Feasible() ? "" : '"' + p.reason().replace("\"", "\"\"") + '"')
+                .append('\n');
+        }
+        return sb.toString();
+    }
+}
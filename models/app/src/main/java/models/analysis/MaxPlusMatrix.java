@@ -0,0 +1,204 @@
+// MIT License
+
+// Copyright (c) 2024 Saab AB
+
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+
+package models.analysis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * Sparse square max-plus matrix M, where M[i][j] is the maximal (longest
+ * path) delay from initial token j at the start of an iteration to initial
+ * token i at its end, -infinity if i doesn't depend on j. Rows are stored sparse,
+ * so memory grows with the dependencies rather than the squared size.
+ */
+public class MaxPlusMatrix {
+    private final MaxPlusVector[] rows;
+
+    MaxPlusMatrix(MaxPlusVector[] rows) {
+        this.rows = rows;
+    }
+
+    public int Size() {
+        return rows.length;
+    }
+
+    /**
+     * Get an entry.
+     * @param i The row (initial token after the iteration).
+     * @param j The column (initial token before the iteration).
+     * @return The entry, Double.NEGATIVE_INFINITY if there is none.
+     */
+    public double Get(int i, int j) {
+        MaxPlusVector row = rows[i];
+        int k = Arrays.binarySearch(row.indices, j);
+        return k < 0 ? Double.NEGATIVE_INFINITY : row.values[k];
+    }
+
+    /**
+     * Get the number of entries that are not -infinity.
+     */
+    public long NonZeros() {
+        long n = 0;
+        for (MaxPlusVector row : rows) n += row.indices.length;
+        return n;
+    }
+
+    /**
+     * Compute the maximum cycle mean of the precedence graph (edge j -> i
+     * with weight M[i][j]), the eigenvalue of the matrix, i.e. the period of
+     * an iteration in self-timed execution. Karp's algorithm is applied per
+     * strongly connected component, in two passes so it keeps O(n) instead
+     * of O(n^2) distances.
+     * @return The maximum cycle mean, Double.NEGATIVE_INFINITY without cycles.
+     */
+    public double MaximumCycleMean() {
+        double best = Double.NEGATIVE_INFINITY;
+        for (int[] scc : StronglyConnectedComponents()) {
+            if (scc.length == 1 && Get(scc[0], scc[0]) == Double.NEGATIVE_INFINITY) continue;
+            best = Math.max(best, Karp(scc));
+        }
+        return best;
+    }
+
+    /**
+     * Karp's algorithm on one strongly connected component:
+     * lambda = max_v min_k (D_n(v) - D_k(v)) / (n - k), where D_k(v) is the
+     * heaviest walk of k edges from the first vertex to v.
+     */
+    private double Karp(int[] scc) {
+        int n = scc.length;
+        int[] local = new int[rows.length];
+        Arrays.fill(local, -1);
+        for (int i = 0; i < n; i++) local[scc[i]] = i;
+
+        // first pass: D_n
+        double[] dn = Walk(scc, local, n, null, null);
+        // second pass: min_k (D_n - D_k) / (n - k) per vertex
+        double[] ratio = new double[n];
+        Arrays.fill(ratio, Double.POSITIVE_INFINITY);
+        Walk(scc, local, n, dn, ratio);
+
+        double lambda = Double.NEGATIVE_INFINITY;
+        for (int v = 0; v < n; v++) {
+            if (dn[v] == Double.NEGATIVE_INFINITY) continue;
+            lambda = Math.max(lambda, ratio[v]);
+        }
+        return lambda;
+    }
+
+    /**
+     * Compute D_0..D_steps within a component, keeping only the last row.
+     * With dn given, fold (dn - D_k) / (steps - k) into ratio for k < steps.
+     */
+    private double[] Walk(int[] scc, int[] local, int steps, double[] dn, double[] ratio) {
+        int n = scc.length;
+        double[] d = new double[n];
+        double[] next = new double[n];
+        Arrays.fill(d, Double.NEGATIVE_INFINITY);
+        d[0] = 0.0;
+        for (int k = 0; k < steps; k++) {
+            if (dn != null) {
+                for (int v = 0; v < n; v++) {
+                    if (dn[v] == Double.NEGATIVE_INFINITY || d[v] == Double.NEGATIVE_INFINITY) continue;
+                    ratio[v] = Math.min(ratio[v], (dn[v] - d[v]) / (steps - k));
+                }
+            }
+            Arrays.fill(next, Double.NEGATIVE_INFINITY);
+            for (int i = 0; i < n; i++) {
+                MaxPlusVector row = rows[scc[i]];
+                for (int e = 0; e < row.indices.length; e++) {
+                    int j = local[row.indices[e]];
+                    if (j < 0 || d[j] == Double.NEGATIVE_INFINITY) continue;
+                    next[i] = Math.max(next[i], d[j] + row.values[e]);
+                }
+            }
+            double[] tmp = d;
+            d = next;
+            next = tmp;
+        }
+        return d;
+    }
+
+    /**
+     * Tarjan's algorithm, iterative so deep graphs don't overflow the stack.
+     * @return The components as arrays of row indices.
+     */
+    private List<int[]> StronglyConnectedComponents() {
+        int n = rows.length;
+        // successors of j are the rows i with an entry in column j
+        int[] offsets = new int[n + 1];
+        for (MaxPlusVector row : rows) {
+            for (int j : row.indices) offsets[j + 1]++;
+        }
+        for (int j = 0; j < n; j++) offsets[j + 1] += offsets[j];
+        int[] succ = new int[offsets[n]];
+        int[] fill = Arrays.copyOf(offsets, n);
+        for (int i = 0; i < n; i++) {
+            for (int j : rows[i].indices) succ[fill[j]++] = i;
+        }
+
+        List<int[]> components = new ArrayList<>();
+        int[] index = new int[n];
+        int[] low = new int[n];
+        int[] edge = new int[n];
+        boolean[] onStack = new boolean[n];
+        Arrays.fill(index, -1);
+        int[] stack = new int[n];
+        int[] callStack = new int[n];
+        int sp = 0, counter = 0;
+        for (int root = 0; root < n; root++) {
+            if (index[root] >= 0) continue;
+            int csp = 0;
+            callStack[csp++] = root;
+            index[root] = low[root] = counter++;
+            edge[root] = offsets[root];
+            stack[sp++] = root;
+            onStack[root] = true;
+            while (csp > 0) {
+                int v = callStack[csp - 1];
+                if (edge[v] < offsets[v + 1]) {
+                    int w = succ[edge[v]++];
+                    if (index[w] < 0) {
+                        index[w] = low[w] = counter++;
+                        edge[w] = offsets[w];
+                        stack[sp++] = w;
+                        onStack[w] = true;
+                        callStack[csp++] = w;
+                    } else if (onStack[w]) {
+                        low[v] = Math.min(low[v], index[w]);
+                    }
+                    continue;
+                }
+                csp--;
+                if (csp > 0) {
+                    int parent = callStack[csp - 1];
+                    low[parent] = Math.min(low[parent], low[v]);
+                }
+                if (low[v] == index[v]) {
+                    int start = sp;
+                    do {
+                        start--;
+                        onStack[stack[start]] = false;
+                    } while (stack[start] != v);
+                    components.add(Arrays.copyOfRange(stack, start, sp));
+                    sp = start;
+                }
+            }
+        }
+        return components;
+    }
+}
@@ -0,0 +1,119 @@
+// MIT License
+
+// Copyright (c) 2024 Saab AB
+
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+
+package models.analysis;
+
+import java.util.Arrays;
+
+
+/**
+ * Sparse max-plus vector: the entries that are not -infinity, sorted by
+ * index. Used as the symbolic time stamp of tokens, i.e. the time a token
+ * is available as max_i (entry_i + time of initial token i).
+ */
+final class MaxPlusVector {
+    static final MaxPlusVector EMPTY = new MaxPlusVector(new int[0], new double[0]);
+
+    final int[] indices;
+    final double[] values;
+
+    private MaxPlusVector(int[] indices, double[] values) {
+        this.indices = indices;
+        this.values = values;
+    }
+
+    /**
+     * The stamp of initial token i: available at its own time.
+     */
+    static MaxPlusVector Unit(int i) {
+        return new MaxPlusVector(new int[] {i}, new double[] {0.0});
+    }
+
+    /**
+     * Element-wise maximum of two vectors.
+     */
+    static MaxPlusVector Max(MaxPlusVector a, MaxPlusVector b) {
+        if (a == b || b.indices.length == 0) return a;
+        if (a.indices.length == 0) return b;
+        int[] idx = new int[a.indices.length + b.indices.length];
+        double[] val = new double[idx.length];
+        int i = 0, j = 0, n = 0;
+        while (i < a.indices.length || j < b.indices.length) {
+            if (j == b.indices.length || (i < a.indices.length && a.indices[i] < b.indices[j])) {
+                idx[n] = a.indices[i];
+                val[n++] = a.values[i++];
+            } else if (i == a.indices.length || b.indices[j] < a.indices[i]) {
+                idx[n] = b.indices[j];
+                val[n++] = b.values[j++];
+            } else {
+                idx[n] = a.indices[i];
+                val[n++] = Math.max(a.values[i++], b.values[j++]);
+            }
+        }
+        return new MaxPlusVector(Arrays.copyOf(idx, n), Arrays.copyOf(val, n));
+    }
+
+    /**
+     * Delay every entry, i.e. max-plus multiplication with a scalar.
+     */
+    MaxPlusVector Shift(double delay) {
+        if (delay == 0.0) return this;
+        double[] val = new double[values.length];
+        for (int i = 0; i < val.length; i++) val[i] = values[i] + delay;
+        return new MaxPlusVector(indices, val);
+    }
+
+    /**
+     * Bound the number of entries: keep the limit - 1 largest entries and
+     * replace the others by a single entry of the given symbol holding their
+     * maximum. The symbol must be larger than every other index.
+     */
+    MaxPlusVector Fold(int limit, int symbol) {
+        if (indices.length <= limit) return this;
+        int plain = indices[indices.length - 1] == symbol ? indices.length - 1 : indices.length;
+        int keep = limit - 1;
+        double[] sorted = Arrays.copyOf(values, plain);
+        Arrays.sort(sorted);
+        double threshold = sorted[plain - keep];
+        int ties = keep;
+        for (int i = 0; i < plain; i++) if (values[i] > threshold) ties--;
+
+        int[] idx = new int[limit];
+        double[] val = new double[limit];
+        double folded = plain < indices.length ? values[plain] : Double.NEGATIVE_INFINITY;
+        int n = 0;
+        for (int i = 0; i < plain; i++) {
+            if (values[i] > threshold || (values[i] == threshold && ties-- > 0)) {
+                idx[n] = indices[i];
+                val[n++] = values[i];
+            } else {
+                folded = Math.max(folded, values[i]);
+            }
+        }
+        idx[n] = symbol;
+        val[n] = folded;
+        return new MaxPlusVector(idx, val);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof MaxPlusVector v
+            && Arrays.equals(indices, v.indices) && Arrays.equals(values, v.values);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(indices) + Arrays.hashCode(values);
+    }
+}
@@ -0,0 +1,174 @@
+// MIT License
+
+// Copyright (c) 2024 Saab AB
+
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+
+package models.analysis;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import forsyde.io.core.SystemGraph;
+import forsyde.io.core.Vertex;
+import forsyde.io.lib.hierarchy.ForSyDeHierarchy.CommunicationModulePortSpecification;
+import models.platform_model.PlatformIR;
+import models.platform_model.PlatformIR.Kind;
+
+
+/**
+ * Validation of the connections of a platform before the DSE: which
+ * memories each processing unit (processor or FPGA) can reach over
+ * directed links and the internal routes of the switches, and which switch
+ * ports no route uses. The reachability of every component is a bitset row
+ * taken from the route-aware hops of the PlatformIR, so the check costs
+ * one pass over the n x n matrix.
+ * <p>
+ * Unreachable pairs are not necessarily errors, e.g. the TCM of one RPU
+ * core is private to it, so they are reported rather than rejected.
+ */
+public class PlatformReachability {
+
+    /**
+     * A memory that a processing unit can't reach.
+     * @param unit The processor or FPGA.
+     * @param memory The memory.
+     */
+    public record Pair(int unit, int memory) {}
+
+    private final PlatformIR platform;
+    private final BitSet[] reach;
+    private final BitSet units = new BitSet();
+    private final BitSet memories = new BitSet();
+
+    /**
+     * Analyze the reachability of a platform.
+     * @param platform The platform.
+     */
+    public PlatformReachability(PlatformIR platform) {
+        this.platform = platform;
+        int n = platform.Size();
+        this.reach = new BitSet[n];
+        for (int a = 0; a < n; a++) {
+            reach[a] = new BitSet(n);
+            for (int b = 0; b < n; b++) {
+                if (platform.Hops(a, b) >= 0) reach[a].set(b);
+            }
+            Kind kind = platform.kinds[a];
+            if (kind == Kind.PROCESSOR || kind == Kind.FPGA) units.set(a);
+            if (kind == Kind.MEMORY) memories.set(a);
+        }
+    }
+
+    /**
+     * Get the components a component can send to.
+     * @param from The component id.
+     * @return A copy of the reachable components.
+     */
+    public BitSet Reachable(int from) {
+        return (BitSet) reach[from].clone();
+    }
+
+    /**
+     * Get every memory that a processing unit can't reach.
+     * @return The pairs, ordered by unit.
+     */
+    public List<Pair> UnreachableMemories() {
+        List<Pair> pairs = new ArrayList<>();
+        for (int u = units.nextSetBit(0); u >= 0; u = units.nextSetBit(u + 1)) {
+            BitSet missing = (BitSet) memories.clone();
+            missing.andNot(reach[u]);
+            for (int m = missing.nextSetBit(0); m >= 0; m = missing.nextSetBit(m + 1)) {
+                pairs.add(new Pair(u, m));
+            }
+        }
+        return pairs;
+    }
+
+    /**
+     * Get the ports of switches with internal routes that no route enters
+     * or leaves through, i.e. links that can never carry traffic.
+     * @return The ports as 'SWITCH -> neighbor'.
+     */
+    public List<String> DeadPorts() {
+        int n = platform.Size();
+        List<String> dead = new ArrayList<>();
+        for (int sw = 0; sw < n; sw++) {
+            if (platform.kinds[sw] != Kind.SWITCH || !platform.HasRoutes(sw)) continue;
+            BitSet ports = platform.Neighbors(sw);
+            for (int u = 0; u < n; u++) {
+                if (platform.Connected(u, sw)) ports.set(u);
+            }
+            for (int u = ports.nextSetBit(0); u >= 0; u = ports.nextSetBit(u + 1)) {
+                boolean used = false;
+                for (int w = ports.nextSetBit(0); w >= 0 && !used; w = ports.nextSetBit(w + 1)) {
+                    used = w != u && (platform.CanForward(sw, u, w) || platform.CanForward(sw, w, u));
+                }
+                if (!used) dead.add(platform.names[sw] + " -> " + platform.names[u]);
+            }
+        }
+        return dead;
+    }
+
+    /**
+     * Find route entries of switch port specifications naming ports the
+     * switch doesn't have, which the PlatformIR can't represent.
+     * @param g The platform graph.
+     * @return The entries as 'SWITCH: port'.
+     */
+    public static List<String> UnknownRoutePorts(SystemGraph g) {
+        List<String> unknown = new ArrayList<>();
+        for (Vertex v : g.vertexSet()) {
+            var spec = CommunicationModulePortSpecification.tryView(g, v);
+            if (spec.isEmpty() || spec.get().portConnections() == null) continue;
+            spec.get().portConnections().forEach((in, outs) -> {
+                if (!v.getPorts().contains(in)) unknown.add(v.getIdentifier() + ": " + in);
+                for (String out : outs) {
+                    if (!v.getPorts().contains(out)) unknown.add(v.getIdentifier() + ": " + out);
+                }
+            });
+        }
+        return unknown;
+    }
+
+    /**
+     * Check if every processing unit reaches every memory and no switch
+     * port is dead.
+     */
+    public boolean IsComplete() {
+        return UnreachableMemories().isEmpty() && DeadPorts().isEmpty();
+    }
+
+    /**
+     * Describe the findings, grouping unreachable pairs by memory.
+     * @return The report, one line per memory and dead port.
+     */
+    public String Report() {
+        var sb = new StringBuilder();
+        List<Pair> pairs = UnreachableMemories();
+        for (int m = memories.nextSetBit(0); m >= 0; m = memories.nextSetBit(m + 1)) {
+            List<String> from = new ArrayList<>();
+            for (Pair p : pairs) {
+                if (p.memory() == m) from.add(platform.names[p.unit()]);
+            }
+            if (from.isEmpty()) continue;
+            sb.append("Memory '").append(platform.names[m]).append("' unreachable from ")
+                .append(from.size() == units.cardinality() ? "all processing units" : String.join(", ", from))
+                .append('\n');
+        }
+        for (String port : DeadPorts()) {
+            sb.append("Dead switch port ").append(port).append('\n');
+        }
+        if (sb.length() == 0) sb.append("All memories reachable from all processing units\n");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,329 @@
+// MIT License
+
+// Copyright (c) 2024 Saab AB
+
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+
+package models.analysis;
+
+import java.util.*;
+
+import models.platform_model.PlatformIR;
+import models.platform_model.PlatformIR.Kind;
+
+
+/**
+ * Detection of interchangeable components of a platform, e.g. the cores
+ * created by PlatformBuilder.AddCPU together with their runtimes and
+ * private memories. Candidates are found by color refinement: components
+ * start colored by kind and properties, and are recolored by the colors of
+ * their successors, predecessors, runtimes and switch routes until the
+ * coloring is stable. Every candidate pair is then confirmed by building an
+ * automorphism (individualize both, refine, repeat until all colors are
+ * unique) and checking that it preserves links, routes and runtimes.
+ * <p>
+ * The verified automorphisms generate a group acting on mappings: a mapping
+ * can be reduced to a canonical representative, so symmetric solutions are
+ * recognized as one, and a representative can be expanded back to all
+ * concrete assignments.
+ * <p>
+ * This is detection only: IDeSyDe has no input for symmetry breaking, and
+ * removing interchangeable components would change the problem, so the DSE
+ * still explores every symmetric mapping. The orbits are used after the DSE,
+ * to recognize and expand symmetric solutions.
+ */
+public class PlatformSymmetry {
+    private final PlatformIR platform;
+    private final int n;
+    private final BitSet[] successors;
+    private final BitSet[] predecessors;
+    private final BitSet[] runtimes;
+    /** Verified automorphisms, generators[g][c] is the image of c. */
+    private final List<int[]> generators = new ArrayList<>();
+    private final int[] orbit;
+
+    /**
+     * Detect the symmetries of a platform.
+     * @param platform The platform.
+     */
+    public PlatformSymmetry(PlatformIR platform) {
+        this.platform = platform;
+        this.n = platform.Size();
+        this.successors = new BitSet[n];
+        this.predecessors = new BitSet[n];
+        this.runtimes = new BitSet[n];
+        for (int c = 0; c < n; c++) {
+            successors[c] = platform.Neighbors(c);
+            predecessors[c] = new BitSet(n);
+            runtimes[c] = new BitSet(n);
+        }
+        for (int r = 0; r < n; r++) {
+            if (platform.host[r] >= 0) runtimes[platform.host[r]].set(r);
+        }
+        for (int a = 0; a < n; a++) {
+            for (int b = successors[a].nextSetBit(0); b >= 0; b = successors[a].nextSetBit(b + 1)) {
+                predecessors[b].set(a);
+            }
+        }
+
+        Map<String, Integer> names = new HashMap<>();
+        int[] stable = Refine(InitialColors(names), names);
+        this.orbit = new int[n];
+        for (int c = 0; c < n; c++) orbit[c] = c;
+        Map<Integer, Integer> first = new HashMap<>();
+        for (int c = 0; c < n; c++) {
+            Integer rep = first.putIfAbsent(stable[c], c);
+            if (rep == null || Find(rep) == Find(c)) continue;
+            int[] phi = Automorphism(stable, names, rep, c);
+            if (phi == null) continue;
+            generators.add(phi);
+            for (int x = 0; x < n; x++) Union(x, phi[x]);
+        }
+    }
+
+    private int Find(int c) {
+        while (orbit[c] != c) c = orbit[c] = orbit[orbit[c]];
+        return c;
+    }
+
+    private void Union(int a, int b) {
+        a = Find(a);
+        b = Find(b);
+        if (a != b) orbit[Math.max(a, b)] = Math.min(a, b);
+    }
+
+    private int[] InitialColors(Map<String, Integer> names) {
+        int[] colors = new int[n];
+        for (int c = 0; c < n; c++) {
+            int types = platform.instructionTypes.length;
+            String signature = platform.kinds[c] + "|" + platform.frequencyInHertz[c] + "|" +
+                platform.flitSizeInBits[c] + "|" + platform.maxCyclesPerFlit[c] + "|" +
+                platform.maxConcurrentFlits[c] + "|" + platform.initialLatency[c] + "|" +
+                platform.spaceInBits[c] + "|" + platform.logicArea[c] + "|" +
+                platform.blockRamSizeInBits[c] + "|" +
+                Arrays.toString(Arrays.copyOfRange(platform.instructionsPerCycle, c * types, (c + 1) * types));
+            colors[c] = names.computeIfAbsent(signature, k -> names.size());
+        }
+        return colors;
+    }
+
+    /**
+     * Recolor every component by its color and the sorted colors of its
+     * neighborhood until the number of colors doesn't grow. Color names are
+     * shared through <names>, so equal signatures get equal colors in
+     * separate refinements.
+     */
+    private int[] Refine(int[] colors, Map<String, Integer> names) {
+        int count = (int) Arrays.stream(colors).distinct().count();
+        while (true) {
+            int[] next = new int[n];
+            for (int c = 0; c < n; c++) {
+                next[c] = names.computeIfAbsent(Signature(c, colors), k -> names.size());
+            }
+            int nextCount = (int) Arrays.stream(next).distinct().count();
+            colors = next;
+            if (nextCount == count) return colors;
+            count = nextCount;
+        }
+    }
+
+    private String Signature(int c, int[] colors) {
+        var sb = new StringBuilder().append(colors[c]);
+        sb.append("|out").append(SortedColors(successors[c], colors));
+        sb.append("|in").append(SortedColors(predecessors[c], colors));
+        if (platform.host[c] >= 0) sb.append("|host").append(colors[platform.host[c]]);
+        sb.append("|runtimes").append(SortedColors(runtimes[c], colors));
+        if (platform.kinds[c] == Kind.SWITCH && platform.HasRoutes(c)) {
+            List<String> turns = new ArrayList<>();
+            for (int u = predecessors[c].nextSetBit(0); u >= 0; u = predecessors[c].nextSetBit(u + 1)) {
+                for (int w = successors[c].nextSetBit(0); w >= 0; w = successors[c].nextSetBit(w + 1)) {
+                    if (platform.CanForward(c, u, w)) turns.add(colors[u] + ">" + colors[w]);
+                }
+            }
+            Collections.sort(turns);
+            sb.append("|routes").append(turns);
+        }
+        return sb.toString();
+    }
+
+    private static String SortedColors(BitSet members, int[] colors) {
+        int[] list = members.stream().map(m -> colors[m]).sorted().toArray();
+        return Arrays.toString(list);
+    }
+
+    /**
+     * Build an automorphism mapping a to b by individualization and
+     * refinement, and verify it.
+     * @return The automorphism, null if none was found.
+     */
+    private int[] Automorphism(int[] stable, Map<String, Integer> names, int a, int b) {
+        int[] left = stable.clone();
+        int[] right = stable.clone();
+        int u = a, v = b;
+        while (u >= 0) {
+            int mark = names.computeIfAbsent("individual" + names.size(), k -> names.size());
+            left[u] = mark;
+            right[v] = mark;
+            left = Refine(left, names);
+            right = Refine(right, names);
+            // the same colors must occur equally often on both sides
+            int[] l = left.clone(), r = right.clone();
+            Arrays.sort(l);
+            Arrays.sort(r);
+            if (!Arrays.equals(l, r)) return null;
+            Map<Integer, Integer> sizes = new HashMap<>();
+            for (int c : left) sizes.merge(c, 1, Integer::sum);
+            u = -1;
+            for (int c = 0; c < n && u < 0; c++) {
+                if (sizes.get(left[c]) > 1) u = c;
+            }
+            if (u >= 0) {
+                for (int c = 0; c < n; c++) {
+                    if (right[c] == left[u]) {
+                        v = c;
+                        break;
+                    }
+                }
+            }
+        }
+        int[] phi = new int[n];
+        Map<Integer, Integer> image = new HashMap<>();
+        for (int c = 0; c < n; c++) image.put(right[c], c);
+        for (int c = 0; c < n; c++) phi[c] = image.get(left[c]);
+        return IsAutomorphism(phi) ? phi : null;
+    }
+
+    private boolean IsAutomorphism(int[] phi) {
+        Map<String, Integer> names = new HashMap<>();
+        int[] initial = InitialColors(names);
+        for (int c = 0; c < n; c++) {
+            if (initial[c] != initial[phi[c]]) return false;
+            int host = platform.host[c];
+            if ((host < 0) != (platform.host[phi[c]] < 0)) return false;
+            if (host >= 0 && phi[host] != platform.host[phi[c]]) return false;
+            for (int d = successors[c].nextSetBit(0); d >= 0; d = successors[c].nextSetBit(d + 1)) {
+                if (!successors[phi[c]].get(phi[d])) return false;
+            }
+            if (successors[c].cardinality() != successors[phi[c]].cardinality()) return false;
+            if (platform.kinds[c] != Kind.SWITCH) continue;
+            if (platform.HasRoutes(c) != platform.HasRoutes(phi[c])) return false;
+            for (int x = predecessors[c].nextSetBit(0); x >= 0; x = predecessors[c].nextSetBit(x + 1)) {
+                for (int y = successors[c].nextSetBit(0); y >= 0; y = successors[c].nextSetBit(y + 1)) {
+                    if (platform.CanForward(c, x, y) != platform.CanForward(phi[c], phi[x], phi[y])) return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the groups of interchangeable components with more than one
+     * member, e.g. the cores of a CPU.
+     * @return The orbits as component ids, each sorted.
+     */
+    public List<List<Integer>> Orbits() {
+        Map<Integer, List<Integer>> groups = new TreeMap<>();
+        for (int c = 0; c < n; c++) groups.computeIfAbsent(Find(c), k -> new ArrayList<>()).add(c);
+        return groups.values().stream().filter(g -> g.size() > 1).toList();
+    }
+
+    /**
+     * Get the number of verified generator automorphisms.
+     */
+    public int Generators() {
+        return generators.size();
+    }
+
+    /**
+     * Get log10 of the factor by which symmetric mappings repeat, bounded by
+     * the permutations of every orbit of processing units.
+     */
+    public double ReductionLog10() {
+        double log10 = 0;
+        for (List<Integer> o : Orbits()) {
+            Kind kind = platform.kinds[o.get(0)];
+            if (kind != Kind.PROCESSOR && kind != Kind.FPGA) continue;
+            for (int k = 2; k <= o.size(); k++) log10 += Math.log10(k);
+        }
+        return log10;
+    }
+
+    /**
+     * Apply an automorphism to an assignment of components (-1 unassigned).
+     */
+    private static int[] Apply(int[] phi, int[] assignment) {
+        int[] image = new int[assignment.length];
+        for (int i = 0; i < assignment.length; i++) {
+            image[i] = assignment[i] < 0 ? -1 : phi[assignment[i]];
+        }
+        return image;
+    }
+
+    /**
+     * Expand an assignment (e.g. the processors of the actors followed by
+     * the memories of the channels) to the symmetric assignments, by closing
+     * it under the verified automorphisms.
+     * @param assignment Component id per actor/channel, -1 for none.
+     * @param limit The maximum number of assignments to return.
+     * @return The distinct assignments, the given one first.
+     */
+    public List<int[]> Expand(int[] assignment, int limit) {
+        List<int[]> expanded = new ArrayList<>();
+        Set<List<Integer>> seen = new HashSet<>();
+        var queue = new ArrayDeque<int[]>();
+        queue.add(assignment);
+        seen.add(Arrays.stream(assignment).boxed().toList());
+        while (!queue.isEmpty() && expanded.size() < limit) {
+            int[] current = queue.poll();
+            expanded.add(current);
+            for (int[] phi : generators) {
+                int[] image = Apply(phi, current);
+                if (seen.add(Arrays.stream(image).boxed().toList())) queue.add(image);
+            }
+        }
+        return expanded;
+    }
+
+    /**
+     * Get the canonical representative of an assignment: the
+     * lexicographically smallest among its symmetric assignments found
+     * within the limit, so symmetric solutions compare equal.
+     * @param assignment Component id per actor/channel, -1 for none.
+     * @param limit The maximum number of symmetric assignments to compare.
+     * @return The representative.
+     */
+    public int[] Canonical(int[] assignment, int limit) {
+        int[] best = assignment;
+        for (int[] candidate : Expand(assignment, limit)) {
+            if (Arrays.compare(candidate, best) < 0) best = candidate;
+        }
+        return best;
+    }
+
+    /**
+     * Describe the orbits and the symmetry breaking rule: within an orbit,
+     * a mapping only needs to use a component if it uses all components
+     * listed before it.
+     * @return The report, one line per orbit.
+     */
+    public String Report() {
+        var sb = new StringBuilder();
+        sb.append("Verified automorphisms: ").append(generators.size()).append('\n');
+        for (List<Integer> o : Orbits()) {
+            sb.append("Interchangeable ").append(platform.kinds[o.get(0)]).append(": ");
+            sb.append(String.join(" < ", o.stream().map(c -> platform.names[c]).toList())).append('\n');
+        }
+        sb.append(String.format(
+            "Symmetric mappings repeat up to 10^%.1f times (not restricted in the DSE)%n", ReductionLog10()
+        ));
+        return sb.toString();
+    }
+}
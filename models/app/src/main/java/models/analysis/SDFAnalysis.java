@@ -0,0 +1,297 @@
+// MIT License
+
+// Copyright (c) 2024 Saab AB
+
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+
+package models.analysis;
+
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import models.application_model.ApplicationIR;
+
+
+/**
+ * Consistency and deadlock analysis of an SDF application. The balance
+ * equations q[src] * production = q[dst] * consumption are solved with exact
+ * (BigInteger) fractions per connected component, giving the smallest
+ * repetition vector. A complete iteration is then simulated from the initial
+ * tokens, firing every enabled actor as many times as its input tokens
+ * allow at once, so large rates cost one step instead of one per firing.
+ * <p>
+ * Channels without producer or consumer are inputs/outputs of the
+ * application and don't constrain it.
+ */
+public class SDFAnalysis {
+    private final ApplicationIR ir;
+    private final BigInteger[] repetitions;
+    private String inconsistency = null;
+    private BigInteger[] remaining = null;
+    private BigInteger[] tokens = null;
+
+    /**
+     * Analyze an application.
+     * @param ir The application.
+     */
+    public SDFAnalysis(ApplicationIR ir) {
+        this.ir = ir;
+        this.repetitions = new BigInteger[ir.NumActors()];
+        SolveBalanceEquations();
+        if (inconsistency == null) Simulate();
+    }
+
+    private boolean Internal(int c) {
+        return ir.channelSrc[c] >= 0 && ir.channelDst[c] >= 0;
+    }
+
+    /**
+     * Propagate firing rates as reduced fractions num/den through each
+     * connected component, then scale them to the smallest integers.
+     */
+    private void SolveBalanceEquations() {
+        int n = ir.NumActors();
+        BigInteger[] num = new BigInteger[n];
+        BigInteger[] den = new BigInteger[n];
+        int[] queue = new int[n];
+        for (int root = 0; root < n; root++) {
+            if (num[root] != null) continue;
+            num[root] = BigInteger.ONE;
+            den[root] = BigInteger.ONE;
+            int head = 0, tail = 0;
+            queue[tail++] = root;
+            while (head < tail) {
+                int a = queue[head++];
+                for (int i = ir.outOffsets[a]; i < ir.outOffsets[a + 1]; i++) {
+                    tail = Visit(ir.outChannels[i], ir.channelDst[ir.outChannels[i]], a, true, num, den, queue, tail);
+                }
+                for (int i = ir.inOffsets[a]; i < ir.inOffsets[a + 1]; i++) {
+                    tail = Visit(ir.inChannels[i], ir.channelSrc[ir.inChannels[i]], a, false, num, den, queue, tail);
+                }
+                if (inconsistency != null) return;
+            }
+
+            // scale the component to the smallest integer solution
+            BigInteger lcm = BigInteger.ONE;
+            for (int i = 0; i < tail; i++) {
+                BigInteger d = den[queue[i]];
+                lcm = lcm.divide(lcm.gcd(d)).multiply(d);
+            }
+            BigInteger gcd = BigInteger.ZERO;
+            for (int i = 0; i < tail; i++) {
+                int a = queue[i];
+                repetitions[a] = num[a].multiply(lcm).divide(den[a]);
+                gcd = gcd.gcd(repetitions[a]);
+            }
+            for (int i = 0; i < tail; i++) repetitions[queue[i]] = repetitions[queue[i]].divide(gcd);
+        }
+
+        for (int c = 0; c < ir.NumChannels(); c++) {
+            if (!Internal(c)) continue;
+            BigInteger produced = repetitions[ir.channelSrc[c]].multiply(BigInteger.valueOf(ir.production[c]));
+            BigInteger consumed = repetitions[ir.channelDst[c]].multiply(BigInteger.valueOf(ir.consumption[c]));
+            if (!produced.equals(consumed)) {
+                inconsistency = "Channel '" + ir.ChannelName(c) + "' receives " + produced +
+                    " tokens but loses " + consumed + " per iteration";
+                return;
+            }
+        }
+    }
+
+    /**
+     * Derive the rate of the actor at the other end of a channel, or check
+     * it if that actor was already reached.
+     * @return The new tail of the queue.
+     */
+    private int Visit(
+        int c, int other, int a, boolean outgoing,
+        BigInteger[] num, BigInteger[] den, int[] queue, int tail
+    ) {
+        if (other < 0 || inconsistency != null) return tail;
+        if (ir.production[c] <= 0 || ir.consumption[c] <= 0) {
+            inconsistency = "Channel '" + ir.ChannelName(c) + "' has a non-positive rate";
+            return tail;
+        }
+        // q[other] = q[a] * production / consumption, or the reverse
+        BigInteger mul = BigInteger.valueOf(outgoing ? ir.production[c] : ir.consumption[c]);
+        BigInteger div = BigInteger.valueOf(outgoing ? ir.consumption[c] : ir.production[c]);
+        BigInteger n = num[a].multiply(mul);
+        BigInteger d = den[a].multiply(div);
+        BigInteger g = n.gcd(d);
+        n = n.divide(g);
+        d = d.divide(g);
+        if (num[other] == null) {
+            num[other] = n;
+            den[other] = d;
+            queue[tail++] = other;
+        } else if (!num[other].equals(n) || !den[other].equals(d)) {
+            inconsistency = "Rates of channel '" + ir.ChannelName(c) + "' contradict the rates of '" +
+                ir.ActorName(a) + "' and '" + ir.ActorName(other) + "'";
+        }
+        return tail;
+    }
+
+    /**
+     * Execute one iteration from the initial tokens. Firing never disables
+     * another actor, so firing every enabled actor as far as possible
+     * completes the iteration iff the application is deadlock free.
+     */
+    private void Simulate() {
+        int n = ir.NumActors();
+        remaining = Arrays.copyOf(repetitions, n);
+        tokens = new BigInteger[ir.NumChannels()];
+        for (int c = 0; c < tokens.length; c++) tokens[c] = BigInteger.valueOf(ir.initialTokens[c]);
+
+        var ready = new ArrayDeque<Integer>(n);
+        boolean[] queued = new boolean[n];
+        for (int a = 0; a < n; a++) {
+            ready.add(a);
+            queued[a] = true;
+        }
+        while (!ready.isEmpty()) {
+            int a = ready.poll();
+            queued[a] = false;
+            BigInteger k = Firable(a);
+            if (k.signum() == 0) continue;
+
+            remaining[a] = remaining[a].subtract(k);
+            for (int i = ir.inOffsets[a]; i < ir.inOffsets[a + 1]; i++) {
+                int c = ir.inChannels[i];
+                if (Internal(c)) tokens[c] = tokens[c].subtract(k.multiply(BigInteger.valueOf(ir.consumption[c])));
+            }
+            for (int i = ir.outOffsets[a]; i < ir.outOffsets[a + 1]; i++) {
+                int c = ir.outChannels[i];
+                if (!Internal(c)) continue;
+                tokens[c] = tokens[c].add(k.multiply(BigInteger.valueOf(ir.production[c])));
+                int dst = ir.channelDst[c];
+                if (!queued[dst]) {
+                    ready.add(dst);
+                    queued[dst] = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Get how many times an actor can fire in a row with the current tokens.
+     */
+    private BigInteger Firable(int a) {
+        BigInteger k = remaining[a];
+        for (int i = ir.inOffsets[a]; i < ir.inOffsets[a + 1] && k.signum() > 0; i++) {
+            int c = ir.inChannels[i];
+            if (!Internal(c)) continue;
+            BigInteger cons = BigInteger.valueOf(ir.consumption[c]);
+            if (tokens[c].compareTo(cons) < 0) return BigInteger.ZERO;
+            if (ir.channelSrc[c] != a) {
+                k = k.min(tokens[c].divide(cons));
+            } else if (ir.production[c] < ir.consumption[c]) {
+                // a self-loop loses consumption - production tokens per firing
+                BigInteger loss = BigInteger.valueOf(ir.consumption[c] - ir.production[c]);
+                k = k.min(tokens[c].subtract(cons).divide(loss).add(BigInteger.ONE));
+            }
+        }
+        return k;
+    }
+
+    public boolean IsConsistent() {
+        return inconsistency == null;
+    }
+
+    /**
+     * Get why the application is inconsistent.
+     * @return The first contradicting channel, null if consistent.
+     */
+    public String Inconsistency() {
+        return inconsistency;
+    }
+
+    /**
+     * Get the repetition vector.
+     * @return The firings of each actor per iteration, null if inconsistent.
+     */
+    public BigInteger[] Repetitions() {
+        return IsConsistent() ? repetitions.clone() : null;
+    }
+
+    /**
+     * Get the firings of an actor per iteration.
+     * @param actor The actor id.
+     * @return The repetitions.
+     * @throws ArithmeticException If they don't fit a long.
+     * @throws IllegalStateException If the application is inconsistent.
+     */
+    public long Repetitions(int actor) {
+        if (!IsConsistent()) throw new IllegalStateException(inconsistency);
+        return repetitions[actor].longValueExact();
+    }
+
+    /**
+     * Check if a complete iteration can execute from the initial tokens.
+     * @return True if consistent and deadlock free.
+     */
+    public boolean IsDeadlockFree() {
+        if (!IsConsistent()) return false;
+        for (BigInteger r : remaining) {
+            if (r.signum() > 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Get the actors that can't complete their firings of an iteration.
+     * @return The blocked actor ids, empty if deadlock free.
+     */
+    public List<Integer> BlockedActors() {
+        List<Integer> blocked = new ArrayList<>();
+        if (remaining == null) return blocked;
+        for (int a = 0; a < remaining.length; a++) {
+            if (remaining[a].signum() > 0) blocked.add(a);
+        }
+        return blocked;
+    }
+
+    /**
+     * Describe the result: the inconsistency, the blocked actors with the
+     * channels they starve on, or the repetition vector.
+     * @return The report, one line per finding.
+     */
+    public String Report() {
+        var sb = new StringBuilder();
+        if (!IsConsistent()) {
+            return sb.append("INCONSISTENT: ").append(inconsistency).append('\n').toString();
+        }
+        if (IsDeadlockFree()) {
+            sb.append("CONSISTENT, DEADLOCK FREE\n");
+        } else {
+            sb.append("DEADLOCK\n");
+            for (int a : BlockedActors()) {
+                sb.append("  blocked '").append(ir.ActorName(a)).append("' (")
+                    .append(remaining[a]).append(" of ").append(repetitions[a]).append(" firings left)");
+                for (int i = ir.inOffsets[a]; i < ir.inOffsets[a + 1]; i++) {
+                    int c = ir.inChannels[i];
+                    if (Internal(c) && tokens[c].compareTo(BigInteger.valueOf(ir.consumption[c])) < 0) {
+                        sb.append(" on '").append(ir.ChannelName(c)).append("' (")
+                            .append(tokens[c]).append('/').append(ir.consumption[c]).append(" tokens)");
+                    }
+                }
+                sb.append('\n');
+            }
+        }
+        sb.append("Repetition vector:\n");
+        for (int a = 0; a < repetitions.length; a++) {
+            sb.append("  ").append(ir.ActorName(a)).append(": ").append(repetitions[a]).append('\n');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,346 @@
+// MIT License
+
+// Copyright (c) 2024 Saab AB
+
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+
+package models.analysis;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+import models.application_model.ApplicationIR;
+
+
+/**
+ * Symbolic expansion of an SDF application to its homogeneous (HSDF)
+ * equivalent, represented by the max-plus matrix of one iteration instead of
+ * one node per firing. Every initial token of a channel has its own symbol,
+ * as does the token serializing the firings of an actor, and one iteration
+ * is executed with symbolic time stamps (MaxPlusVector) on run-length
+ * encoded token queues: consecutive tokens with the same stamp are one run,
+ * so a firing producing millions of tokens adds a single run.
+ * <p>
+ * The number of runs is bounded by three approximations: the newest runs of
+ * a queue beyond MAX_RUNS are merged, channels with more than
+ * MAX_TOKEN_SYMBOLS initial tokens share a symbol per group of tokens, and
+ * the firings of a batch of a serialized actor release their tokens when the
+ * last one ends.
+ * <p>
+ * A stamp holds a symbol for every initial token the token depends on, and
+ * with serialized actors every actor is such a token, so a chain of n actors
+ * would hold about n^2/2 entries in total. Stamps are therefore bounded to
+ * MAX_STAMP_SYMBOLS entries: the smallest ones are folded into a shared
+ * symbol that stands for the latest of all initial tokens, whose row is the
+ * maximum of all rows. This is the fourth approximation.
+ * <p>
+ * All of them only delay tokens, so the resulting period is an upper bound,
+ * and it is exact when Merges() is 0, e.g. for small applications firing
+ * every actor once per iteration.
+ */
+public class SymbolicHSDF {
+    /** Runs kept per channel before the newest ones are merged. */
+    public static final int MAX_RUNS = 64;
+    /** Initial tokens of a channel with their own symbol, more share them. */
+    public static final int MAX_TOKEN_SYMBOLS = MAX_RUNS / 2;
+    /** Entries of a stamp before the smallest ones are folded. */
+    public static final int MAX_STAMP_SYMBOLS = 256;
+
+    private record Run(long count, MaxPlusVector stamp) {}
+
+    private final ApplicationIR ir;
+    private final double[] firingTimes;
+    private final boolean serialize;
+    /** First symbol of the initial tokens of each channel, -1 without. */
+    private final int[] channelSymbol;
+    /** Initial tokens per symbol of each channel. */
+    private final long[] tokensPerSymbol;
+    /** Symbol of the serializing token of each actor, -1 if not serialized. */
+    private final int[] actorSymbol;
+    private final int numSymbols;
+    private final MaxPlusMatrix matrix;
+    private long merges = 0;
+    /** Whether any stamp was folded into the shared symbol numSymbols. */
+    private boolean folded = false;
+
+    /**
+     * Expand an application.
+     * @param ir The application.
+     * @param sdf Its analysis, which must be deadlock free.
+     * @param firingTimes Duration of a firing of each actor, e.g. in seconds.
+     * @param serialize Whether firings of an actor can't overlap (a self-loop
+     * with one token), otherwise they are auto-concurrent.
+     * @throws IllegalArgumentException If the application is inconsistent
+     * or deadlocks.
+     */
+    public SymbolicHSDF(ApplicationIR ir, SDFAnalysis sdf, double[] firingTimes, boolean serialize) {
+        if (!sdf.IsDeadlockFree()) {
+            throw new IllegalArgumentException(
+                "Can only expand consistent, deadlock free applications"
+            );
+        }
+        this.ir = ir;
+        this.firingTimes = firingTimes;
+        this.serialize = serialize;
+        this.channelSymbol = new int[ir.NumChannels()];
+        this.tokensPerSymbol = new long[ir.NumChannels()];
+        this.actorSymbol = new int[ir.NumActors()];
+        int symbols = 0;
+        for (int c = 0; c < channelSymbol.length; c++) {
+            channelSymbol[c] = -1;
+            long initial = ir.initialTokens[c];
+            if (!Internal(c) || initial == 0) continue;
+            tokensPerSymbol[c] = (initial + MAX_TOKEN_SYMBOLS - 1) / MAX_TOKEN_SYMBOLS;
+            long groups = (initial + tokensPerSymbol[c] - 1) / tokensPerSymbol[c];
+            if (tokensPerSymbol[c] > 1) merges += initial - groups;
+            channelSymbol[c] = symbols;
+            symbols += groups;
+        }
+        for (int a = 0; a < actorSymbol.length; a++) {
+            actorSymbol[a] = serialize ? symbols++ : -1;
+        }
+        this.numSymbols = symbols;
+        this.matrix = Execute(sdf);
+    }
+
+    private boolean Internal(int c) {
+        return ir.channelSrc[c] >= 0 && ir.channelDst[c] >= 0;
+    }
+
+    /**
+     * Execute one iteration symbolically and collect the stamps of the
+     * initial tokens at its end as the rows of the matrix.
+     */
+    private MaxPlusMatrix Execute(SDFAnalysis sdf) {
+        int n = ir.NumActors();
+        long[] remaining = new long[n];
+        for (int a = 0; a < n; a++) remaining[a] = sdf.Repetitions(a);
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        ArrayDeque<Run>[] queues = new ArrayDeque[ir.NumChannels()];
+        long[] tokens = new long[queues.length];
+        for (int c = 0; c < queues.length; c++) {
+            queues[c] = new ArrayDeque<>();
+            if (channelSymbol[c] < 0) continue;
+            tokens[c] = ir.initialTokens[c];
+            for (long t = 0, symbol = channelSymbol[c]; t < tokens[c]; t += tokensPerSymbol[c], symbol++) {
+                long count = Math.min(tokensPerSymbol[c], tokens[c] - t);
+                queues[c].add(new Run(count, MaxPlusVector.Unit((int) symbol)));
+            }
+        }
+        MaxPlusVector[] last = new MaxPlusVector[n];
+        for (int a = 0; a < n; a++) {
+            last[a] = serialize ? MaxPlusVector.Unit(actorSymbol[a]) : MaxPlusVector.EMPTY;
+        }
+
+        var ready = new ArrayDeque<Integer>(n);
+        boolean[] queued = new boolean[n];
+        for (int a = 0; a < n; a++) {
+            ready.add(a);
+            queued[a] = true;
+        }
+        while (!ready.isEmpty()) {
+            int a = ready.poll();
+            queued[a] = false;
+            long k = remaining[a];
+            for (int i = ir.inOffsets[a]; i < ir.inOffsets[a + 1]; i++) {
+                int c = ir.inChannels[i];
+                if (Internal(c)) k = Math.min(k, tokens[c] / ir.consumption[c]);
+            }
+            if (k <= 0) continue;
+            remaining[a] -= k;
+            Fire(a, k, queues, tokens, last);
+            for (int i = ir.outOffsets[a]; i < ir.outOffsets[a + 1]; i++) {
+                int c = ir.outChannels[i];
+                if (!Internal(c) || queued[ir.channelDst[c]]) continue;
+                ready.add(ir.channelDst[c]);
+                queued[ir.channelDst[c]] = true;
+            }
+        }
+
+        // an iteration restores the initial tokens, the i-th token left
+        // in a queue takes the place of the i-th initial token
+        MaxPlusVector[] rows = new MaxPlusVector[numSymbols + 1];
+        for (int c = 0; c < queues.length; c++) {
+            if (channelSymbol[c] < 0) continue;
+            int symbol = channelSymbol[c];
+            long filled = 0;
+            MaxPlusVector row = MaxPlusVector.EMPTY;
+            for (Run r : queues[c]) {
+                long left = r.count();
+                while (left > 0) {
+                    long take = Math.min(left, tokensPerSymbol[c] - filled);
+                    row = MaxPlusVector.Max(row, r.stamp());
+                    left -= take;
+                    filled += take;
+                    if (filled == tokensPerSymbol[c]) {
+                        rows[symbol++] = Bound(row);
+                        row = MaxPlusVector.EMPTY;
+                        filled = 0;
+                    }
+                }
+            }
+            if (filled > 0) rows[symbol] = Bound(row);
+        }
+        for (int a = 0; a < n; a++) {
+            if (actorSymbol[a] >= 0) rows[actorSymbol[a]] = last[a];
+        }
+        if (!folded) return new MaxPlusMatrix(Arrays.copyOf(rows, numSymbols));
+        // the shared symbol is the latest of all initial tokens
+        MaxPlusVector shared = MaxPlusVector.EMPTY;
+        for (int i = 0; i < numSymbols; i++) shared = MaxPlusVector.Max(shared, rows[i]);
+        rows[numSymbols] = shared;
+        return new MaxPlusMatrix(rows);
+    }
+
+    /**
+     * Fire an actor k times, in batches of firings that read their tokens
+     * from the same runs and thus share their start stamp.
+     */
+    private void Fire(int a, long k, ArrayDeque<Run>[] queues, long[] tokens, MaxPlusVector[] last) {
+        double time = firingTimes[a];
+        while (k > 0) {
+            long batch = k;
+            for (int i = ir.inOffsets[a]; i < ir.inOffsets[a + 1]; i++) {
+                int c = ir.inChannels[i];
+                if (!Internal(c)) continue;
+                batch = Math.min(batch, queues[c].peek().count() / ir.consumption[c]);
+            }
+            // a firing reading across runs is a batch of its own
+            batch = Math.max(batch, 1);
+
+            MaxPlusVector start = last[a];
+            for (int i = ir.inOffsets[a]; i < ir.inOffsets[a + 1]; i++) {
+                int c = ir.inChannels[i];
+                if (!Internal(c)) continue;
+                long take = Math.multiplyExact(batch, (long) ir.consumption[c]);
+                tokens[c] -= take;
+                while (take > 0) {
+                    Run head = queues[c].poll();
+                    start = MaxPlusVector.Max(start, head.stamp());
+                    if (head.count() > take) {
+                        queues[c].addFirst(new Run(head.count() - take, head.stamp()));
+                        take = 0;
+                    } else {
+                        take -= head.count();
+                    }
+                }
+            }
+            MaxPlusVector end = Bound(start).Shift(serialize ? batch * time : time);
+            if (serialize) {
+                last[a] = end;
+                // all but the last firing release their tokens late
+                merges += batch - 1;
+            }
+
+            for (int i = ir.outOffsets[a]; i < ir.outOffsets[a + 1]; i++) {
+                int c = ir.outChannels[i];
+                if (!Internal(c)) continue;
+                long put = Math.multiplyExact(batch, (long) ir.production[c]);
+                tokens[c] += put;
+                Append(queues[c], new Run(put, end));
+            }
+            k -= batch;
+        }
+    }
+
+    /**
+     * Append a run, joining it with the last run if they have the same
+     * stamp and merging the newest runs beyond MAX_RUNS.
+     */
+    private void Append(ArrayDeque<Run> queue, Run run) {
+        Run tail = queue.peekLast();
+        if (tail != null && (tail.stamp().equals(run.stamp()) || queue.size() >= MAX_RUNS)) {
+            queue.pollLast();
+            if (!tail.stamp().equals(run.stamp())) merges++;
+            run = new Run(tail.count() + run.count(), Bound(MaxPlusVector.Max(tail.stamp(), run.stamp())));
+        }
+        queue.addLast(run);
+    }
+
+    /**
+     * Fold the smallest entries of a stamp beyond MAX_STAMP_SYMBOLS into the
+     * shared symbol, counting every folded entry as a merge.
+     */
+    private MaxPlusVector Bound(MaxPlusVector stamp) {
+        if (stamp.indices.length <= MAX_STAMP_SYMBOLS) return stamp;
+        merges += stamp.indices.length - MAX_STAMP_SYMBOLS + 1;
+        folded = true;
+        return stamp.Fold(MAX_STAMP_SYMBOLS, numSymbols);
+    }
+
+    /**
+     * Get the max-plus matrix of one iteration over the initial token
+     * symbols (the initial tokens of each channel in order, then the
+     * serialized actors, then the shared symbol if any stamp was folded).
+     */
+    public MaxPlusMatrix Matrix() {
+        return matrix;
+    }
+
+    /**
+     * Get the period of an iteration in self-timed execution.
+     * @return The period, 0 if the iterations don't depend on each other.
+     */
+    public double Period() {
+        return Math.max(0.0, matrix.MaximumCycleMean());
+    }
+
+    /**
+     * Get the throughput in iterations per time unit.
+     * @return The throughput, infinite if the period is 0.
+     */
+    public double Throughput() {
+        double period = Period();
+        return period == 0.0 ? Double.POSITIVE_INFINITY : 1.0 / period;
+    }
+
+    /**
+     * Get how often tokens were delayed by the approximations: runs with
+     * different stamps that were merged, initial tokens sharing a symbol
+     * with another, firings of a serialized batch but the last and stamp
+     * entries folded into the shared symbol.
+     * @return The number of approximations, 0 means the period is exact.
+     */
+    public long Merges() {
+        return merges;
+    }
+
+    /**
+     * Get the firing times of an application from a single, unmapped
+     * estimate: the software instructions of every actor executed at one
+     * instruction per cycle at the given frequency, or its hardware latency
+     * for hardware-only actors.
+     * @param ir The application.
+     * @param frequencyInHertz The assumed processor frequency.
+     * @return The firing time of each actor in seconds.
+     */
+    public static double[] UnmappedFiringTimes(ApplicationIR ir, long frequencyInHertz) {
+        double[] times = new double[ir.NumActors()];
+        int types = ir.instructionTypes.length;
+        for (int a = 0; a < times.length; a++) {
+            if (ir.HasSoftware(a)) {
+                long instructions = 0;
+                for (int t = 0; t < types; t++) instructions += ir.swInstructions[a * types + t];
+                times[a] = (double) instructions / frequencyInHertz;
+            } else if (ir.HasHardware(a) && ir.hwLatencyDenominator[a] != 0) {
+                times[a] = (double) ir.hwLatencyNumerator[a] / ir.hwLatencyDenominator[a];
+            }
+        }
+        return times;
+    }
+
+    @Override
+    public String toString() {
+        return "SymbolicHSDF[symbols=" + numSymbols + ", entries=" + matrix.NonZeros() +
+            ", merges=" + merges + ", period=" + Period() + "]";
+    }
+}
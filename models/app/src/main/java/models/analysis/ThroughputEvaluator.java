@@ -0,0 +1,349 @@
+// MIT License
+
+// Copyright (c) 2024 Saab AB
+
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+
+package models.analysis;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+import forsyde.io.core.SystemGraph;
+import forsyde.io.core.Vertex;
+import forsyde.io.lib.hierarchy.ForSyDeHierarchy.LogicProgrammableSynthetized;
+import forsyde.io.lib.hierarchy.ForSyDeHierarchy.MemoryMapped;
+import forsyde.io.lib.hierarchy.ForSyDeHierarchy.Scheduled;
+import models.application_model.ApplicationIR;
+import models.platform_model.PlatformIR;
+import models.platform_model.PlatformIR.Kind;
+
+
+/**
+ * Analytical steady-state throughput of an application mapped onto a
+ * platform, computed in-process instead of read from the AnalyzedBehavior
+ * of a DSE solution. A firing of an actor takes its compute time on the
+ * processor (instructions / (instructions per cycle * frequency)) or its
+ * latency on the FPGA, plus the time to read its input tokens from and
+ * write its output tokens to the memories of the channels over the fastest
+ * routes of the CommunicationMatrix. The period of an
+ * iteration is the larger of
+ * <p>
+ * - the maximum cycle mean of the symbolic HSDF expansion with these firing
+ * times and serialized actors, and
+ * <p>
+ * - the load of the busiest processor (repetitions * firing time of its
+ * actors), as actors mapped to one processor share it.
+ * <p>
+ * Everything that doesn't depend on the mapping (repetition vector,
+ * firing times per processor) is computed once, so a mapping is scored in
+ * time linear in the application plus the expansion.
+ */
+public class ThroughputEvaluator {
+
+    /**
+     * Where actors execute and channels are stored, as platform component
+     * ids of a PlatformIR, -1 if not mapped. Every actor and every channel
+     * between two actors must be mapped for the mapping to be feasible.
+     * @param processor The PROCESSOR or FPGA of each actor.
+     * @param channelMemory The MEMORY of each channel.
+     */
+    public record Mapping(int[] processor, int[] channelMemory) {
+
+        /**
+         * Read the mapping of a DSE solution: actors scheduled on a runtime
+         * execute on the processor it manages, synthesized actors on their
+         * FPGA, and memory mapped channels are stored in their memory.
+         * @param solution The solution graph.
+         * @param app The application, e.g. built from the solution.
+         * @param platform The platform, e.g. built from the solution.
+         * @return The mapping.
+         */
+        public static Mapping FromSolution(SystemGraph solution, ApplicationIR app, PlatformIR platform) {
+            int[] processor = new int[app.NumActors()];
+            int[] memory = new int[app.NumChannels()];
+            Arrays.fill(processor, -1);
+            Arrays.fill(memory, -1);
+            for (Vertex v : solution.vertexSet()) {
+                String name = v.getIdentifier();
+                int actor = app.ActorId(name);
+                if (actor >= 0) {
+                    var s = Scheduled.tryView(solution, v);
+                    if (s.isPresent()) {
+                        int runtime = platform.Id(s.get().runtimeHost().getIdentifier());
+                        if (runtime >= 0) processor[actor] = platform.host[runtime];
+                    }
+                    var lps = LogicProgrammableSynthetized.tryView(solution, v);
+                    if (lps.isPresent()) {
+                        processor[actor] = platform.Id(
+                            lps.get().hostLogicProgrammableModule().getIdentifier()
+                        );
+                    }
+                }
+                int channel = app.ChannelId(name);
+                if (channel >= 0) {
+                    var mm = MemoryMapped.tryView(solution, v);
+                    if (mm.isPresent()) memory[channel] = platform.Id(mm.get().mappingHost().getIdentifier());
+                }
+            }
+            return new Mapping(processor, memory);
+        }
+    }
+
+    /**
+     * The evaluation of a mapping.
+     * @param period Seconds per iteration, infinite if infeasible.
+     * @param cycleMean The period bound of the expansion.
+     * @param load The busy time per iteration of each platform component.
+     * @param reason Why the mapping is infeasible, null if feasible.
+     */
+    public record Result(double period, double cycleMean, double[] load, String reason) {
+        public boolean Feasible() {
+            return reason == null;
+        }
+
+        /**
+         * Get the iterations per second.
+         */
+        public double Throughput() {
+            return period == 0.0 ? Double.POSITIVE_INFINITY : 1.0 / period;
+        }
+    }
+
+    private final ApplicationIR app;
+    private final PlatformIR platform;
+    private final SDFAnalysis sdf;
+    private final long[] repetitions;
+    /** Firing time of actor a on component p at computeTime[a * n + p], infinite if it can't run there. */
+    private final double[] computeTime;
+    private final CommunicationMatrix communication;
+
+    /**
+     * Prepare the evaluation of mappings of an application onto a platform.
+     * @param app The application.
+     * @param platform The platform.
+     * @throws IllegalArgumentException If the application is inconsistent
+     * or deadlocks.
+     */
+    public ThroughputEvaluator(ApplicationIR app, PlatformIR platform) {
+        this.app = app;
+        this.platform = platform;
+        this.sdf = new SDFAnalysis(app);
+        if (!sdf.IsDeadlockFree()) {
+            throw new IllegalArgumentException(
+                "Application is inconsistent or deadlocks: " + sdf.Report()
+            );
+        }
+        this.repetitions = new long[app.NumActors()];
+        for (int a = 0; a < repetitions.length; a++) repetitions[a] = sdf.Repetitions(a);
+        this.computeTime = ComputeTimes(app, platform);
+        this.communication = CommunicationMatrix.Of(platform);
+    }
+
+    /**
+     * Get the firing time of every actor on every component, without
+     * communication.
+     * @return The seconds of actor a on component p at [a * platform.Size() + p],
+     * infinite if the actor has no implementation the component can execute.
+     */
+    static double[] ComputeTimes(ApplicationIR app, PlatformIR platform) {
+        int n = platform.Size();
+        int types = app.instructionTypes.length;
+        int[] platformType = new int[types];
+        for (int t = 0; t < types; t++) {
+            platformType[t] = Arrays.asList(platform.instructionTypes).indexOf(app.instructionTypes[t]);
+        }
+        double[] times = new double[app.NumActors() * n];
+        Arrays.fill(times, Double.POSITIVE_INFINITY);
+        for (int a = 0; a < app.NumActors(); a++) {
+            for (int p = 0; p < n; p++) {
+                if (platform.kinds[p] == Kind.PROCESSOR && app.HasSoftware(a)) {
+                    double cycles = 0;
+                    for (int t = 0; t < types && cycles < Double.POSITIVE_INFINITY; t++) {
+                        long instructions = app.swInstructions[a * types + t];
+                        if (instructions == 0) continue;
+                        double ipc = platformType[t] < 0 ? 0
+                            : platform.instructionsPerCycle[p * platform.instructionTypes.length + platformType[t]];
+                        cycles = ipc > 0 ? cycles + instructions / ipc : Double.POSITIVE_INFINITY;
+                    }
+                    if (platform.frequencyInHertz[p] > 0) times[a * n + p] = cycles / platform.frequencyInHertz[p];
+                } else if (platform.kinds[p] == Kind.FPGA && app.HasHardware(a)
+                        && app.hwLatencyDenominator[a] != 0) {
+                    times[a * n + p] = (double) app.hwLatencyNumerator[a] / app.hwLatencyDenominator[a];
+                }
+            }
+        }
+        return times;
+    }
+
+    /**
+     * Build a mapping without a DSE, e.g. to compare application variants.
+     * Actors are placed in decreasing order of their smallest work per
+     * iteration on the component that finishes them earliest: the least
+     * loaded processor, or an FPGA with logic area left as hardware actors
+     * don't share it in time. Each channel is then stored in the memory with
+     * space left that is fastest to write from its producer and read from
+     * its consumer.
+     * @return The mapping, actors that can't be placed are -1.
+     */
+    public Mapping GreedyMapping() {
+        int n = platform.Size();
+        int actors = app.NumActors();
+        double[] work = new double[actors];
+        for (int a = 0; a < actors; a++) {
+            work[a] = Double.POSITIVE_INFINITY;
+            for (int p = 0; p < n; p++) work[a] = Math.min(work[a], repetitions[a] * computeTime[a * n + p]);
+        }
+        int[] order = IntStream.range(0, actors).boxed()
+            .sorted(Comparator.comparingDouble(a -> -work[a]))
+            .mapToInt(Integer::intValue)
+            .toArray();
+
+        int[] processor = new int[actors];
+        double[] load = new double[n];
+        long[] area = new long[n];
+        for (int a : order) {
+            int best = -1;
+            double bestFinish = Double.POSITIVE_INFINITY;
+            for (int p = 0; p < n; p++) {
+                double time = repetitions[a] * computeTime[a * n + p];
+                if (time == Double.POSITIVE_INFINITY) continue;
+                if (platform.kinds[p] == Kind.FPGA && area[p] + app.hwArea[a] > platform.logicArea[p]) continue;
+                double finish = platform.kinds[p] == Kind.PROCESSOR ? load[p] + time : time;
+                if (finish < bestFinish) {
+                    best = p;
+                    bestFinish = finish;
+                }
+            }
+            processor[a] = best;
+            if (best < 0) continue;
+            if (platform.kinds[best] == Kind.PROCESSOR) load[best] = bestFinish;
+            else area[best] += app.hwArea[a];
+        }
+
+        int[] channelMemory = new int[app.NumChannels()];
+        long[] used = new long[n];
+        for (int c = 0; c < channelMemory.length; c++) {
+            int src = app.channelSrc[c] < 0 ? -1 : processor[app.channelSrc[c]];
+            int dst = app.channelDst[c] < 0 ? -1 : processor[app.channelDst[c]];
+            long bits = (Math.max(app.production[c], app.consumption[c]) + app.initialTokens[c])
+                * app.tokenSizeInBits[c];
+            channelMemory[c] = -1;
+            double bestTime = Double.POSITIVE_INFINITY;
+            for (int m = 0; m < n; m++) {
+                if (platform.kinds[m] != Kind.MEMORY || used[m] + bits > platform.spaceInBits[m]) continue;
+                double time = (src < 0 ? 0 : communication.TransferTime(src, m, app.production[c] * app.tokenSizeInBits[c]))
+                    + (dst < 0 ? 0 : communication.TransferTime(m, dst, app.consumption[c] * app.tokenSizeInBits[c]));
+                if (time < bestTime) {
+                    channelMemory[c] = m;
+                    bestTime = time;
+                }
+            }
+            if (channelMemory[c] >= 0) used[channelMemory[c]] += bits;
+        }
+        return new Mapping(processor, channelMemory);
+    }
+
+    /**
+     * Evaluate a mapping.
+     * @param mapping Where actors execute and channels are stored.
+     * @return The period and load, or why the mapping is infeasible.
+     */
+    public Result Evaluate(Mapping mapping) {
+        int n = platform.Size();
+        double[] firing = new double[app.NumActors()];
+        double[] load = new double[n];
+        long[] area = new long[n];
+        for (int a = 0; a < firing.length; a++) {
+            int p = mapping.processor()[a];
+            if (p < 0) return Infeasible(load, "Actor '" + app.ActorName(a) + "' is not mapped");
+            firing[a] = computeTime[a * n + p];
+            if (firing[a] == Double.POSITIVE_INFINITY) {
+                return Infeasible(load, "Actor '" + app.ActorName(a) + "' can't execute on '" + platform.names[p] + "'");
+            }
+            if (platform.kinds[p] == Kind.FPGA) area[p] += app.hwArea[a];
+        }
+        for (int p = 0; p < n; p++) {
+            if (platform.kinds[p] == Kind.FPGA && area[p] > platform.logicArea[p]) {
+                return Infeasible(load, "Actors exceed the logic area of '" + platform.names[p] + "'");
+            }
+        }
+
+        for (int c = 0; c < app.NumChannels(); c++) {
+            int src = app.channelSrc[c], dst = app.channelDst[c];
+            int mem = mapping.channelMemory()[c];
+            if (mem < 0) {
+                // channels at the boundary of the application need no buffer
+                if (src < 0 || dst < 0) continue;
+                return Infeasible(load, "Channel '" + app.ChannelName(c) + "' is not mapped");
+            }
+            if (src >= 0) {
+                firing[src] += communication.TransferTime(mapping.processor()[src], mem, app.production[c] * app.tokenSizeInBits[c]);
+            }
+            if (dst >= 0) {
+                firing[dst] += communication.TransferTime(mem, mapping.processor()[dst], app.consumption[c] * app.tokenSizeInBits[c]);
+            }
+        }
+        for (int a = 0; a < firing.length; a++) {
+            if (firing[a] == Double.POSITIVE_INFINITY) {
+                return Infeasible(load, "Channels of '" + app.ActorName(a) + "' are unreachable from its processor");
+            }
+            int p = mapping.processor()[a];
+            // hardware actors are separate circuits, they don't share the FPGA in time
+            if (platform.kinds[p] == Kind.PROCESSOR) load[p] += repetitions[a] * firing[a];
+        }
+
+        double cycleMean = new SymbolicHSDF(app, sdf, firing, true).Period();
+        double period = cycleMean;
+        for (double l : load) period = Math.max(period, l);
+        return new Result(period, cycleMean, load, null);
+    }
+
+    private static Result Infeasible(double[] load, String reason) {
+        return new Result(Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, load, reason);
+    }
+
+    /**
+     * Get the firings of an actor per iteration, to convert the throughput
+     * of iterations into firings per second.
+     */
+    public long Repetitions(int actor) {
+        return repetitions[actor];
+    }
+
+    /**
+     * Describe the evaluation of a mapping.
+     * @param mapping The evaluated mapping.
+     * @param result Its evaluation.
+     * @return The report, one line per actor and loaded component.
+     */
+    public String Report(Mapping mapping, Result result) {
+        var sb = new StringBuilder();
+        if (!result.Feasible()) {
+            return sb.append("INFEASIBLE: ").append(result.reason()).append('\n').toString();
+        }
+        sb.append("Period: ").append(result.period()).append(" s/iteration (cycle mean ")
+            .append(result.cycleMean()).append(" s)\n");
+        sb.append("Throughput: ").append(result.Throughput()).append(" iterations/s\n");
+        for (int a = 0; a < app.NumActors(); a++) {
+            sb.append("  ").append(app.ActorName(a)).append(" on ")
+                .append(platform.names[mapping.processor()[a]]).append(": ")
+                .append(repetitions[a] * result.Throughput()).append(" firings/s\n");
+        }
+        for (int p = 0; p < platform.Size(); p++) {
+            if (result.load()[p] == 0) continue;
+            sb.append("  load ").append(platform.names[p]).append(": ")
+                .append(result.load()[p] / result.period() * 100).append(" %\n");
+        }
+        return sb.toString();
+    }
+}
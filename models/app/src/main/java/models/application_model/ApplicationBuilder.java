@@ -36,6 +36,16 @@ public class ApplicationBuilder {
     private GreyBoxViewer greyBox;
     private Map<String, VertexViewer> viewers = new HashMap<>();
 
+	// pending changes of the bulk mode, null outside of it
+	private Map<String, LinkedHashMap<String, Integer>> pendingProd;
+	private Map<String, LinkedHashMap<String, Integer>> pendingCons;
+	private Map<String, List<String>> pendingPorts;
+	private List<PendingConnection> pendingConnections;
+
+	private record PendingConnection(
+		VertexViewer v1, VertexViewer v2, String v1ToV2Port, String v2ToV1Port
+	) {}
+
 	public ApplicationBuilder(String name) {
 		SystemGraph sGraph = new SystemGraph();
 
@@ -68,13 +78,110 @@ public class ApplicationBuilder {
 	}
 
 	/**
-	 * Get the current state of the application graph.
+	 * Get the current state of the application graph. Pending changes of the
+	 * bulk mode are committed first.
 	 * @return
 	 */
 	public SystemGraph GetGraph() {
+		if (InBulk()) CommitBulk();
 		return this.sGraph;
 	}
 
+	/**
+	 * Get the compact intermediate representation of the application for
+	 * analyses, committing pending bulk changes first.
+	 * @return The representation.
+	 */
+	public ApplicationIR ToIR() {
+		return ApplicationIR.FromGraph(GetGraph());
+	}
+
+	/**
+	 * Start the bulk mode: channels, input and output channels only record
+	 * their actor ports, rates and connections in plain collections until
+	 * CommitBulk, which writes every actor's production, consumption and
+	 * ports once. Without it each channel copies the full rate maps of both
+	 * actors, which is quadratic in the fan-out of an actor.
+	 */
+	public void BeginBulk() {
+		if (InBulk()) return;
+		this.pendingProd = new HashMap<>();
+		this.pendingCons = new HashMap<>();
+		this.pendingPorts = new LinkedHashMap<>();
+		this.pendingConnections = new ArrayList<>();
+	}
+
+	/**
+	 * Write the changes recorded since BeginBulk to the graph and leave the
+	 * bulk mode.
+	 */
+	public void CommitBulk() {
+		if (!InBulk()) return;
+		pendingPorts.forEach((name, ports) ->
+			GetActor(name).addPorts(ports.toArray(String[]::new))
+		);
+		pendingProd.forEach((name, prod) -> GetActor(name).production(prod));
+		pendingCons.forEach((name, cons) -> GetActor(name).consumption(cons));
+		for (var c : pendingConnections) {
+			this.Connect(c.v1(), c.v2(), c.v1ToV2Port(), c.v2ToV1Port());
+		}
+		this.pendingProd = null;
+		this.pendingCons = null;
+		this.pendingPorts = null;
+		this.pendingConnections = null;
+	}
+
+	private boolean InBulk() {
+		return this.pendingConnections != null;
+	}
+
+	/**
+	 * Add a production or consumption entry and the matching port to an
+	 * actor, directly or recorded in the bulk mode.
+	 * @param actor The actor.
+	 * @param production True for production, false for consumption.
+	 * @param port The port of the entry.
+	 * @param numTokens How many tokens are produced or consumed.
+	 * @param unique If an existing entry of the port is an error, otherwise
+	 * it is replaced.
+	 * @exception RuntimeException If port for prod/cons already exists.
+	 */
+	private void AddRate(
+		SDFActorViewer actor, boolean production, String port, int numTokens,
+		boolean unique
+	) {
+		if (!InBulk()) {
+			actor.addPorts(port);
+			Map<String, Integer> current = production
+				? actor.production() : actor.consumption();
+			Map<String, Integer> rates;
+			if (unique) {
+				rates = this.GetUpdatedProdOrCons(current, port, numTokens);
+			} else {
+				rates = new LinkedHashMap<String, Integer>(current);
+				rates.put(port, numTokens);
+			}
+			if (production) actor.production(rates);
+			else actor.consumption(rates);
+			return;
+		}
+
+		var pending = production ? pendingProd : pendingCons;
+		// the committed rates are copied once per actor
+		var rates = pending.computeIfAbsent(actor.getIdentifier(), a -> new LinkedHashMap<>(
+			production ? actor.production() : actor.consumption()
+		));
+		Integer previous = rates.put(port, numTokens);
+		if (previous != null && unique) {
+			throw new RuntimeException(
+				"Consumption/Production port already exists: " + port
+			);
+		}
+		if (previous == null) {
+			pendingPorts.computeIfAbsent(actor.getIdentifier(), a -> new ArrayList<>()).add(port);
+		}
+	}
+
 	/**
 	 * Add an actor to the application.
 	 * @param name Name of the actor
@@ -236,22 +343,23 @@ public class ApplicationBuilder {
 		bufLike.elementSizeInBits(8L);
 
 		String prodPortName = "to_" + dstActorName;
-		var newProd = this.GetUpdatedProdOrCons(
-			srcActor.production(), prodPortName, numProd
-		);
-		srcActor.production(newProd);
+		this.AddRate(srcActor, true, prodPortName, numProd, true);
 		
 		String consPortName = "from_" + srcActorName;
-		var newCons = this.GetUpdatedProdOrCons(
-			dstActor.consumption(), consPortName, numCons
-		);
-		dstActor.consumption(newCons);
+		this.AddRate(dstActor, false, consPortName, numCons, true);
 			
 		chan.addPorts(prodPortName, consPortName);
-		srcActor.addPorts(prodPortName);
-		dstActor.addPorts(consPortName);
-		this.Connect(srcActor, chan, prodPortName, "to_" + srcActorName);
-		this.Connect(chan, dstActor, "to_" + dstActorName, consPortName);
+		if (InBulk()) {
+			pendingConnections.add(new PendingConnection(
+				srcActor, chan, prodPortName, "to_" + srcActorName
+			));
+			pendingConnections.add(new PendingConnection(
+				chan, dstActor, "to_" + dstActorName, consPortName
+			));
+		} else {
+			this.Connect(srcActor, chan, prodPortName, "to_" + srcActorName);
+			this.Connect(chan, dstActor, "to_" + dstActorName, consPortName);
+		}
 	}
 
 	/**
@@ -263,10 +371,7 @@ public class ApplicationBuilder {
 	public void SetInputChannel(String actorName, int numCons) {
 		SDFActorViewer actor = GetActor(actorName);
 		String inName = "in_" + actorName; //? need numbering if more than 1?
-		actor.addPorts(inName);
-		var currCons = new LinkedHashMap<String, Integer>(actor.consumption());
-		currCons.put(inName, numCons);
-		actor.consumption(currCons);
+		this.AddRate(actor, false, inName, numCons, false);
 	}
 
 	/**
@@ -278,10 +383,7 @@ public class ApplicationBuilder {
 	public void SetOutputChannel(String actorName, int numProd) {
 		SDFActorViewer actor = GetActor(actorName);
 		String outName = "out_" + actorName;  //? need numbering if more than 1?
-		actor.addPorts(outName);
-		var currProd = new LinkedHashMap<String, Integer>(actor.production());
-		currProd.put(outName, numProd);
-		actor.production(currProd);
+		this.AddRate(actor, true, outName, numProd, false);
 	}
 }
 
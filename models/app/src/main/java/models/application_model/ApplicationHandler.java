@@ -204,6 +204,18 @@ public class ApplicationHandler {
      * @return SystemGraph representing the application.
      */
     public static SystemGraph Realistic() {
+        return Realistic(5);
+    }
+
+    /**
+     * Realistic embedded application graph with a given number of parallel
+     * Grayscale/Sobel lanes, each processing an equal part of the frame.
+     * @param parGrays The number of lanes (split factor).
+     * @return SystemGraph representing the application.
+     * @throws IllegalArgumentException If the number of lanes doesn't divide
+     * the frame, as the lanes would then drop pixels.
+     */
+    public static SystemGraph Realistic(int parGrays) {
         final String APP_NAME = "RealisticSDF";
         final String SPLIT_INPUT_ACTOR = "SplitInput";
         final String SYNC_AND_RESIZE_ACTOR = "SyncAndResize";
@@ -212,9 +224,16 @@ public class ApplicationHandler {
         final String CNN_OBJ_DET = "ObjectDetection";
         final int FRAME_SIZE = 3840*2160;
         final int RGB_FRAME_SIZE = FRAME_SIZE*3;
+        if (parGrays <= 0 || FRAME_SIZE % parGrays != 0) {
+            throw new IllegalArgumentException(
+                parGrays + " lanes don't divide the frame of " + FRAME_SIZE + " pixels"
+            );
+        }
 
         
         var app = new ApplicationBuilder(APP_NAME);
+        // SplitInput and SyncAndResize fan out to all gray/sobel actors
+        app.BeginBulk();
         
         // add split input actor
         app.AddActor(SPLIT_INPUT_ACTOR);
@@ -239,29 +258,28 @@ public class ApplicationHandler {
             3 * Units.BYTES_TO_BITS
         );
 
-        int par_grays = 5;
-        for (int i = 0; i < par_grays; i++) {
+        for (int i = 0; i < parGrays; i++) {
             String grayName = GRAY + i;
             app.AddActor(grayName);
             app.AddSWImplementation(
                 grayName, 
-                Map.of(Requirements.FLOP, 8L * FRAME_SIZE / par_grays),
+                Map.of(Requirements.FLOP, 8L * FRAME_SIZE / parGrays),
                 100 * Units.BYTES_TO_BITS
             );
             app.AddHWImplementation(
                 grayName, 
-                2070000 * Units.CLOCK_CYCLE / par_grays,
+                2070000 * Units.CLOCK_CYCLE / parGrays,
                 300 * Units.MHz,
                 0,
                 100 * Units.CLB
             );
-            app.CreateChannel(SPLIT_INPUT_ACTOR, grayName, RGB_FRAME_SIZE / par_grays, RGB_FRAME_SIZE / par_grays);  
+            app.CreateChannel(SPLIT_INPUT_ACTOR, grayName, RGB_FRAME_SIZE / parGrays, RGB_FRAME_SIZE / parGrays);  
             
             String sobelName = SOBEL + i;
             app.AddActor(sobelName);
             app.AddSWImplementation(
                 sobelName, 
-                Map.of(Requirements.INTOP, 18L * FRAME_SIZE / par_grays),
+                Map.of(Requirements.INTOP, 18L * FRAME_SIZE / parGrays),
                 (long) 6.7 * Units.kB * Units.BYTES_TO_BITS
             );
             app.AddHWImplementation(
@@ -271,8 +289,8 @@ public class ApplicationHandler {
                 (long) 6.7 * Units.kB * Units.BYTES_TO_BITS,
                 132 * Units.CLB
             ); 
-            app.CreateChannel(grayName, sobelName, FRAME_SIZE / par_grays, FRAME_SIZE / par_grays);
-            app.CreateChannel(sobelName, SYNC_AND_RESIZE_ACTOR, FRAME_SIZE / par_grays, FRAME_SIZE / par_grays);
+            app.CreateChannel(grayName, sobelName, FRAME_SIZE / parGrays, FRAME_SIZE / parGrays);
+            app.CreateChannel(sobelName, SYNC_AND_RESIZE_ACTOR, FRAME_SIZE / parGrays, FRAME_SIZE / parGrays);
         }
 
         app.AddActor(CNN_OBJ_DET);
@@ -306,6 +324,7 @@ public class ApplicationHandler {
     public static SystemGraph SequentialSDF(String name, int actors, int hwImplActors) {
         final int MIN_ACTORS = 2;
         var app = new ApplicationBuilder(name);
+        app.BeginBulk();
 
         // time for 2-10 actors where 1-10 specifies hw impl
         for (int a = MIN_ACTORS; a < actors + MIN_ACTORS; a++) {
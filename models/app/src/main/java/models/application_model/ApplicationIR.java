@@ -0,0 +1,314 @@
+// MIT License
+
+// Copyright (c) 2024 Saab AB
+
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+
+package models.application_model;
+
+import java.util.*;
+
+import forsyde.io.core.EdgeInfo;
+import forsyde.io.core.SystemGraph;
+import forsyde.io.core.Vertex;
+import forsyde.io.lib.hierarchy.ForSyDeHierarchy.*;
+import forsyde.io.lib.hierarchy.behavior.moc.sdf.SDFActorViewer;
+import models.utils.Requirements;
+
+
+/**
+ * Compact, read-only intermediate representation of an SDF application for
+ * in-process analyses. Actors and channels are numbered 0..n-1 and all
+ * rates, tokens and costs are kept in primitive arrays indexed by these ids,
+ * with the channels of each actor in CSR (compressed sparse row) form.
+ * Vertex identifiers are only resolved when asked for.
+ * <p>
+ * The arrays are public so that analyses index them without a call per
+ * access, and one instance is shared by all analyses of an application:
+ * they must not be written, e.g. SDFAnalysis simulates on its own copy of
+ * the initial tokens.
+ */
+public class ApplicationIR {
+    /** Source actor of each channel, -1 if it has none. */
+    public final int[] channelSrc;
+    /** Destination actor of each channel, -1 if it has none. */
+    public final int[] channelDst;
+    /** Tokens produced into each channel per source firing. */
+    public final int[] production;
+    /** Tokens consumed from each channel per destination firing. */
+    public final int[] consumption;
+    /** Initial tokens of each channel. */
+    public final int[] initialTokens;
+    /** Token size in bits of each channel. */
+    public final long[] tokenSizeInBits;
+
+    /** outChannels[outOffsets[a]..outOffsets[a+1]) are the channels actor a produces into. */
+    public final int[] outOffsets;
+    public final int[] outChannels;
+    /** inChannels[inOffsets[a]..inOffsets[a+1]) are the channels actor a consumes from. */
+    public final int[] inOffsets;
+    public final int[] inChannels;
+
+    /** Software instruction types, the columns of swInstructions. */
+    public final String[] instructionTypes;
+    /** Instructions per firing, swInstructions[a * instructionTypes.length + t]. */
+    public final long[] swInstructions;
+    /** Software code size in bits of each actor, 0 without software implementation. */
+    public final long[] swSizeInBits;
+    /** Hardware latency per firing as numerator/denominator seconds. */
+    public final long[] hwLatencyNumerator;
+    public final long[] hwLatencyDenominator;
+    /** Logic area and block RAM of the hardware implementation of each actor. */
+    public final long[] hwArea;
+    public final long[] hwBramInBits;
+
+    private final BitSet hasSw;
+    private final BitSet hasHw;
+    private final Vertex[] actorVertices;
+    private final Vertex[] channelVertices;
+    private Map<String, Integer> actorIds;
+    private Map<String, Integer> channelIds;
+
+    private ApplicationIR(int numActors, int numChannels, String[] instructionTypes) {
+        this.channelSrc = new int[numChannels];
+        this.channelDst = new int[numChannels];
+        this.production = new int[numChannels];
+        this.consumption = new int[numChannels];
+        this.initialTokens = new int[numChannels];
+        this.tokenSizeInBits = new long[numChannels];
+        this.outOffsets = new int[numActors + 1];
+        this.outChannels = new int[numChannels];
+        this.inOffsets = new int[numActors + 1];
+        this.inChannels = new int[numChannels];
+        this.instructionTypes = instructionTypes;
+        this.swInstructions = new long[numActors * instructionTypes.length];
+        this.swSizeInBits = new long[numActors];
+        this.hwLatencyNumerator = new long[numActors];
+        this.hwLatencyDenominator = new long[numActors];
+        this.hwArea = new long[numActors];
+        this.hwBramInBits = new long[numActors];
+        this.hasSw = new BitSet(numActors);
+        this.hasHw = new BitSet(numActors);
+        this.actorVertices = new Vertex[numActors];
+        this.channelVertices = new Vertex[numChannels];
+    }
+
+    /**
+     * Build the representation of the SDF actors and channels of a graph,
+     * e.g. a loaded application or the graph of an ApplicationBuilder. The
+     * producer and consumer of a channel are found through the network
+     * edges whose actor port has a production or consumption rate.
+     * @param g The application graph.
+     * @return The representation.
+     */
+    public static ApplicationIR FromGraph(SystemGraph g) {
+        List<Vertex> actors = new ArrayList<>();
+        List<SDFActorViewer> actorViews = new ArrayList<>();
+        List<Vertex> channels = new ArrayList<>();
+        Set<String> types = new TreeSet<>();
+        for (Vertex v : g.vertexSet()) {
+            var actor = SDFActor.tryView(g, v);
+            if (actor.isPresent()) {
+                actors.add(v);
+                actorViews.add(actor.get());
+                InstrumentedSoftwareBehaviour.tryView(g, v).ifPresent(sw -> types.addAll(
+                    sw.computationalRequirements()
+                        .getOrDefault(Requirements.SW_INSTRUCTIONS, Map.of())
+                        .keySet()
+                ));
+            } else if (SDFChannel.tryView(g, v).isPresent()) {
+                channels.add(v);
+            }
+        }
+
+        var ir = new ApplicationIR(
+            actors.size(), channels.size(), types.toArray(String[]::new)
+        );
+        Map<Vertex, Integer> actorIndex = new HashMap<>(actors.size() * 2);
+        List<Map<String, Integer>> productions = new ArrayList<>(actors.size());
+        List<Map<String, Integer>> consumptions = new ArrayList<>(actors.size());
+        for (int a = 0; a < actors.size(); a++) {
+            Vertex v = actors.get(a);
+            ir.actorVertices[a] = v;
+            actorIndex.put(v, a);
+            productions.add(actorViews.get(a).production());
+            consumptions.add(actorViews.get(a).consumption());
+            ir.ReadCosts(g, v, a);
+        }
+
+        for (int c = 0; c < channels.size(); c++) {
+            Vertex v = channels.get(c);
+            ir.channelVertices[c] = v;
+            ir.channelSrc[c] = -1;
+            ir.channelDst[c] = -1;
+            for (EdgeInfo e : g.incomingEdgesOf(v)) {
+                Integer a = actorIndex.get(g.getEdgeSource(e));
+                if (a == null || e.getSourcePort().isEmpty()) continue;
+                Integer rate = productions.get(a).get(e.getSourcePort().get());
+                if (rate == null) continue;
+                ir.channelSrc[c] = a;
+                ir.production[c] = rate;
+            }
+            for (EdgeInfo e : g.outgoingEdgesOf(v)) {
+                Integer a = actorIndex.get(g.getEdgeTarget(e));
+                if (a == null || e.getTargetPort().isEmpty()) continue;
+                Integer rate = consumptions.get(a).get(e.getTargetPort().get());
+                if (rate == null) continue;
+                ir.channelDst[c] = a;
+                ir.consumption[c] = rate;
+            }
+            var chan = SDFChannel.tryView(g, v).get();
+            Integer tokens = chan.numInitialTokens();
+            ir.initialTokens[c] = tokens == null ? 0 : tokens;
+            ir.tokenSizeInBits[c] = BufferLike.tryView(g, v)
+                .map(b -> b.elementSizeInBits())
+                .orElse(0L);
+        }
+
+        Csr(ir.channelSrc, ir.outOffsets, ir.outChannels);
+        Csr(ir.channelDst, ir.inOffsets, ir.inChannels);
+        return ir;
+    }
+
+    /**
+     * Read the software and hardware implementation costs of an actor.
+     */
+    private void ReadCosts(SystemGraph g, Vertex v, int a) {
+        InstrumentedSoftwareBehaviour.tryView(g, v).ifPresent(sw -> {
+            hasSw.set(a);
+            var instrs = sw.computationalRequirements()
+                .getOrDefault(Requirements.SW_INSTRUCTIONS, Map.of());
+            for (int t = 0; t < instructionTypes.length; t++) {
+                swInstructions[a * instructionTypes.length + t] =
+                    instrs.getOrDefault(instructionTypes[t], 0L);
+            }
+            swSizeInBits[a] = sw.maxSizeInBits()
+                .getOrDefault(Requirements.SW_INSTRUCTIONS, 0L);
+        });
+        InstrumentedHardwareBehaviour.tryView(g, v).ifPresent(hw -> {
+            hasHw.set(a);
+            var fpga = hw.resourceRequirements()
+                .getOrDefault(Requirements.FPGA, Map.of());
+            hwArea[a] = fpga.getOrDefault(Requirements.AREA, 0L);
+            hwBramInBits[a] = fpga.getOrDefault(Requirements.BRAM, 0L);
+            hwLatencyNumerator[a] = hw.latencyInSecsNumerators()
+                .getOrDefault(Requirements.FPGA, 0L);
+            hwLatencyDenominator[a] = hw.latencyInSecsDenominators()
+                .getOrDefault(Requirements.FPGA, 0L);
+        });
+    }
+
+    /**
+     * Fill CSR offsets and entries grouping the channels by actor.
+     * @param actorOf The actor of each channel, -1 for none.
+     * @param offsets Offsets per actor, of length numActors + 1.
+     * @param entries The grouped channels.
+     */
+    private static void Csr(int[] actorOf, int[] offsets, int[] entries) {
+        for (int a : actorOf) {
+            if (a >= 0) offsets[a + 1]++;
+        }
+        for (int a = 1; a < offsets.length; a++) offsets[a] += offsets[a - 1];
+        int[] next = Arrays.copyOf(offsets, offsets.length - 1);
+        for (int c = 0; c < actorOf.length; c++) {
+            if (actorOf[c] >= 0) entries[next[actorOf[c]]++] = c;
+        }
+    }
+
+    /**
+     * Get the number of actors.
+     * @return The number of actors, their ids are 0..n-1.
+     */
+    public int NumActors() {
+        return actorVertices.length;
+    }
+
+    /**
+     * Get the number of channels.
+     * @return The number of channels, their ids are 0..n-1.
+     */
+    public int NumChannels() {
+        return channelVertices.length;
+    }
+
+    /**
+     * Check if an actor has a software implementation.
+     * @param actor The actor id.
+     * @return True if it has an InstrumentedSoftwareBehaviour.
+     */
+    public boolean HasSoftware(int actor) {
+        return hasSw.get(actor);
+    }
+
+    /**
+     * Check if an actor has a hardware implementation.
+     * @param actor The actor id.
+     * @return True if it has an InstrumentedHardwareBehaviour.
+     */
+    public boolean HasHardware(int actor) {
+        return hasHw.get(actor);
+    }
+
+    /**
+     * Get the instructions of a type an actor executes per firing.
+     * @param actor The actor id.
+     * @param type The instruction type, e.g. Requirements.FLOP.
+     * @return The number of instructions, 0 if the actor has none.
+     */
+    public long SwInstructions(int actor, String type) {
+        int t = Arrays.asList(instructionTypes).indexOf(type);
+        return t < 0 ? 0 : swInstructions[actor * instructionTypes.length + t];
+    }
+
+    /**
+     * Get the name of an actor.
+     * @param actor The actor id.
+     * @return The identifier of its vertex.
+     */
+    public String ActorName(int actor) {
+        return actorVertices[actor].getIdentifier();
+    }
+
+    /**
+     * Get the name of a channel.
+     * @param channel The channel id.
+     * @return The identifier of its vertex.
+     */
+    public String ChannelName(int channel) {
+        return channelVertices[channel].getIdentifier();
+    }
+
+    /**
+     * Get the id of an actor, building the name lookup on first use.
+     * @param name The identifier of the actor.
+     * @return The actor id, -1 if there is no such actor.
+     */
+    public synchronized int ActorId(String name) {
+        if (actorIds == null) actorIds = IdsOf(actorVertices);
+        return actorIds.getOrDefault(name, -1);
+    }
+
+    /**
+     * Get the id of a channel, building the name lookup on first use.
+     * @param name The identifier of the channel.
+     * @return The channel id, -1 if there is no such channel.
+     */
+    public synchronized int ChannelId(String name) {
+        if (channelIds == null) channelIds = IdsOf(channelVertices);
+        return channelIds.getOrDefault(name, -1);
+    }
+
+    private static Map<String, Integer> IdsOf(Vertex[] vertices) {
+        Map<String, Integer> ids = new HashMap<>(vertices.length * 2);
+        for (int i = 0; i < vertices.length; i++) ids.put(vertices[i].getIdentifier(), i);
+        return ids;
+    }
+}
@@ -0,0 +1,109 @@
+// MIT License
+
+// Copyright (c) 2024 Saab AB
+
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+
+package models.platform_model;
+
+import java.util.*;
+
+import forsyde.io.core.VertexViewer;
+
+
+/**
+ * Name index of the components of a platform. Components are kept sorted by
+ * name, so exact lookups and namespace (name prefix) lookups take
+ * logarithmic time. For every component, the index also records which of
+ * its ports leads to which connected component.
+ */
+class ComponentIndex {
+    // port name prefixes used by PlatformBuilder, longest first
+    private static final String[] PORT_PREFIXES = {"to_from_", "to_", "from_"};
+
+    private final NavigableMap<String, VertexViewer> components = new TreeMap<>();
+    private final Map<String, Map<String, String>> portsByPeer = new HashMap<>();
+
+    /**
+     * Add a component, and index its existing ports by the component they
+     * are named after.
+     * @param name The identifier of the component.
+     * @param viewer The viewer of the component.
+     */
+    void Add(String name, VertexViewer viewer) {
+        components.put(name, viewer);
+        for (String port : viewer.getPorts()) {
+            String peer = PeerOf(port);
+            if (peer != null) AddPort(name, peer, port);
+        }
+    }
+
+    /**
+     * Get a component by its exact name.
+     * @param name The identifier of the component.
+     * @return The viewer, or null if there is no such component.
+     */
+    VertexViewer Get(String name) {
+        return components.get(name);
+    }
+
+    boolean Contains(String name) {
+        return components.containsKey(name);
+    }
+
+    /**
+     * Get the names of all components in a namespace, i.e. whose names start
+     * with <namespace>, in sorted order.
+     * @param namespace The namespace or exact name.
+     * @return The matching names.
+     */
+    Collection<String> InNamespace(String namespace) {
+        return components
+            .subMap(namespace, true, namespace + Character.MAX_VALUE, false)
+            .keySet();
+    }
+
+    /**
+     * Record that a port of a component leads to another component. The
+     * first port recorded for a pair is kept.
+     * @param component The component owning the port.
+     * @param peer The component the port leads to.
+     * @param port The port name.
+     */
+    void AddPort(String component, String peer, String port) {
+        portsByPeer
+            .computeIfAbsent(component, c -> new HashMap<>())
+            .putIfAbsent(peer, port);
+    }
+
+    /**
+     * Get the port of a component that leads to another component.
+     * @param component The component owning the port.
+     * @param peer The component the port leads to.
+     * @return The port, empty if the components aren't connected.
+     */
+    Optional<String> PortTo(String component, String peer) {
+        var ports = portsByPeer.get(component);
+        return ports == null ? Optional.empty() : Optional.ofNullable(ports.get(peer));
+    }
+
+    /**
+     * Get the component a port is named after.
+     * @param port A port name such as 'to_from_X', 'to_X' or 'from_X'.
+     * @return The component name X, or null for other ports.
+     */
+    private static String PeerOf(String port) {
+        for (String prefix : PORT_PREFIXES) {
+            if (port.startsWith(prefix)) return port.substring(prefix.length());
+        }
+        return null;
+    }
+}
@@ -33,12 +33,13 @@ public class PlatformBuilder {
     private SystemGraph sGraph;
     private GreyBoxViewer greyBox;
     public Map<String, VertexViewer> viewers = new HashMap<>();
+    private ComponentIndex index = new ComponentIndex();
 
     public PlatformBuilder(String name) {
         SystemGraph sGraph = new SystemGraph();
 
         var platform = Structure.enforce(sGraph, sGraph.newVertex(name));
-        this.viewers.put(name, platform);
+        this.Register(name, platform);
         this.greyBox = GreyBox.enforce(Visualizable.enforce(platform));
         this.sGraph = sGraph;
     }
@@ -74,6 +75,17 @@ public class PlatformBuilder {
                 viewers.put(v.getIdentifier(), view)
             );
         }
+        viewers.forEach(index::Add);
+    }
+
+    /**
+     * Make a component available by name to the connection and route methods.
+     * @param name The identifier of the component.
+     * @param viewer The viewer of the component.
+     */
+    private void Register(String name, VertexViewer viewer) {
+        this.viewers.put(name, viewer);
+        this.index.Add(name, viewer);
     }
 
     /**
@@ -142,12 +154,12 @@ public class PlatformBuilder {
      * @param dstCompName The name of the destination component (must exist).
      */
     public void ConnectOneWay(String srcCompName, String dstCompName) {
-        assert this.viewers.keySet().contains(srcCompName) :
+        assert this.index.Contains(srcCompName) :
             "No component named " + srcCompName + " found";
-        assert this.viewers.keySet().contains(dstCompName) :
+        assert this.index.Contains(dstCompName) :
             "No component named " + dstCompName + " found";
-        var src = this.viewers.get(srcCompName);
-        var dst = this.viewers.get(dstCompName);
+        var src = this.index.Get(srcCompName);
+        var dst = this.index.Get(dstCompName);
         String dstPort = "from_" + src.getIdentifier();
         String srcPort = "to_" + dst.getIdentifier();
         if ((dst instanceof GenericMemoryModuleViewer && 
@@ -162,22 +174,24 @@ public class PlatformBuilder {
 
         dst.addPorts(dstPort);
         src.addPorts(srcPort);
+        this.index.AddPort(dstCompName, srcCompName, dstPort);
+        this.index.AddPort(srcCompName, dstCompName, srcPort);
         this.CreateDirectedEdge(src, dst, srcPort, dstPort);
     }
 
     /**
      * Connect all components bidirectionally from the given namespace to 
-     * another component.
+     * another component. The namespace matches all components whose names
+     * start with it.
      * @param srcCompNamespace The namespace or exact name of the source components.
      * (must exist).
      * @param dstCompName The name of the destination component (must exist).
      */
     public void ConnectTwoWay(String srcCompNamespace, String dstCompName) {
-        assert this.viewers.keySet().contains(dstCompName) :
+        assert this.index.Contains(dstCompName) :
             "No component named " + dstCompName + " found";
-        var dst = this.viewers.get(dstCompName);
-        List<String> srcCompNames = this.viewers.keySet().stream()
-            .filter((key) -> key.contains(srcCompNamespace))
+        var dst = this.index.Get(dstCompName);
+        List<String> srcCompNames = this.index.InNamespace(srcCompNamespace).stream()
             .filter((key) -> key.compareTo(dst.getIdentifier()) != 0)
             .toList();
 
@@ -185,9 +199,8 @@ public class PlatformBuilder {
             "No component(s) found for name(space) " + srcCompNamespace +
             " when trying to add connections to " + dstCompName;
         
-        srcCompNames.stream()
-        .map((srcCompName) -> this.viewers.get(srcCompName))
-        .forEach((srcComp) -> {
+        srcCompNames.forEach((srcCompName) -> {
+            var srcComp = this.index.Get(srcCompName);
             String dstPort = "to_from_" + srcComp.getIdentifier();
             String srcPort = "to_from_" + dstCompName;
             if ((dst instanceof GenericMemoryModuleViewer && 
@@ -202,6 +215,8 @@ public class PlatformBuilder {
             
             dst.addPorts(dstPort);
             srcComp.addPorts(srcPort);
+            this.index.AddPort(dstCompName, srcCompName, dstPort);
+            this.index.AddPort(srcCompName, dstCompName, srcPort);
             this.CreateEdge(srcComp, dst, srcPort, dstPort);
         });
     }
@@ -217,7 +232,7 @@ public class PlatformBuilder {
         var mem = GenericMemoryModule.enforce(
             sGraph, sGraph.newVertex(memoryName)
         );
-        this.viewers.put(memoryName, mem);
+        this.Register(memoryName, mem);
         this.greyBox.addContained(Visualizable.enforce(mem));
 
         mem.operatingFrequencyInHertz(frequency);
@@ -236,7 +251,7 @@ public class PlatformBuilder {
         var sw = InstrumentedCommunicationModule.enforce(
             sGraph, sGraph.newVertex(name)
         );
-        this.viewers.put(name, sw);
+        this.Register(name, sw);
         this.greyBox.addContained(Visualizable.enforce(sw));
         sw.flitSizeInBits(flitInBits);
         sw.maxConcurrentFlits(1);
@@ -261,37 +276,14 @@ public class PlatformBuilder {
     public void AddInternalSwitchRoutes(
         String name, Map<String, List<String>> routes
     ) {
-        var sw = this.viewers.get(name);
+        var sw = this.index.Get(name);
         assert sw != null : "Switch " + name + " not found.";
-        var ports = sw.getPorts();
-
-        routes.forEach((compName, connectsToNames) -> {
-            assert ports.stream().anyMatch(p -> p.contains(compName)) : 
-                "Switch port for " + compName + " not found, ports: " + ports;
-            assert connectsToNames.stream().allMatch(
-                v -> ports.stream().anyMatch(p -> p.contains(v))
-            ) : "Switch port for " + connectsToNames + " not found, ports: " + ports;
-        });
         
         HashMap<String, List<String>> portConnections = new HashMap<>();
         routes.forEach((compName, connectsToNames) -> {
-            String portName = ports.stream()
-                .filter(p -> p.contains(compName))
-                .findFirst()
-                .orElseThrow(() -> new IllegalArgumentException(
-                    "Port for component " + compName + " not found in " + ports +
-                    " (port connections for " + name + ")"
-                ));
-
-            portConnections.put(portName, connectsToNames.stream()
-                .map(v -> ports.stream()
-                    .filter(p -> p.contains(v))
-                    .findFirst()
-                    .orElseThrow(() -> new IllegalArgumentException(
-                        "Port for component " + v + " not found in " + ports +
-                        " (port connections for " + name + ")"
-                    ))
-                ).toList()
+            portConnections.put(
+                SwitchPort(sw, compName),
+                connectsToNames.stream().map(v -> SwitchPort(sw, v)).toList()
             );
         });
 
@@ -300,6 +292,79 @@ public class PlatformBuilder {
         ).portConnections(portConnections);
     }
 
+    /**
+     * Synthesize the internal routes of all switches without routes from
+     * traffic classes, routing every pair along a shortest path and falling
+     * back to up*&#47;down* routing if the shortest paths could deadlock (see
+     * RouteSynthesis). Switches with routes added by AddInternalSwitchRoutes
+     * keep them and are only traversed along them. Traffic that is not
+     * declared is not routed through the synthesized switches.
+     * @param traffic Per namespace of processing units (processors, FPGAs),
+     * the namespaces of the memories they must reach, e.g.
+     * "APU" -> ["PS_DDR4", "OCM"].
+     * @return The pairs (source, destination) that have no path.
+     */
+    public List<String> SynthesizeSwitchRoutes(Map<String, List<String>> traffic) {
+        var ir = PlatformIR.FromGraph(sGraph, null);
+        List<int[]> pairs = new ArrayList<>();
+        traffic.forEach((srcNamespace, dstNamespaces) -> {
+            for (String src : this.index.InNamespace(srcNamespace)) {
+                for (String dstNamespace : dstNamespaces) {
+                    for (String dst : this.index.InNamespace(dstNamespace)) {
+                        int a = ir.Id(src), b = ir.Id(dst);
+                        if (a < 0 || b < 0 || a == b) continue;
+                        if (!IsProcessingUnit(ir.kinds[a]) || ir.kinds[b] != PlatformIR.Kind.MEMORY) continue;
+                        pairs.add(new int[] {a, b});
+                    }
+                }
+            }
+        });
+
+        var result = new RouteSynthesis(ir).Synthesize(pairs);
+        int synthesized = 0;
+        for (var sw : result.turns().entrySet()) {
+            if (ir.HasRoutes(sw.getKey())) continue;
+            Map<String, List<String>> routes = new HashMap<>();
+            sw.getValue().forEach((from, tos) -> routes.put(
+                ir.names[from],
+                tos.stream().mapToObj(to -> ir.names[to]).toList()
+            ));
+            AddInternalSwitchRoutes(ir.names[sw.getKey()], routes);
+            synthesized++;
+        }
+        System.out.println(
+            "Synthesized routes of " + synthesized + " switch(es)" +
+            (result.upDown() ? " with up*/down* routing" : "")
+        );
+        return result.unreachable().stream()
+            .map(p -> ir.names[p[0]] + " -> " + ir.names[p[1]])
+            .toList();
+    }
+
+    private static boolean IsProcessingUnit(PlatformIR.Kind kind) {
+        return kind == PlatformIR.Kind.PROCESSOR || kind == PlatformIR.Kind.FPGA;
+    }
+
+    /**
+     * Find the port of a switch that leads to a component, through the port
+     * index, or else the first port whose name contains the component name.
+     * @param sw The switch.
+     * @param compName The name of the component.
+     * @return The port name.
+     * @throws IllegalArgumentException If no such port exists.
+     */
+    private String SwitchPort(VertexViewer sw, String compName) {
+        return this.index.PortTo(sw.getIdentifier(), compName)
+            .or(() -> sw.getPorts().stream()
+                .filter(p -> p.contains(compName))
+                .findFirst()
+            )
+            .orElseThrow(() -> new IllegalArgumentException(
+                "Port for component " + compName + " not found in " + sw.getPorts() +
+                " (port connections for " + sw.getIdentifier() + ")"
+            ));
+    }
+
     /**
      * Add a CPU to the platform as <numCores> independent processing modules with 
      * 1-1 mapped runtimes.
@@ -318,7 +383,7 @@ public class PlatformBuilder {
                 sGraph, sGraph.newVertex(coreName)
             );
 
-            this.viewers.put(coreName, core);
+            this.Register(coreName, core);
             this.greyBox.addContained(Visualizable.enforce(core));
             core.maximumComputationParallelism(1);
             core.operatingFrequencyInHertz(frequency);
@@ -359,7 +424,7 @@ public class PlatformBuilder {
             sGraph, sGraph.newVertex(name)
         );
         this.greyBox.addContained(Visualizable.enforce(fpga));
-        this.viewers.put(name, fpga);
+        this.Register(name, fpga);
         fpga.availableLogicArea(availableLogicArea);
         fpga.blockRamSizeInBits(bramSizeInBits);
         fpga.operatingFrequencyInHertz(frequency);
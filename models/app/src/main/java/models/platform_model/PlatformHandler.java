@@ -199,6 +199,18 @@ public class PlatformHandler {
                 )
             ));
 
+        // Port connections of the remaining switches, from the traffic that
+        // the cores and the FPGA send to the shared memories
+        var unrouted = platform.SynthesizeSwitchRoutes(
+            Map.of(
+                APU_NAME, List.of(PS_DDR4_NAME, OCM_NAME),
+                RPU_NAME, List.of(PS_DDR4_NAME, OCM_NAME),
+                FPGA_NAME, List.of(PS_DDR4_NAME, OCM_NAME, PL_DDR4_NAME)
+            ));
+        if (!unrouted.isEmpty()) {
+            throw new IllegalStateException("No switch route for " + unrouted);
+        }
+
         // Information about the platform
         int numComponents = platform.viewers.size();
         System.out.println(numComponents + " components added to platform");
@@ -0,0 +1,526 @@
+// MIT License
+
+// Copyright (c) 2024 Saab AB
+
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+
+package models.platform_model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+import forsyde.io.core.EdgeInfo;
+import forsyde.io.core.SystemGraph;
+import forsyde.io.core.Vertex;
+import forsyde.io.lib.hierarchy.ForSyDeHierarchy.*;
+import models.utils.ContentHash;
+import models.utils.Printer;
+
+
+/**
+ * Compact, read-only intermediate representation of a platform for
+ * evaluating mappings. Processing modules, memories, switches, FPGAs and
+ * runtimes are numbered 0..n-1 with their properties in primitive arrays,
+ * physical connections as adjacency bitsets, the allowed routes of switches
+ * with port specifications, and a precomputed matrix of route-aware hop
+ * counts between all components.
+ * <p>
+ * The representation of a platform file is persisted next to it (.pir),
+ * keyed by the SHA-256 hash of the file, so it is built once per platform.
+ * <p>
+ * The arrays are public so that evaluations index them without a call per
+ * access, and one instance is shared by all evaluations of a platform: they
+ * must not be written, as they are also what Write persists.
+ */
+public class PlatformIR {
+    public static final String IR_EXT = ".pir";
+    private static final int MAGIC = 0x50495231; // "PIR1"
+    private static final int VERSION = 1;
+
+    /**
+     * The kind of a component.
+     */
+    public enum Kind { PROCESSOR, MEMORY, SWITCH, FPGA, RUNTIME }
+
+    public final String sourceHash;
+    public final String[] names;
+    public final Kind[] kinds;
+    public final long[] frequencyInHertz;
+    /** Switches: flit size, cycles per flit, concurrent flits and initial latency. */
+    public final long[] flitSizeInBits;
+    public final int[] maxCyclesPerFlit;
+    public final int[] maxConcurrentFlits;
+    public final long[] initialLatency;
+    /** Memories: capacity. */
+    public final long[] spaceInBits;
+    /** FPGAs: logic area and block RAM. */
+    public final long[] logicArea;
+    public final long[] blockRamSizeInBits;
+    /** Runtimes: the processing module they manage, -1 for other components. */
+    public final int[] host;
+    /** Processors: instructions per cycle of the fastest mode, ipc[c * instructionTypes.length + t]. */
+    public final String[] instructionTypes;
+    public final double[] instructionsPerCycle;
+    /** Route-aware hops from a to b at hops[a * n + b], -1 if b is unreachable. */
+    public final int[] hops;
+
+    private final BitSet[] adjacency;
+    // switch -> (component the traffic comes from -> components it may go to)
+    private final Map<Integer, Map<Integer, BitSet>> routes;
+    private Map<String, Integer> ids;
+
+    private PlatformIR(String sourceHash, int n, String[] instructionTypes) {
+        this.sourceHash = sourceHash;
+        this.names = new String[n];
+        this.kinds = new Kind[n];
+        this.frequencyInHertz = new long[n];
+        this.flitSizeInBits = new long[n];
+        this.maxCyclesPerFlit = new int[n];
+        this.maxConcurrentFlits = new int[n];
+        this.initialLatency = new long[n];
+        this.spaceInBits = new long[n];
+        this.logicArea = new long[n];
+        this.blockRamSizeInBits = new long[n];
+        this.host = new int[n];
+        this.instructionTypes = instructionTypes;
+        this.instructionsPerCycle = new double[n * instructionTypes.length];
+        this.hops = new int[n * n];
+        this.adjacency = new BitSet[n];
+        for (int i = 0; i < n; i++) adjacency[i] = new BitSet(n);
+        this.routes = new HashMap<>();
+    }
+
+    /**
+     * Build the representation of the components of a platform graph.
+     * @param g The platform graph.
+     * @param sourceHash Hash of the platform file, or null.
+     * @return The representation.
+     */
+    public static PlatformIR FromGraph(SystemGraph g, String sourceHash) {
+        List<Vertex> vertices = new ArrayList<>();
+        List<Kind> vertexKinds = new ArrayList<>();
+        Set<String> types = new TreeSet<>();
+        for (Vertex v : g.vertexSet()) {
+            Kind kind = KindOf(g, v);
+            if (kind == null) continue;
+            vertices.add(v);
+            vertexKinds.add(kind);
+            if (kind == Kind.PROCESSOR) {
+                InstrumentedProcessingModule.tryView(g, v).ifPresent(p ->
+                    p.modalInstructionsPerCycle().values().forEach(m -> types.addAll(m.keySet()))
+                );
+            }
+        }
+        // sorted by name, so the ids don't depend on the graph's iteration order
+        Integer[] order = new Integer[vertices.size()];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, Comparator.comparing(i -> vertices.get(i).getIdentifier()));
+
+        int n = vertices.size();
+        var ir = new PlatformIR(sourceHash, n, types.toArray(String[]::new));
+        Map<Vertex, Integer> index = new HashMap<>(n * 2);
+        for (int c = 0; c < n; c++) {
+            Vertex v = vertices.get(order[c]);
+            index.put(v, c);
+            ir.names[c] = v.getIdentifier();
+            ir.kinds[c] = vertexKinds.get(order[c]);
+            ir.ReadProperties(g, v, c);
+        }
+
+        Arrays.fill(ir.host, -1);
+        for (EdgeInfo e : g.edgeSet()) {
+            Integer a = index.get(g.getEdgeSource(e));
+            Integer b = index.get(g.getEdgeTarget(e));
+            if (a == null || b == null || a.equals(b)) continue;
+            if (ir.kinds[a] == Kind.RUNTIME && ir.kinds[b] == Kind.PROCESSOR) {
+                ir.host[a] = b;
+            } else if (ir.kinds[b] == Kind.RUNTIME && ir.kinds[a] == Kind.PROCESSOR) {
+                ir.host[b] = a;
+            } else if (ir.kinds[a] != Kind.RUNTIME && ir.kinds[b] != Kind.RUNTIME) {
+                ir.adjacency[a].set(b);
+            }
+        }
+        for (int c = 0; c < n; c++) {
+            if (ir.kinds[c] == Kind.SWITCH) ir.ReadRoutes(g, vertices.get(order[c]), c, index);
+        }
+        ir.ComputeHops();
+        return ir;
+    }
+
+    private static Kind KindOf(SystemGraph g, Vertex v) {
+        if (InstrumentedProcessingModule.tryView(g, v).isPresent()) return Kind.PROCESSOR;
+        if (GenericMemoryModule.tryView(g, v).isPresent()) return Kind.MEMORY;
+        if (InstrumentedCommunicationModule.tryView(g, v).isPresent()) return Kind.SWITCH;
+        if (LogicProgrammableModule.tryView(g, v).isPresent()) return Kind.FPGA;
+        if (SuperLoopRuntime.tryView(g, v).isPresent()) return Kind.RUNTIME;
+        return null;
+    }
+
+    private void ReadProperties(SystemGraph g, Vertex v, int c) {
+        switch (kinds[c]) {
+            case PROCESSOR -> InstrumentedProcessingModule.tryView(g, v).ifPresent(p -> {
+                frequencyInHertz[c] = OrZero(p.operatingFrequencyInHertz());
+                for (var mode : p.modalInstructionsPerCycle().values()) {
+                    for (int t = 0; t < instructionTypes.length; t++) {
+                        int i = c * instructionTypes.length + t;
+                        instructionsPerCycle[i] = Math.max(
+                            instructionsPerCycle[i],
+                            mode.getOrDefault(instructionTypes[t], 0.0)
+                        );
+                    }
+                }
+            });
+            case MEMORY -> GenericMemoryModule.tryView(g, v).ifPresent(m -> {
+                frequencyInHertz[c] = OrZero(m.operatingFrequencyInHertz());
+                spaceInBits[c] = OrZero(m.spaceInBits());
+            });
+            case SWITCH -> InstrumentedCommunicationModule.tryView(g, v).ifPresent(s -> {
+                frequencyInHertz[c] = OrZero(s.operatingFrequencyInHertz());
+                flitSizeInBits[c] = OrZero(s.flitSizeInBits());
+                maxCyclesPerFlit[c] = s.maxCyclesPerFlit() == null ? 1 : s.maxCyclesPerFlit();
+                maxConcurrentFlits[c] = s.maxConcurrentFlits() == null ? 1 : s.maxConcurrentFlits();
+                initialLatency[c] = OrZero(s.initialLatency());
+            });
+            case FPGA -> LogicProgrammableModule.tryView(g, v).ifPresent(f -> {
+                frequencyInHertz[c] = OrZero(f.operatingFrequencyInHertz());
+                logicArea[c] = f.availableLogicArea() == null ? 0 : f.availableLogicArea();
+                blockRamSizeInBits[c] = f.blockRamSizeInBits() == null ? 0 : f.blockRamSizeInBits();
+            });
+            case RUNTIME -> { }
+        }
+    }
+
+    private static long OrZero(Long value) {
+        return value == null ? 0 : value;
+    }
+
+    /**
+     * Read the port connections of a switch as routes between the
+     * components its ports lead to.
+     */
+    private void ReadRoutes(SystemGraph g, Vertex v, int sw, Map<Vertex, Integer> index) {
+        var spec = CommunicationModulePortSpecification.tryView(g, v);
+        if (spec.isEmpty() || spec.get().portConnections() == null) return;
+
+        Map<String, Integer> peers = new HashMap<>();
+        for (EdgeInfo e : g.outgoingEdgesOf(v)) {
+            Integer peer = index.get(g.getEdgeTarget(e));
+            if (peer != null) e.getSourcePort().ifPresent(p -> peers.putIfAbsent(p, peer));
+        }
+        for (EdgeInfo e : g.incomingEdgesOf(v)) {
+            Integer peer = index.get(g.getEdgeSource(e));
+            if (peer != null) e.getTargetPort().ifPresent(p -> peers.putIfAbsent(p, peer));
+        }
+
+        Map<Integer, BitSet> switchRoutes = new HashMap<>();
+        spec.get().portConnections().forEach((inPort, outPorts) -> {
+            Integer from = peers.get(inPort);
+            if (from == null) return;
+            BitSet to = switchRoutes.computeIfAbsent(from, f -> new BitSet(names.length));
+            for (String outPort : outPorts) {
+                Integer peer = peers.get(outPort);
+                if (peer != null) to.set(peer);
+            }
+        });
+        routes.put(sw, switchRoutes);
+    }
+
+    /**
+     * Breadth-first search from every component over directed links, where
+     * only switches forward traffic and only along their routes.
+     */
+    private void ComputeHops() {
+        int n = names.length;
+        Arrays.fill(hops, -1);
+        int[] queueFrom = new int[n * n + 1];
+        int[] queueTo = new int[n * n + 1];
+        for (int src = 0; src < n; src++) {
+            hops[src * n + src] = 0;
+            // visited links u -> v
+            BitSet visited = new BitSet(n * n);
+            int[] depth = new int[n * n];
+            int head = 0, tail = 0;
+            for (int v = adjacency[src].nextSetBit(0); v >= 0; v = adjacency[src].nextSetBit(v + 1)) {
+                visited.set(src * n + v);
+                depth[src * n + v] = 1;
+                queueFrom[tail] = src;
+                queueTo[tail++] = v;
+            }
+            while (head < tail) {
+                int u = queueFrom[head], v = queueTo[head++];
+                int d = depth[u * n + v];
+                if (hops[src * n + v] < 0) hops[src * n + v] = d;
+                if (kinds[v] != Kind.SWITCH) continue;
+                for (int w = adjacency[v].nextSetBit(0); w >= 0; w = adjacency[v].nextSetBit(w + 1)) {
+                    if (w == u || visited.get(v * n + w) || !CanForward(v, u, w)) continue;
+                    visited.set(v * n + w);
+                    depth[v * n + w] = d + 1;
+                    queueFrom[tail] = v;
+                    queueTo[tail++] = w;
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the number of components.
+     * @return The number of components, their ids are 0..n-1.
+     */
+    public int Size() {
+        return names.length;
+    }
+
+    /**
+     * Check if a component has a physical link to another.
+     * @param a The component the link starts at.
+     * @param b The component the link ends at.
+     * @return True if a is connected to b.
+     */
+    public boolean Connected(int a, int b) {
+        return adjacency[a].get(b);
+    }
+
+    /**
+     * Get the components a component has a physical link to.
+     * @param c The component id.
+     * @return A copy of the neighbors.
+     */
+    public BitSet Neighbors(int c) {
+        return (BitSet) adjacency[c].clone();
+    }
+
+    /**
+     * Check if a switch forwards traffic arriving from one neighbor to
+     * another. Switches without port specification forward everything.
+     * @param sw The switch.
+     * @param from The neighbor the traffic arrives from.
+     * @param to The neighbor the traffic leaves to.
+     * @return True if the route is allowed.
+     */
+    public boolean CanForward(int sw, int from, int to) {
+        var switchRoutes = routes.get(sw);
+        if (switchRoutes == null) return true;
+        var allowed = switchRoutes.get(from);
+        return allowed != null && allowed.get(to);
+    }
+
+    /**
+     * Check if a switch has a port specification.
+     * @param sw The switch.
+     * @return True if it only forwards its specified routes.
+     */
+    public boolean HasRoutes(int sw) {
+        return routes.containsKey(sw);
+    }
+
+    /**
+     * Get the route-aware number of hops between two components.
+     * @param from The source component.
+     * @param to The destination component.
+     * @return The number of hops, -1 if to is unreachable from from.
+     */
+    public int Hops(int from, int to) {
+        return hops[from * names.length + to];
+    }
+
+    /**
+     * Get the instructions per cycle of a processor for an instruction type.
+     * @param processor The component id.
+     * @param type The instruction type, e.g. Requirements.FLOP.
+     * @return The instructions per cycle, 0 if not supported.
+     */
+    public double InstructionsPerCycle(int processor, String type) {
+        int t = Arrays.asList(instructionTypes).indexOf(type);
+        return t < 0 ? 0 : instructionsPerCycle[processor * instructionTypes.length + t];
+    }
+
+    /**
+     * Get the id of a component, building the name lookup on first use.
+     * @param name The identifier of the component.
+     * @return The component id, -1 if there is no such component.
+     */
+    public synchronized int Id(String name) {
+        if (ids == null) {
+            ids = new HashMap<>(names.length * 2);
+            for (int c = 0; c < names.length; c++) ids.put(names[c], c);
+        }
+        return ids.getOrDefault(name, -1);
+    }
+
+    /**
+     * Get where the representation of a platform file is persisted.
+     * @param platformFile The platform .fiodl (or .fiodl.gz) file.
+     * @return The .pir file next to it.
+     */
+    public static Path SidecarOf(Path platformFile) {
+        return platformFile.resolveSibling(
+            Printer.BaseName(platformFile.getFileName().toString()) + IR_EXT
+        );
+    }
+
+    /**
+     * Load the representation of a platform file, from its .pir file if it
+     * was built from the same content, otherwise built and persisted.
+     * @param platformFile The platform .fiodl (or .fiodl.gz) file.
+     * @return The representation.
+     * @throws Exception If the platform can't be read.
+     */
+    public static PlatformIR Load(Path platformFile) throws Exception {
+        String hash = ContentHash.Of(platformFile);
+        Path sidecar = SidecarOf(platformFile);
+        if (Files.exists(sidecar)) {
+            try {
+                PlatformIR ir = Read(sidecar);
+                if (hash.equals(ir.sourceHash)) return ir;
+            } catch (IOException e) {
+                System.err.println("Ignoring invalid " + sidecar + ": " + e.getMessage());
+            }
+        }
+        SystemGraph g = new Printer(platformFile.toString()).Read();
+        return Store(g, platformFile);
+    }
+
+    /**
+     * Build and persist the representation of a platform that was just
+     * written.
+     * @param g The platform graph.
+     * @param platformFile The written platform file.
+     * @return The representation.
+     * @throws IOException If the platform file can't be hashed.
+     */
+    public static PlatformIR Store(SystemGraph g, Path platformFile) throws IOException {
+        PlatformIR ir = FromGraph(g, ContentHash.Of(platformFile));
+        try {
+            ir.Write(SidecarOf(platformFile));
+        } catch (IOException e) {
+            System.err.println("Failed to store platform IR: " + e.getMessage());
+        }
+        return ir;
+    }
+
+    /**
+     * Write the representation, replacing the file atomically.
+     * @param path Where to write it.
+     * @throws IOException If the file can't be written.
+     */
+    public void Write(Path path) throws IOException {
+        Path dir = path.toAbsolutePath().getParent();
+        Path tmp = Files.createTempFile(dir, path.getFileName().toString(), ".tmp");
+        try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            int n = names.length;
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(sourceHash == null ? "" : sourceHash);
+            out.writeInt(n);
+            out.writeInt(instructionTypes.length);
+            for (String t : instructionTypes) out.writeUTF(t);
+            for (int c = 0; c < n; c++) {
+                out.writeUTF(names[c]);
+                out.writeByte(kinds[c].ordinal());
+                out.writeLong(frequencyInHertz[c]);
+                out.writeLong(flitSizeInBits[c]);
+                out.writeInt(maxCyclesPerFlit[c]);
+                out.writeInt(maxConcurrentFlits[c]);
+                out.writeLong(initialLatency[c]);
+                out.writeLong(spaceInBits[c]);
+                out.writeLong(logicArea[c]);
+                out.writeLong(blockRamSizeInBits[c]);
+                out.writeInt(host[c]);
+                for (int t = 0; t < instructionTypes.length; t++) {
+                    out.writeDouble(instructionsPerCycle[c * instructionTypes.length + t]);
+                }
+                WriteBits(out, adjacency[c]);
+            }
+            out.writeInt(routes.size());
+            for (var sw : routes.entrySet()) {
+                out.writeInt(sw.getKey());
+                out.writeInt(sw.getValue().size());
+                for (var from : sw.getValue().entrySet()) {
+                    out.writeInt(from.getKey());
+                    WriteBits(out, from.getValue());
+                }
+            }
+            for (int h : hops) out.writeInt(h);
+        }
+        Files.move(tmp, path,
+            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Read a persisted representation.
+     * @param path The .pir file.
+     * @return The representation.
+     * @throws IOException If the file can't be read or is invalid.
+     */
+    public static PlatformIR Read(Path path) throws IOException {
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a platform IR (or unsupported version)");
+            }
+            String hash = in.readUTF();
+            int n = in.readInt();
+            String[] types = new String[in.readInt()];
+            for (int t = 0; t < types.length; t++) types[t] = in.readUTF();
+
+            var ir = new PlatformIR(hash.isEmpty() ? null : hash, n, types);
+            for (int c = 0; c < n; c++) {
+                ir.names[c] = in.readUTF();
+                ir.kinds[c] = Kind.values()[in.readByte()];
+                ir.frequencyInHertz[c] = in.readLong();
+                ir.flitSizeInBits[c] = in.readLong();
+                ir.maxCyclesPerFlit[c] = in.readInt();
+                ir.maxConcurrentFlits[c] = in.readInt();
+                ir.initialLatency[c] = in.readLong();
+                ir.spaceInBits[c] = in.readLong();
+                ir.logicArea[c] = in.readLong();
+                ir.blockRamSizeInBits[c] = in.readLong();
+                ir.host[c] = in.readInt();
+                for (int t = 0; t < types.length; t++) {
+                    ir.instructionsPerCycle[c * types.length + t] = in.readDouble();
+                }
+                ir.adjacency[c] = ReadBits(in);
+            }
+            int numSwitches = in.readInt();
+            for (int s = 0; s < numSwitches; s++) {
+                int sw = in.readInt();
+                int numFrom = in.readInt();
+                Map<Integer, BitSet> switchRoutes = new HashMap<>();
+                for (int f = 0; f < numFrom; f++) {
+                    switchRoutes.put(in.readInt(), ReadBits(in));
+                }
+                ir.routes.put(sw, switchRoutes);
+            }
+            for (int i = 0; i < ir.hops.length; i++) ir.hops[i] = in.readInt();
+            return ir;
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupt platform IR: " + e, e);
+        }
+    }
+
+    private static void WriteBits(DataOutputStream out, BitSet bits) throws IOException {
+        long[] words = bits.toLongArray();
+        out.writeInt(words.length);
+        for (long w : words) out.writeLong(w);
+    }
+
+    private static BitSet ReadBits(DataInputStream in) throws IOException {
+        long[] words = new long[in.readInt()];
+        for (int i = 0; i < words.length; i++) words[i] = in.readLong();
+        return BitSet.valueOf(words);
+    }
+}
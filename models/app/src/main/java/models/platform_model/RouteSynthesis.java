@@ -0,0 +1,208 @@
+// MIT License
+
+// Copyright (c) 2024 Saab AB
+
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+
+package models.platform_model;
+
+import java.util.*;
+
+import models.platform_model.PlatformIR.Kind;
+
+
+/**
+ * Synthesis of the internal routes of switches from traffic classes, i.e.
+ * pairs of components that must be able to communicate. Every pair is
+ * routed along a shortest path over directed links, where switches that
+ * already have routes only forward along them. The turns (in-port to
+ * out-port) the paths take through a switch become its routes.
+ * <p>
+ * The routes are deadlock free if the channel dependency graph, with a node
+ * per directed link and an edge per turn, is acyclic. If the shortest paths
+ * create a cycle, all pairs are routed again with up*&#47;down* routing: links are
+ * ordered by a breadth-first spanning tree and no path may go up after it
+ * went down, which never creates a cycle.
+ */
+class RouteSynthesis {
+
+    /**
+     * Synthesized routes.
+     * @param turns Per switch, the neighbors traffic can go to per neighbor
+     * it arrives from.
+     * @param upDown Whether up*&#47;down* routing was needed.
+     * @param unreachable The pairs (source, destination) without a path.
+     */
+    record Result(Map<Integer, Map<Integer, BitSet>> turns, boolean upDown, List<int[]> unreachable) {}
+
+    private final PlatformIR ir;
+    private final int n;
+    // switches ranked by a breadth-first spanning tree, for up*/down* routing
+    private int[] level;
+
+    RouteSynthesis(PlatformIR ir) {
+        this.ir = ir;
+        this.n = ir.Size();
+    }
+
+    /**
+     * Route all pairs.
+     * @param pairs The (source, destination) component ids.
+     * @return The routes.
+     */
+    Result Synthesize(List<int[]> pairs) {
+        Result shortest = Route(pairs, false);
+        if (Acyclic(shortest.turns())) return shortest;
+        level = Levels();
+        return Route(pairs, true);
+    }
+
+    /**
+     * Route all pairs over link states (u -> v, phase), grouped by source so
+     * one breadth-first search serves all destinations of a source. The
+     * phase is only used for up*&#47;down* routing and is 1 after a down link.
+     */
+    private Result Route(List<int[]> pairs, boolean upDown) {
+        Map<Integer, Map<Integer, BitSet>> turns = new TreeMap<>();
+        List<int[]> unreachable = new ArrayList<>();
+        Map<Integer, List<Integer>> bySource = new TreeMap<>();
+        for (int[] p : pairs) bySource.computeIfAbsent(p[0], s -> new ArrayList<>()).add(p[1]);
+
+        int states = n * n * 2;
+        for (var entry : bySource.entrySet()) {
+            int src = entry.getKey();
+            int[] pred = new int[states];
+            Arrays.fill(pred, -2);
+            int[] reached = new int[n];
+            Arrays.fill(reached, -1);
+            var queue = new ArrayDeque<Integer>();
+            var out = ir.Neighbors(src);
+            for (int v = out.nextSetBit(0); v >= 0; v = out.nextSetBit(v + 1)) {
+                int s = State(src, v, upDown && !Up(src, v) ? 1 : 0);
+                pred[s] = -1;
+                queue.add(s);
+            }
+            while (!queue.isEmpty()) {
+                int s = queue.poll();
+                int link = s >> 1, phase = s & 1;
+                int u = link / n, v = link % n;
+                if (ir.kinds[v] != Kind.SWITCH) {
+                    if (reached[v] < 0) reached[v] = s;
+                    continue;
+                }
+                var next = ir.Neighbors(v);
+                for (int w = next.nextSetBit(0); w >= 0; w = next.nextSetBit(w + 1)) {
+                    if (w == u || ir.kinds[w] == Kind.RUNTIME) continue;
+                    if (ir.HasRoutes(v) && !ir.CanForward(v, u, w)) continue;
+                    int nextPhase = phase;
+                    if (upDown) {
+                        boolean up = Up(v, w);
+                        if (up && phase == 1) continue;
+                        if (!up) nextPhase = 1;
+                    }
+                    int t = State(v, w, nextPhase);
+                    if (pred[t] != -2) continue;
+                    pred[t] = s;
+                    queue.add(t);
+                }
+            }
+
+            for (int dst : entry.getValue()) {
+                if (reached[dst] < 0) {
+                    unreachable.add(new int[] {src, dst});
+                    continue;
+                }
+                // walk back, recording the turn taken at every switch
+                for (int s = reached[dst]; pred[s] >= 0; s = pred[s]) {
+                    int p = pred[s];
+                    int sw = (s >> 1) / n, to = (s >> 1) % n, from = (p >> 1) / n;
+                    turns.computeIfAbsent(sw, k -> new TreeMap<>())
+                        .computeIfAbsent(from, k -> new BitSet(n))
+                        .set(to);
+                }
+            }
+        }
+        return new Result(turns, upDown, unreachable);
+    }
+
+    private int State(int u, int v, int phase) {
+        return (u * n + v) * 2 + phase;
+    }
+
+    /**
+     * Check if a link goes up the spanning tree, towards the root.
+     */
+    private boolean Up(int u, int v) {
+        return level[v] < level[u] || (level[v] == level[u] && v < u);
+    }
+
+    /**
+     * Breadth-first levels over the undirected links, from the switch with
+     * the most neighbors.
+     */
+    private int[] Levels() {
+        BitSet[] undirected = new BitSet[n];
+        for (int a = 0; a < n; a++) undirected[a] = ir.Neighbors(a);
+        for (int a = 0; a < n; a++) {
+            for (int b = undirected[a].nextSetBit(0); b >= 0; b = undirected[a].nextSetBit(b + 1)) {
+                undirected[b].set(a);
+            }
+        }
+        int root = 0;
+        for (int c = 0; c < n; c++) {
+            if (ir.kinds[c] == Kind.SWITCH && (ir.kinds[root] != Kind.SWITCH
+                    || undirected[c].cardinality() > undirected[root].cardinality())) {
+                root = c;
+            }
+        }
+        int[] levels = new int[n];
+        Arrays.fill(levels, Integer.MAX_VALUE);
+        levels[root] = 0;
+        var queue = new ArrayDeque<Integer>(List.of(root));
+        while (!queue.isEmpty()) {
+            int u = queue.poll();
+            for (int v = undirected[u].nextSetBit(0); v >= 0; v = undirected[u].nextSetBit(v + 1)) {
+                if (levels[v] != Integer.MAX_VALUE) continue;
+                levels[v] = levels[u] + 1;
+                queue.add(v);
+            }
+        }
+        return levels;
+    }
+
+    /**
+     * Check the channel dependency graph of the turns for cycles (Kahn).
+     */
+    private boolean Acyclic(Map<Integer, Map<Integer, BitSet>> turns) {
+        Map<Integer, List<Integer>> dependencies = new HashMap<>();
+        Map<Integer, Integer> inDegree = new HashMap<>();
+        turns.forEach((sw, froms) -> froms.forEach((from, tos) -> {
+            int in = from * n + sw;
+            inDegree.putIfAbsent(in, 0);
+            for (int to = tos.nextSetBit(0); to >= 0; to = tos.nextSetBit(to + 1)) {
+                int outLink = sw * n + to;
+                dependencies.computeIfAbsent(in, k -> new ArrayList<>()).add(outLink);
+                inDegree.merge(outLink, 1, Integer::sum);
+            }
+        }));
+        var queue = new ArrayDeque<Integer>();
+        inDegree.forEach((link, d) -> { if (d == 0) queue.add(link); });
+        int removed = 0;
+        while (!queue.isEmpty()) {
+            int link = queue.poll();
+            removed++;
+            for (int next : dependencies.getOrDefault(link, List.of())) {
+                if (inDegree.merge(next, -1, Integer::sum) == 0) queue.add(next);
+            }
+        }
+        return removed == inDegree.size();
+    }
+}
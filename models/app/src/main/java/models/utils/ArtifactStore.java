@@ -0,0 +1,295 @@
+// MIT License
+
+// Copyright (c) 2024 Saab AB
+
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+
+package models.utils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+
+/**
+ * Content-addressed store for the files of run directories. Every file is
+ * stored once as a blob named by its SHA-256 hash, and the run directories
+ * hold hard links to the blobs plus a manifest (hash and relative path per
+ * file). The manifest entry of a file is appended and synced before the
+ * file is touched, and a file is only ever replaced atomically by a link to
+ * its blob, so an interrupted ingest never leaves a file that neither the run
+ * directory nor a manifest holds. On file systems without hard links the
+ * files stay as they are.
+ * <p>
+ * Layout: <artifactsDir>/.store/blobs/<first two hex digits>/<hash>. A blob
+ * and the files linking it are the same file, so a run file must not be
+ * modified in place once ingested: the app writes all artifacts through
+ * Printer.Replace, which swaps in a new file instead.
+ */
+public class ArtifactStore {
+    public static final String STORE_DIR = ".store";
+    public static final String MANIFEST = "artifacts.manifest";
+    private static final String BLOB_DIR = "blobs";
+    private static final String LOCK_FILE = "lock";
+
+    /**
+     * Result of ingesting or collecting garbage.
+     * @param files The number of files handled.
+     * @param bytes The number of bytes that are no longer stored twice
+     * (ingest) or that were freed (gc).
+     */
+    public record Stats(int files, long bytes) {}
+
+    private final Path artifactsDir;
+    private final Path blobDir;
+
+    /**
+     * Create a store for the run directories of <artifactsDir>.
+     * @param artifactsDir The directory holding the run directories.
+     * @throws IOException If the store directory can't be created.
+     */
+    public ArtifactStore(Path artifactsDir) throws IOException {
+        this.artifactsDir = artifactsDir;
+        this.blobDir = artifactsDir.resolve(STORE_DIR).resolve(BLOB_DIR);
+        Files.createDirectories(blobDir);
+    }
+
+    private Path BlobPath(String hash) {
+        return blobDir.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    /**
+     * Open and lock the lock file of the store, shared for ingests and
+     * exclusive for garbage collection, so gc never removes a blob that is
+     * being linked. The lock is released when the channel is closed.
+     */
+    private FileChannel Lock(boolean shared) throws IOException {
+        var channel = FileChannel.open(
+            artifactsDir.resolve(STORE_DIR).resolve(LOCK_FILE),
+            // a shared lock needs a readable channel
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE
+        );
+        try {
+            channel.lock(0, Long.MAX_VALUE, shared);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        return channel;
+    }
+
+    /**
+     * Move all files of a run directory into the store, replacing them by
+     * hard links to their blobs, and write the manifest of the run.
+     * @param runDir The run directory.
+     * @return The number of files and the number of deduplicated bytes.
+     * @throws IOException If a file can't be hashed, stored or linked.
+     */
+    public Stats Ingest(Path runDir) throws IOException {
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(runDir)) {
+            files = walk
+                .filter(Files::isRegularFile)
+                .filter(p -> !p.getFileName().toString().startsWith(MANIFEST))
+                .sorted()
+                .toList();
+        }
+
+        int count = 0;
+        long saved = 0;
+        FileChannel lock = Lock(true);
+        try (var journal = FileChannel.open(runDir.resolve(MANIFEST),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND
+        )) {
+            for (Path file : files) {
+                String hash = ContentHash.Of(file);
+                // the entry is durable before the file or the store change
+                Append(journal, hash + " " + runDir.relativize(file));
+                Path blob = BlobPath(hash);
+                if (Files.exists(blob) && Files.isSameFile(blob, file)) continue;
+
+                count++;
+
+                if (!Files.exists(blob)) {
+                    Store(file, blob);
+                } else if (ReplaceByLink(file, blob)) {
+                    saved += Files.size(blob);
+                }
+            }
+        } finally {
+            lock.close();
+        }
+        Compact(runDir);
+        return new Stats(count, saved);
+    }
+
+    /**
+     * Append an entry to a manifest and sync it to disk.
+     */
+    private static void Append(FileChannel journal, String entry) throws IOException {
+        var bytes = ByteBuffer.wrap((entry + "\n").getBytes(StandardCharsets.UTF_8));
+        while (bytes.hasRemaining()) journal.write(bytes);
+        journal.force(true);
+    }
+
+    /**
+     * Add a file as a new blob, linking it if possible so the file itself
+     * becomes the blob, and copying it otherwise. The blob appears
+     * atomically and the file is left in place.
+     */
+    private void Store(Path file, Path blob) throws IOException {
+        Files.createDirectories(blob.getParent());
+        // a unique name, so concurrent ingests don't share the temporary link
+        Path tmp = Files.createTempFile(blob.getParent(), blob.getFileName().toString(), ".tmp");
+        Files.delete(tmp);
+        try {
+            Files.createLink(tmp, file);
+        } catch (UnsupportedOperationException | IOException e) {
+            Files.copy(file, tmp, StandardCopyOption.REPLACE_EXISTING);
+        }
+        // concurrent ingests of the same content all store identical files
+        Files.move(tmp, blob, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Replace a file by a link to the blob with the same content, through a
+     * temporary link renamed over the file.
+     * @return False if links are not supported, the file is kept as is.
+     */
+    private static boolean ReplaceByLink(Path file, Path blob) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".link.tmp");
+        Files.deleteIfExists(tmp);
+        try {
+            Files.createLink(tmp, blob);
+        } catch (UnsupportedOperationException | IOException e) {
+            return false;
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return true;
+    }
+
+    /**
+     * Rewrite the manifest with one entry per file, the latest of the
+     * appended ones.
+     */
+    private static void Compact(Path runDir) throws IOException {
+        Path tmp = Files.createTempFile(runDir, MANIFEST, ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(tmp)) {
+            for (String[] entry : ReadManifest(runDir)) {
+                out.write(entry[0] + " " + entry[1]);
+                out.newLine();
+            }
+        }
+        Files.move(tmp, runDir.resolve(MANIFEST),
+            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Restore the files of a run directory that are listed in its manifest
+     * but missing, linking or copying them from the store.
+     * @param runDir The run directory.
+     * @return The number of restored files.
+     * @throws IOException If a blob is missing or can't be copied.
+     */
+    public int Checkout(Path runDir) throws IOException {
+        int restored = 0;
+        for (String[] entry : ReadManifest(runDir)) {
+            Path file = runDir.resolve(entry[1]);
+            if (Files.exists(file)) continue;
+
+            Path blob = BlobPath(entry[0]);
+            if (!Files.exists(blob)) {
+                throw new IOException("Blob " + entry[0] + " of " + file + " is missing");
+            }
+            Files.createDirectories(file.getParent());
+            try {
+                Files.createLink(file, blob);
+            } catch (UnsupportedOperationException | IOException e) {
+                Files.copy(blob, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            restored++;
+        }
+        return restored;
+    }
+
+    /**
+     * Delete all blobs that no manifest of a run directory refers to, e.g.
+     * after run directories were removed.
+     * @return The number of deleted blobs and freed bytes.
+     * @throws IOException If the store can't be listed or a blob deleted.
+     */
+    public Stats CollectGarbage() throws IOException {
+        FileChannel lock = Lock(false);
+        try {
+            Set<String> live = new HashSet<>();
+            List<Path> runs;
+            try (Stream<Path> dirs = Files.list(artifactsDir)) {
+                runs = dirs
+                    .filter(Files::isDirectory)
+                    // the store and other hidden folders, e.g. the model cache
+                    .filter(p -> !p.getFileName().toString().startsWith("."))
+                    .toList();
+            }
+            for (Path runDir : runs) {
+                for (String[] entry : ReadManifest(runDir)) live.add(entry[0]);
+            }
+
+            List<Path> blobs;
+            try (Stream<Path> walk = Files.walk(blobDir)) {
+                blobs = walk.filter(Files::isRegularFile).toList();
+            }
+            int deleted = 0;
+            long freed = 0;
+            for (Path blob : blobs) {
+                if (live.contains(blob.getFileName().toString())) continue;
+                freed += Files.size(blob);
+                Files.delete(blob);
+                deleted++;
+            }
+            return new Stats(deleted, freed);
+        } finally {
+            lock.close();
+        }
+    }
+
+    /**
+     * Read the manifest of a run directory. Of several entries of a file,
+     * e.g. appended by repeated ingests, the latest one holds.
+     * @return The [hash, relative path] entries, empty without manifest.
+     */
+    private static List<String[]> ReadManifest(Path runDir) throws IOException {
+        Path manifest = runDir.resolve(MANIFEST);
+        if (!Files.exists(manifest)) return List.of();
+        Map<String, String> hashes = new LinkedHashMap<>();
+        for (String line : Files.readAllLines(manifest)) {
+            String[] entry = line.split(" ", 2);
+            // a torn last line of an interrupted ingest is skipped
+            if (entry.length < 2 || entry[0].length() != 64) continue;
+            hashes.put(entry[1], entry[0]);
+        }
+        List<String[]> entries = new ArrayList<>();
+        hashes.forEach((path, hash) -> entries.add(new String[] {hash, path}));
+        return entries;
+    }
+}
@@ -0,0 +1,365 @@
+// MIT License
+
+// Copyright (c) 2024 Saab AB
+
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+
+package models.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+import forsyde.io.core.EdgeInfo;
+import forsyde.io.core.OpaqueTrait;
+import forsyde.io.core.SystemGraph;
+import forsyde.io.core.Trait;
+import forsyde.io.core.Vertex;
+import forsyde.io.lib.hierarchy.ForSyDeHierarchy;
+
+
+/**
+ * Compact binary format of a SystemGraph (.fiodlb), used by the ModelCache
+ * and by to_binary/from_binary. All strings (identifiers, ports,
+ * trait and property names, string values) are interned in one table and
+ * referenced by index, and the file is read through a MappedByteBuffer.
+ * <p>
+ * Layout: magic, version, SHA-256 of the source .fiodl (zeros if unknown),
+ * string table, vertex table (identifier, ports, traits, properties) and
+ * edge table (source/target vertex index, ports, traits).
+ */
+public class BinaryGraphFormat {
+    public static final String BINARY_EXT = ".fiodlb";
+
+    private static final int MAGIC = 0x46494f42; // "FIOB"
+    private static final int VERSION = 1;
+    private static final int HASH_BYTES = 32;
+    private static final int NO_REF = -1;
+
+    private static final ForSyDeHierarchy hierarchy = new ForSyDeHierarchy();
+
+    // property value tags
+    private static final byte NULL = 0, BOOL = 1, INT = 2, LONG = 3,
+        DOUBLE = 4, STRING = 5, LIST = 6, MAP = 7, FLOAT = 8;
+
+    /**
+     * Serialize a graph.
+     * @param g The graph.
+     * @param sourceHash Hex SHA-256 of the .fiodl the graph was read from, or
+     * null if unknown.
+     * @return The serialized graph.
+     * @throws IOException If the graph contains unsupported property values.
+     */
+    public static byte[] Encode(SystemGraph g, String sourceHash) throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        Encode(g, sourceHash, bytes);
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Write a graph to a file, replacing it atomically.
+     * @param g The graph.
+     * @param sourceHash Hex SHA-256 of the source .fiodl, or null if unknown.
+     * @param path Where to write the graph.
+     * @throws IOException If the file can't be written.
+     */
+    public static void Write(SystemGraph g, String sourceHash, Path path) throws IOException {
+        Path dir = path.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, path.getFileName().toString(), ".tmp");
+        try (OutputStream out = new BufferedOutputStream(
+            Files.newOutputStream(tmp), SolutionSink.BUFFER_SIZE
+        )) {
+            Encode(g, sourceHash, out);
+        }
+        Files.move(tmp, path,
+            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void Encode(SystemGraph g, String sourceHash, OutputStream stream)
+            throws IOException {
+        // intern all strings first, then write the tables as references
+        var strings = new LinkedHashMap<String, Integer>();
+        var vertexIndex = new HashMap<String, Integer>();
+        for (Vertex v : g.vertexSet()) {
+            vertexIndex.put(v.getIdentifier(), vertexIndex.size());
+            Intern(strings, v.getIdentifier());
+            v.getPorts().forEach(p -> Intern(strings, p));
+            v.getTraits().forEach(t -> Intern(strings, t.getName()));
+            for (String name : v.getPropertiesNames()) {
+                Intern(strings, name);
+                InternValue(strings, v.getProperty(name));
+            }
+        }
+        for (EdgeInfo e : g.edgeSet()) {
+            e.getSourcePort().ifPresent(p -> Intern(strings, p));
+            e.getTargetPort().ifPresent(p -> Intern(strings, p));
+            e.getTraits().forEach(t -> Intern(strings, t.getName()));
+        }
+
+        var out = new DataOutputStream(stream);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.write(sourceHash == null
+            ? new byte[HASH_BYTES]
+            : HexFormat.of().parseHex(sourceHash));
+
+        out.writeInt(strings.size());
+        for (String s : strings.keySet()) {
+            byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(utf8.length);
+            out.write(utf8);
+        }
+
+        out.writeInt(g.vertexSet().size());
+        for (Vertex v : g.vertexSet()) {
+            out.writeInt(strings.get(v.getIdentifier()));
+            WriteRefs(out, strings, v.getPorts());
+            WriteRefs(out, strings, v.getTraits().stream().map(Trait::getName).toList());
+            Set<String> names = v.getPropertiesNames();
+            out.writeInt(names.size());
+            for (String name : names) {
+                out.writeInt(strings.get(name));
+                WriteValue(out, strings, v.getProperty(name));
+            }
+        }
+
+        out.writeInt(g.edgeSet().size());
+        for (EdgeInfo e : g.edgeSet()) {
+            out.writeInt(vertexIndex.get(g.getEdgeSource(e).getIdentifier()));
+            out.writeInt(vertexIndex.get(g.getEdgeTarget(e).getIdentifier()));
+            out.writeInt(e.getSourcePort().map(strings::get).orElse(NO_REF));
+            out.writeInt(e.getTargetPort().map(strings::get).orElse(NO_REF));
+            WriteRefs(out, strings, e.getTraits().stream().map(Trait::getName).toList());
+        }
+        out.flush();
+    }
+
+    private static void Intern(Map<String, Integer> strings, String s) {
+        strings.putIfAbsent(s, strings.size());
+    }
+
+    private static void InternValue(Map<String, Integer> strings, Object value) {
+        if (value instanceof String s) {
+            Intern(strings, s);
+        } else if (value instanceof List<?> list) {
+            list.forEach(o -> InternValue(strings, o));
+        } else if (value instanceof Map<?, ?> map) {
+            map.forEach((k, o) -> {
+                Intern(strings, k.toString());
+                InternValue(strings, o);
+            });
+        }
+    }
+
+    private static void WriteRefs(
+        DataOutputStream out, Map<String, Integer> strings, Collection<String> values
+    ) throws IOException {
+        out.writeInt(values.size());
+        for (String s : values) out.writeInt(strings.get(s));
+    }
+
+    private static void WriteValue(
+        DataOutputStream out, Map<String, Integer> strings, Object value
+    ) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof Boolean b) {
+            out.writeByte(BOOL);
+            out.writeBoolean(b);
+        } else if (value instanceof Integer i) {
+            out.writeByte(INT);
+            out.writeInt(i);
+        } else if (value instanceof Long l) {
+            out.writeByte(LONG);
+            out.writeLong(l);
+        } else if (value instanceof Float f) {
+            out.writeByte(FLOAT);
+            out.writeFloat(f);
+        } else if (value instanceof Double d) {
+            out.writeByte(DOUBLE);
+            out.writeDouble(d);
+        } else if (value instanceof String s) {
+            out.writeByte(STRING);
+            out.writeInt(strings.get(s));
+        } else if (value instanceof List<?> list) {
+            out.writeByte(LIST);
+            out.writeInt(list.size());
+            for (Object o : list) WriteValue(out, strings, o);
+        } else if (value instanceof Map<?, ?> map) {
+            out.writeByte(MAP);
+            out.writeInt(map.size());
+            for (var entry : map.entrySet()) {
+                out.writeInt(strings.get(entry.getKey().toString()));
+                WriteValue(out, strings, entry.getValue());
+            }
+        } else {
+            throw new IOException(
+                "Unsupported property value " + value.getClass().getName()
+            );
+        }
+    }
+
+    /**
+     * Memory map and read a binary graph file.
+     * @param path The .fiodlb file.
+     * @return The graph.
+     * @throws IOException If the file can't be read or is invalid.
+     */
+    public static SystemGraph Read(Path path) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return Decode(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Read the hash of the .fiodl a binary graph file was created from,
+     * without reading the graph.
+     * @param path The .fiodlb file.
+     * @return The hex SHA-256, or null if unknown.
+     * @throws IOException If the file can't be read or is invalid.
+     */
+    public static String SourceHash(Path path) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(8 + HASH_BYTES);
+            while (header.hasRemaining() && channel.read(header) >= 0) { }
+            header.flip();
+            return ReadHeader(header);
+        }
+    }
+
+    private static String ReadHeader(ByteBuffer in) throws IOException {
+        if (in.remaining() < 8 + HASH_BYTES ||
+            in.getInt() != MAGIC || in.getInt() != VERSION) {
+            throw new IOException("Not a binary graph (or unsupported version)");
+        }
+        byte[] hash = new byte[HASH_BYTES];
+        in.get(hash);
+        for (byte b : hash) {
+            if (b != 0) return HexFormat.of().formatHex(hash);
+        }
+        return null;
+    }
+
+    /**
+     * Deserialize a graph.
+     * @param in The serialized graph, e.g. a mapped file.
+     * @return The graph.
+     * @throws IOException If the data is invalid.
+     */
+    public static SystemGraph Decode(ByteBuffer in) throws IOException {
+        ReadHeader(in);
+        try {
+            int numStrings = in.getInt();
+            String[] strings = new String[numStrings];
+            byte[] scratch = new byte[256];
+            for (int i = 0; i < numStrings; i++) {
+                int length = in.getInt();
+                if (scratch.length < length) scratch = new byte[length];
+                in.get(scratch, 0, length);
+                strings[i] = new String(scratch, 0, length, StandardCharsets.UTF_8);
+            }
+            // every distinct trait name is resolved once
+            Trait[] traits = new Trait[numStrings];
+
+            SystemGraph g = new SystemGraph();
+            int numVertices = in.getInt();
+            Vertex[] vertices = new Vertex[numVertices];
+            for (int i = 0; i < numVertices; i++) {
+                Vertex v = g.newVertex(strings[in.getInt()]);
+                int numPorts = in.getInt();
+                for (int p = 0; p < numPorts; p++) v.addPort(strings[in.getInt()]);
+                int numTraits = in.getInt();
+                for (int t = 0; t < numTraits; t++) {
+                    v.addTrait(TraitOf(traits, strings, in.getInt()));
+                }
+                int numProperties = in.getInt();
+                for (int p = 0; p < numProperties; p++) {
+                    String name = strings[in.getInt()];
+                    v.putProperty(name, ReadValue(in, strings));
+                }
+                vertices[i] = v;
+            }
+
+            int numEdges = in.getInt();
+            for (int i = 0; i < numEdges; i++) {
+                Vertex src = vertices[in.getInt()];
+                Vertex dst = vertices[in.getInt()];
+                int srcPort = in.getInt();
+                int dstPort = in.getInt();
+                Trait[] edgeTraits = new Trait[in.getInt()];
+                for (int t = 0; t < edgeTraits.length; t++) {
+                    edgeTraits[t] = TraitOf(traits, strings, in.getInt());
+                }
+                g.connect(src, dst,
+                    srcPort == NO_REF ? null : strings[srcPort],
+                    dstPort == NO_REF ? null : strings[dstPort],
+                    edgeTraits
+                );
+            }
+            return g;
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupt binary graph: " + e, e);
+        }
+    }
+
+    /**
+     * Find the trait with the given name in the ForSyDe hierarchy, keeping
+     * unknown traits as opaque traits.
+     */
+    private static Trait TraitOf(Trait[] resolved, String[] strings, int ref) {
+        if (resolved[ref] == null) {
+            String name = strings[ref];
+            resolved[ref] = hierarchy.resolveTrait(name)
+                .orElseGet(() -> new OpaqueTrait(name));
+        }
+        return resolved[ref];
+    }
+
+    private static Object ReadValue(ByteBuffer in, String[] strings) throws IOException {
+        byte tag = in.get();
+        switch (tag) {
+            case NULL: return null;
+            case BOOL: return in.get() != 0;
+            case INT: return in.getInt();
+            case LONG: return in.getLong();
+            case FLOAT: return in.getFloat();
+            case DOUBLE: return in.getDouble();
+            case STRING: return strings[in.getInt()];
+            case LIST: {
+                int size = in.getInt();
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) list.add(ReadValue(in, strings));
+                return list;
+            }
+            case MAP: {
+                int size = in.getInt();
+                Map<String, Object> map = new LinkedHashMap<>();
+                for (int i = 0; i < size; i++) {
+                    String key = strings[in.getInt()];
+                    map.put(key, ReadValue(in, strings));
+                }
+                return map;
+            }
+            default: throw new IOException("Invalid property tag " + tag);
+        }
+    }
+}
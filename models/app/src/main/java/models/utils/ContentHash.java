@@ -0,0 +1,72 @@
+// MIT License
+
+// Copyright (c) 2024 Saab AB
+
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+
+package models.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+
+/**
+ * SHA-256 content hashes of files, used as keys for cached and stored models.
+ */
+public class ContentHash {
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    /**
+     * Create a new SHA-256 digest.
+     * @return The digest.
+     */
+    public static MessageDigest NewDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Hash the content of a file without loading it into memory at once.
+     * @param file The file to hash.
+     * @return The hash as a lower case hex string.
+     * @throws IOException If the file can't be read.
+     */
+    public static String Of(Path file) throws IOException {
+        MessageDigest digest = NewDigest();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK_SIZE);
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Hash a byte array.
+     * @param data The data to hash.
+     * @return The hash as a lower case hex string.
+     */
+    public static String Of(byte[] data) {
+        return HexFormat.of().formatHex(NewDigest().digest(data));
+    }
+}
@@ -0,0 +1,80 @@
+// MIT License
+
+// Copyright (c) 2024 Saab AB
+
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+
+package models.utils;
+
+import java.io.IOException;
+import java.io.Writer;
+
+
+/**
+ * Writes a solution as CSV with one row per record. Columns that don't apply
+ * to a record are left empty, super loop entries are separated by spaces.
+ */
+public class CsvSolutionSink implements SolutionSink {
+    public static final String HEADER =
+        "kind,subject,target,numerator,denominator,tokens,bits_per_token,entries";
+
+    private final Writer out;
+
+    /**
+     * Create a new CSV sink, writing the header row immediately.
+     * @param out Where the rows are written to, closed with the sink.
+     * @throws IOException If the header can't be written.
+     */
+    public CsvSolutionSink(Writer out) throws IOException {
+        this.out = out;
+        out.write(HEADER + "\n");
+    }
+
+    /**
+     * Quote a field if it contains separators, quotes or line breaks.
+     * @param s The field, may be null.
+     * @return The CSV field.
+     */
+    private static String Field(String s) {
+        if (s == null) return "";
+        if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0) {
+            return s;
+        }
+        return "\"" + s.replace("\"", "\"\"") + "\"";
+    }
+
+    @Override
+    public void Accept(SolutionRecord r) throws IOException {
+        boolean throughput = r.kind() == SolutionRecord.Kind.THROUGHPUT;
+        boolean buffer = r.kind() == SolutionRecord.Kind.BUFFER;
+        out.write(r.kind().name().toLowerCase());
+        out.write(',');
+        out.write(Field(r.subject()));
+        out.write(',');
+        out.write(Field(r.target()));
+        out.write(',');
+        out.write(throughput ? Long.toString(r.numerator()) : "");
+        out.write(',');
+        out.write(throughput ? Long.toString(r.denominator()) : "");
+        out.write(',');
+        out.write(buffer ? Long.toString(r.tokens()) : "");
+        out.write(',');
+        out.write(buffer ? Long.toString(r.bitsPerToken()) : "");
+        out.write(',');
+        out.write(Field(String.join(" ", r.entries())));
+        out.write('\n');
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,215 @@
+// MIT License
+
+// Copyright (c) 2024 Saab AB
+
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+
+package models.utils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Trace of an actor chain fusion, mapping every fused actor to the original
+ * actors it replaces and the channels it hides. Records of a solution on the
+ * fused application are expanded back to the original actors with it.
+ * <p>
+ * The trace is a text file with one line per fused actor:
+ * <pre>
+ * Fused = A*1 B*2 C*1 | CH_A_B:10:8 CH_B_C:10:8
+ * </pre>
+ * where the members are firings per fused firing and the hidden channels
+ * are tokens per fused firing and bits per token.
+ */
+public class FusionTrace {
+    public static final String TRACE_EXT = ".trace";
+
+    /**
+     * An original actor of a fused actor.
+     * @param actor The identifier of the original actor.
+     * @param firings How often it fires per firing of the fused actor.
+     */
+    public record Member(String actor, long firings) {}
+
+    /**
+     * A channel between members, internal to a fused actor.
+     * @param channel The identifier of the channel.
+     * @param tokens Tokens it holds at most during a fused firing.
+     * @param bitsPerToken Size of a token in bits.
+     */
+    public record Internal(String channel, long tokens, long bitsPerToken) {}
+
+    private record Fused(List<Member> members, List<Internal> internals) {}
+
+    private final Map<String, Fused> fused = new LinkedHashMap<>();
+
+    /**
+     * Record a fused actor.
+     * @param actor The identifier of the fused actor.
+     * @param members The original actors in chain order.
+     * @param internals The channels between them.
+     */
+    public void Add(String actor, List<Member> members, List<Internal> internals) {
+        fused.put(actor, new Fused(List.copyOf(members), List.copyOf(internals)));
+    }
+
+    public boolean IsEmpty() {
+        return fused.isEmpty();
+    }
+
+    /**
+     * Get the number of fused actors.
+     */
+    public int Size() {
+        return fused.size();
+    }
+
+    /**
+     * Get the original actors of a fused actor.
+     * @param actor The identifier of the fused actor.
+     * @return The members in chain order, empty if the actor was not fused.
+     */
+    public List<Member> Members(String actor) {
+        var f = fused.get(actor);
+        return f == null ? List.of() : f.members();
+    }
+
+    /**
+     * Expand a record of a solution on the fused application to the original
+     * actors. Mappings and schedules of a fused actor hold for all members,
+     * its memory also holds the internal channels, throughputs are scaled by
+     * the firings of each member and super loops repeat the members.
+     * @param record The record of the fused solution.
+     * @return The records on the original application.
+     */
+    public List<SolutionRecord> Expand(SolutionRecord record) {
+        if (record.kind() == SolutionRecord.Kind.SUPER_LOOP) {
+            List<String> entries = new ArrayList<>();
+            for (String entry : record.entries()) {
+                var f = fused.get(entry);
+                if (f == null) {
+                    entries.add(entry);
+                    continue;
+                }
+                for (Member m : f.members()) {
+                    for (long i = 0; i < m.firings(); i++) entries.add(m.actor());
+                }
+            }
+            return List.of(SolutionRecord.SuperLoop(record.subject(), entries));
+        }
+
+        var f = fused.get(record.subject());
+        if (f == null) return List.of(record);
+        List<SolutionRecord> records = new ArrayList<>();
+        for (Member m : f.members()) {
+            records.add(switch (record.kind()) {
+                case THROUGHPUT -> SolutionRecord.Throughput(
+                    m.actor(), record.numerator() * m.firings(), record.denominator()
+                );
+                default -> new SolutionRecord(
+                    record.kind(), m.actor(), record.target(),
+                    record.numerator(), record.denominator(),
+                    record.tokens(), record.bitsPerToken(), record.entries()
+                );
+            });
+        }
+        if (record.kind() == SolutionRecord.Kind.MEMORY_MAPPING) {
+            for (Internal c : f.internals()) {
+                records.add(SolutionRecord.MemoryMapping(c.channel(), record.target()));
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Get the buffers of the internal channels, which have no counterpart in
+     * a fused solution.
+     * @return One buffer record per internal channel.
+     */
+    public List<SolutionRecord> InternalBuffers() {
+        List<SolutionRecord> records = new ArrayList<>();
+        for (Fused f : fused.values()) {
+            for (Internal c : f.internals()) {
+                records.add(SolutionRecord.Buffer(c.channel(), c.tokens(), c.bitsPerToken()));
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Write the trace to a file.
+     * @param path Where to write the trace.
+     * @throws IOException If the file can't be written.
+     */
+    public void Write(Path path) throws IOException {
+        var sb = new StringBuilder();
+        for (var e : fused.entrySet()) {
+            sb.append(e.getKey()).append(" =");
+            for (Member m : e.getValue().members()) {
+                sb.append(' ').append(m.actor()).append('*').append(m.firings());
+            }
+            sb.append(" |");
+            for (Internal c : e.getValue().internals()) {
+                sb.append(' ').append(c.channel()).append(':').append(c.tokens())
+                    .append(':').append(c.bitsPerToken());
+            }
+            sb.append('\n');
+        }
+        Printer.WriteString(path, sb.toString());
+    }
+
+    /**
+     * Read a trace written by Write.
+     * @param path The trace file.
+     * @return The trace.
+     * @throws IOException If the file can't be read or is malformed.
+     */
+    public static FusionTrace Read(Path path) throws IOException {
+        var trace = new FusionTrace();
+        int lineNumber = 0;
+        for (String line : Files.readAllLines(path)) {
+            lineNumber++;
+            if (line.isBlank()) continue;
+            int eq = line.indexOf(" =");
+            int bar = line.lastIndexOf(" |");
+            if (eq < 0 || bar < eq) {
+                throw new IOException(path + ":" + lineNumber + ": malformed fusion trace");
+            }
+            try {
+                List<Member> members = new ArrayList<>();
+                for (String m : line.substring(eq + 2, bar).trim().split(" ")) {
+                    int star = m.lastIndexOf('*');
+                    members.add(new Member(m.substring(0, star), Long.parseLong(m.substring(star + 1))));
+                }
+                List<Internal> internals = new ArrayList<>();
+                String channels = line.substring(bar + 2).trim();
+                if (!channels.isEmpty()) {
+                    for (String c : channels.split(" ")) {
+                        String[] parts = c.split(":");
+                        internals.add(new Internal(
+                            parts[0], Long.parseLong(parts[1]), Long.parseLong(parts[2])
+                        ));
+                    }
+                }
+                trace.Add(line.substring(0, eq), members, internals);
+            } catch (RuntimeException e) {
+                throw new IOException(path + ":" + lineNumber + ": malformed fusion trace", e);
+            }
+        }
+        return trace;
+    }
+}
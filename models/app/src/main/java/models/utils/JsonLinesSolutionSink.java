@@ -0,0 +1,92 @@
+// MIT License
+
+// Copyright (c) 2024 Saab AB
+
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+
+package models.utils;
+
+import java.io.IOException;
+import java.io.Writer;
+
+
+/**
+ * Writes a solution as JSON Lines, one JSON object per record, e.g.
+ * {"kind":"schedule","subject":"Actor_1","target":"APU_C0_Scheduler"}
+ */
+public class JsonLinesSolutionSink implements SolutionSink {
+    private final Writer out;
+
+    /**
+     * Create a new JSON Lines sink.
+     * @param out Where the records are written to, closed with the sink.
+     */
+    public JsonLinesSolutionSink(Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * Quote and escape a string as a JSON string.
+     * @param s The string.
+     * @return The JSON string literal.
+     */
+    static String Quote(String s) {
+        var sb = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    @Override
+    public void Accept(SolutionRecord r) throws IOException {
+        out.write("{\"kind\":" + Quote(r.kind().name().toLowerCase()));
+        out.write(",\"subject\":" + Quote(r.subject()));
+        switch (r.kind()) {
+            case MEMORY_MAPPING, SCHEDULE, PL_MAPPING ->
+                out.write(",\"target\":" + Quote(r.target()));
+            case SUPER_LOOP -> {
+                out.write(",\"entries\":[");
+                for (int i = 0; i < r.entries().size(); i++) {
+                    if (i > 0) out.write(',');
+                    out.write(Quote(r.entries().get(i)));
+                }
+                out.write(']');
+            }
+            case THROUGHPUT -> out.write(
+                ",\"numerator\":" + r.numerator() +
+                ",\"denominator\":" + r.denominator()
+            );
+            case BUFFER -> out.write(
+                ",\"tokens\":" + r.tokens() +
+                ",\"bitsPerToken\":" + r.bitsPerToken() +
+                ",\"bytes\":" + r.BufferBytes()
+            );
+        }
+        out.write("}\n");
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,148 @@
+// MIT License
+
+// Copyright (c) 2024 Saab AB
+
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+
+package models.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import forsyde.io.core.SystemGraph;
+
+
+/**
+ * Cache of parsed models keyed by the SHA-256 hash of the model file. Parsed
+ * models are kept as binary sidecars (.fiodlb) in $MODEL_CACHE_DIR (a
+ * 'model-cache' folder in the temporary directory if unset), never next to
+ * the model, so run folders hold no cache files, and in a size bounded
+ * in-memory LRU, so loading an
+ * unchanged model costs a hash of the file and a memory mapped read instead
+ * of a parse. Every load returns a fresh graph, callers may modify it.
+ */
+public class ModelCache {
+    public static final String CACHE_DIR_ENV = "MODEL_CACHE_DIR";
+    private static final String DEFAULT_CACHE_DIR = "model-cache";
+    private static final long MAX_MEMORY_BYTES = 256 * Units.MB;
+
+    /**
+     * Parses the model when it is not cached.
+     */
+    @FunctionalInterface
+    public interface Loader {
+        SystemGraph Load() throws Exception;
+    }
+
+    private static final LinkedHashMap<String, byte[]> memory =
+        new LinkedHashMap<>(16, 0.75f, true);
+    private static long memoryBytes = 0;
+
+    /**
+     * Get where the binary sidecar of a model is stored,
+     * $MODEL_CACHE_DIR/<hash>.fiodlb.
+     * @param hash The content hash of the model file.
+     * @return The sidecar path.
+     */
+    public static Path SidecarPath(String hash) {
+        String dir = System.getenv(CACHE_DIR_ENV);
+        Path cacheDir = dir != null && !dir.isBlank()
+            ? Path.of(dir)
+            : Path.of(System.getProperty("java.io.tmpdir"), DEFAULT_CACHE_DIR);
+        return cacheDir.resolve(hash + BinaryGraphFormat.BINARY_EXT);
+    }
+
+    /**
+     * Load a model through the cache.
+     * @param file The model file.
+     * @param loader Parses the model on a cache miss.
+     * @return The model.
+     * @throws Exception If the model can't be parsed.
+     */
+    public static SystemGraph Load(Path file, Loader loader) throws Exception {
+        String hash = ContentHash.Of(file);
+
+        byte[] encoded = GetMemory(hash);
+        if (encoded != null) {
+            return BinaryGraphFormat.Decode(ByteBuffer.wrap(encoded));
+        }
+
+        Path sidecar = SidecarPath(hash);
+        if (Files.exists(sidecar)) {
+            try {
+                // a sidecar of an older version of the model is just rewritten
+                if (hash.equals(BinaryGraphFormat.SourceHash(sidecar))) {
+                    if (Files.size(sidecar) > MAX_MEMORY_BYTES) return BinaryGraphFormat.Read(sidecar);
+                    // kept in memory, so later loads in the same JVM skip the file
+                    encoded = Files.readAllBytes(sidecar);
+                    PutMemory(hash, encoded);
+                    return BinaryGraphFormat.Decode(ByteBuffer.wrap(encoded));
+                }
+            } catch (IOException e) {
+                System.err.println(
+                    "Ignoring invalid sidecar " + sidecar + ": " + e.getMessage()
+                );
+            }
+        }
+
+        SystemGraph g = loader.Load();
+        Store(g, hash, sidecar);
+        return g;
+    }
+
+    /**
+     * Store a freshly parsed model, only parse results are cached so a load
+     * returns the same graph with or without a sidecar.
+     */
+    private static void Store(SystemGraph g, String hash, Path sidecar) {
+        try {
+            byte[] encoded = BinaryGraphFormat.Encode(g, hash);
+            PutMemory(hash, encoded);
+            // write and rename, so concurrent readers never see partial sidecars
+            Path dir = sidecar.toAbsolutePath().getParent();
+            Files.createDirectories(dir);
+            Path tmp = Files.createTempFile(dir, hash, ".tmp");
+            Files.write(tmp, encoded);
+            Files.move(tmp, sidecar,
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Failed to cache " + sidecar + ": " + e.getMessage());
+        }
+    }
+
+    private static synchronized byte[] GetMemory(String hash) {
+        return memory.get(hash);
+    }
+
+    /**
+     * Add an encoded model to the in-memory LRU, evicting the least recently
+     * used models when the memory bound is exceeded.
+     */
+    private static synchronized void PutMemory(String hash, byte[] encoded) {
+        if (encoded.length > MAX_MEMORY_BYTES) return;
+        byte[] previous = memory.put(hash, encoded);
+        if (previous != null) memoryBytes -= previous.length;
+        memoryBytes += encoded.length;
+
+        Iterator<Map.Entry<String, byte[]>> it = memory.entrySet().iterator();
+        while (memoryBytes > MAX_MEMORY_BYTES && it.hasNext()) {
+            var eldest = it.next();
+            memoryBytes -= eldest.getValue().length;
+            it.remove();
+        }
+    }
+}
@@ -1,5 +1,15 @@
 package models.utils;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
 import forsyde.io.core.ModelHandler;
 import forsyde.io.core.SystemGraph;
 import forsyde.io.lib.hierarchy.ForSyDeHierarchy;
@@ -12,6 +22,9 @@ import forsyde.io.visual.kgt.drivers.KGTDriver;
 public class Printer {
     public static final String FIODL_EXT = ".fiodl";
     public static final String KGT_EXT = ".kgt";
+    public static final String GZ_EXT = ".gz";
+    public static final String CACHE_ENV = "MODEL_CACHE";
+    public static final String COMPRESSION_ENV = "ARTIFACT_COMPRESSION";
 
     private String filePath;
     private String fileName;
@@ -27,9 +40,13 @@ public class Printer {
         SetFileDir();
     }
 
-    private static ModelHandler handler = new ModelHandler()
+    // ModelHandler and its drivers are not known to be thread-safe, so the
+    // threads of SolutionProcessor each load and write with their own
+    private static final ThreadLocal<ModelHandler> handler = ThreadLocal.withInitial(
+        () -> new ModelHandler()
             .registerTraitHierarchy(new ForSyDeHierarchy())
-            .registerDriver(new KGTDriver());
+            .registerDriver(new KGTDriver())
+    );
 
     /**
      * Identify the containing folder of file in <filePath>.
@@ -42,9 +59,38 @@ public class Printer {
      * Identify the file name from the given <filePath>.
      */
     private void SetFileName() {
-        this.fileName = filePath.substring(
-            filePath.lastIndexOf('/') + 1, filePath.lastIndexOf('.')
-        );
+        this.fileName = BaseName(filePath.substring(filePath.lastIndexOf('/') + 1));
+    }
+
+    /**
+     * Strip the extension, and a trailing .gz, from a file name.
+     * @param fileName The file name, e.g. 'solution_1.fiodl.gz'.
+     * @return The name without extension, e.g. 'solution_1'.
+     */
+    public static String BaseName(String fileName) {
+        if (fileName.endsWith(GZ_EXT)) {
+            fileName = fileName.substring(0, fileName.length() - GZ_EXT.length());
+        }
+        int dot = fileName.lastIndexOf('.');
+        return dot < 0 ? fileName : fileName.substring(0, dot);
+    }
+
+    /**
+     * Check if a file is a system specification, compressed or not.
+     * @param fileName The file name.
+     * @return True for .fiodl and .fiodl.gz files.
+     */
+    public static boolean IsFiodl(String fileName) {
+        return fileName.endsWith(FIODL_EXT) || fileName.endsWith(FIODL_EXT + GZ_EXT);
+    }
+
+    /**
+     * Check if written artifacts are gzip-compressed, which is enabled by
+     * ARTIFACT_COMPRESSION=gzip.
+     * @return True if .fiodl and .kgt files are written as .gz.
+     */
+    public static boolean Compressed() {
+        return "gzip".equals(System.getenv(COMPRESSION_ENV));
     }
 
     /**
@@ -69,30 +115,186 @@ public class Printer {
      * @throws Exception
      */
     public void PrintFIODL(SystemGraph g) throws Exception {
-        String outPath = fileDir + "/" + fileName + FIODL_EXT;
-        handler.writeModel(g, outPath);
+        String outPath = fileDir + "/" + fileName + FIODL_EXT + (Compressed() ? GZ_EXT : "");
+        WriteModel(g, outPath);
         System.out.println(
             "Design model '" + fileName + "' written to '" + outPath + "'"
         );
     }
 
+    /**
+     * Write the SystemGraph in the binary .fiodlb format.
+     * @param g
+     * @throws Exception
+     */
+    public void PrintBinary(SystemGraph g) throws Exception {
+        String outPath = fileDir + "/" + fileName + BinaryGraphFormat.BINARY_EXT;
+        String sourceHash = IsFiodl(filePath)
+            ? ContentHash.Of(Path.of(filePath))
+            : null;
+        BinaryGraphFormat.Write(g, sourceHash, Path.of(outPath));
+        System.out.println(
+            "Binary model '" + fileName + "' written to '" + outPath + "'"
+        );
+    }
+
     /**
      * Write the SystemGraph as a .kgt file.
      */
     public void PrintKGT(SystemGraph g) throws Exception {
-        String outPath = fileDir + "/" + fileName + KGT_EXT;
-        handler.writeModel(g, outPath);
+        String outPath = fileDir + "/" + fileName + KGT_EXT + (Compressed() ? GZ_EXT : "");
+        WriteModel(g, outPath);
         System.out.println(
             "Visualization of '" + fileName + "' model written to '" + outPath + "'"
         );
     }
 
     /**
-     * Read the system specification <filePath> from the file system.
+     * Read the system specification <filePath> from the file system. Binary
+     * .fiodlb files are memory mapped, .gz files are decompressed and unless
+     * MODEL_CACHE=off, .fiodl files are loaded through the ModelCache.
      * @return The specification converted to a SystemGraph.
      * @throws Exception If the file can't be read.
      */
     public SystemGraph Read() throws Exception {
-        return handler.loadModel(filePath);
+        if (filePath.endsWith(BinaryGraphFormat.BINARY_EXT)) {
+            return BinaryGraphFormat.Read(Path.of(filePath));
+        }
+        if (!IsFiodl(filePath) || !CacheEnabled()) {
+            return LoadModel(filePath);
+        }
+        return ModelCache.Load(Path.of(filePath), () -> LoadModel(filePath));
+    }
+
+    /**
+     * Load a model with the handler, streaming .gz files through a temporary
+     * uncompressed file since the drivers are selected by file extension.
+     */
+    private static SystemGraph LoadModel(String path) throws Exception {
+        if (!path.endsWith(GZ_EXT)) return handler.get().loadModel(path);
+
+        String plainName = path.substring(path.lastIndexOf('/') + 1, path.length() - GZ_EXT.length());
+        Path tmp = Files.createTempFile(null, "_" + plainName);
+        try {
+            Decompress(Path.of(path), tmp);
+            return handler.get().loadModel(tmp.toString());
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Write a model with the handler, compressing it into <path> when it
+     * ends with .gz.
+     */
+    private static void WriteModel(SystemGraph g, String path) throws Exception {
+        if (!path.endsWith(GZ_EXT)) {
+            // the drivers are selected by extension, so the name is kept
+            Path out = Path.of(path);
+            Path tmp = TempFile(out, "_" + out.getFileName());
+            try {
+                handler.get().writeModel(g, tmp.toString());
+                Replace(tmp, out);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+            return;
+        }
+
+        Path out = Path.of(path);
+        String plainName = out.getFileName().toString();
+        plainName = plainName.substring(0, plainName.length() - GZ_EXT.length());
+        Path tmp = Files.createTempFile(null, "_" + plainName);
+        try {
+            handler.get().writeModel(g, tmp.toString());
+            Compress(tmp, out);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Gzip a file, streaming it in chunks. The target is replaced atomically.
+     * @param source The file to compress.
+     * @param target The .gz file to write.
+     * @throws IOException If a file can't be read or written.
+     */
+    public static void Compress(Path source, Path target) throws IOException {
+        Path tmp = TempFile(target, ".tmp");
+        try (InputStream in = Files.newInputStream(source);
+             OutputStream out = new GZIPOutputStream(
+                Files.newOutputStream(tmp), SolutionSink.BUFFER_SIZE
+             )) {
+            in.transferTo(out);
+        }
+        Replace(tmp, target);
+    }
+
+    /**
+     * Write a text file, replacing it atomically.
+     * @param path The file to write.
+     * @param text The content.
+     * @throws IOException If the file can't be written.
+     */
+    public static void WriteString(Path path, String text) throws IOException {
+        Path tmp = TempFile(path, ".tmp");
+        try {
+            Files.writeString(tmp, text);
+            Replace(tmp, path);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Get an unused temporary path in the folder of <target>, to be written
+     * and then moved over <target> with Replace. The file is not created, so
+     * it gets the usual permissions when it is written.
+     * @param target The file that will be replaced.
+     * @param suffix The suffix of the temporary file.
+     * @return The temporary path.
+     * @throws IOException If the folder can't be created.
+     */
+    public static Path TempFile(Path target, String suffix) throws IOException {
+        Path dir = target.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path tmp;
+        do {
+            long id = ThreadLocalRandom.current().nextLong();
+            tmp = dir.resolve("." + Long.toUnsignedString(id, 36) + suffix);
+        } while (Files.exists(tmp));
+        return tmp;
+    }
+
+    /**
+     * Move a written temporary file over <target> in one step. Files of a
+     * run folder in the ArtifactStore are hard links to blobs shared with
+     * other runs, so artifacts are always replaced this way and never
+     * written in place.
+     * @param tmp The temporary file from TempFile.
+     * @param target The file to replace.
+     * @throws IOException If the file can't be moved.
+     */
+    public static void Replace(Path tmp, Path target) throws IOException {
+        Files.move(tmp, target,
+            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Gunzip a file, streaming it in chunks.
+     * @param source The .gz file.
+     * @param target The uncompressed file to write.
+     * @throws IOException If a file can't be read or written.
+     */
+    public static void Decompress(Path source, Path target) throws IOException {
+        try (InputStream in = new GZIPInputStream(
+                Files.newInputStream(source), SolutionSink.BUFFER_SIZE
+             )) {
+            Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static boolean CacheEnabled() {
+        return !"off".equals(System.getenv(CACHE_ENV));
     }
 }
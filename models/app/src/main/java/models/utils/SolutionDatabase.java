@@ -0,0 +1,514 @@
+// MIT License
+
+// Copyright (c) 2024 Saab AB
+
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+
+package models.utils;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+
+/**
+ * Local, append-only columnar store of parsed DSE solutions with one row per
+ * actor/buffer per solution. Strings are dictionary encoded, every column is
+ * its own file, and rows are only ever appended.
+ * <p>
+ * The commit file holds the number of committed rows and the committed
+ * sizes of the dictionary and the source list. An append writes and syncs
+ * all files and then atomically replaces the commit file, and anything past
+ * the committed sizes (left by an interrupted append) is truncated on open
+ * and before the next append, so the columns never get out of step.
+ * <p>
+ * Platform, application and actor are indexed: a column per indexed column
+ * links every row to the previous row with the same value, and the commit
+ * file holds the last row and the number of rows of each value. Queries
+ * walk the rows of the most selective value without scanning the store.
+ */
+public class SolutionDatabase {
+    private static final String DICT_FILE = "strings.dict";
+    private static final String SOURCES_FILE = "sources.txt";
+    private static final String COMMIT_FILE = "commit";
+    private static final String COL_EXT = ".col";
+    private static final int NONE = -1;
+
+    private static final String[] INT_COLUMNS = {
+        "platform", "application", "run", "solution", "kind",
+        "name", "memory", "scheduler", "fpga",
+        "platform_prev", "application_prev", "name_prev"
+    };
+    private static final String[] LONG_COLUMNS = {
+        "thr_num", "thr_den", "buffer_bytes"
+    };
+    private static final int PLATFORM = 0, APPLICATION = 1, RUN = 2, SOLUTION = 3,
+        KIND = 4, NAME = 5, MEMORY = 6, SCHEDULER = 7, FPGA = 8;
+    private static final int THR_NUM = 0, THR_DEN = 1, BUFFER_BYTES = 2;
+    private static final int KIND_ACTOR = 0, KIND_BUFFER = 1;
+    // the indexed columns and the columns linking their rows per value
+    private static final int[] INDEXED = {PLATFORM, APPLICATION, NAME};
+    private static final int[] PREVIOUS = {9, 10, 11};
+
+    /**
+     * A row of the store.
+     */
+    public record Row(
+        String platform, String application, String run, String solution,
+        boolean isBuffer, String name, String memory, String scheduler,
+        String fpga, long throughputNumerator, long throughputDenominator,
+        long bufferBytes
+    ) {
+        @Override
+        public String toString() {
+            return String.join(" | ",
+                platform, application, run, solution, name,
+                "mem=" + memory,
+                isBuffer ? "bytes=" + bufferBytes
+                    : (fpga != null ? "fpga=" + fpga : "sched=" + scheduler) +
+                    " thr=" + throughputNumerator + "/" + throughputDenominator
+            );
+        }
+    }
+
+    private final Path dir;
+    private final List<String> strings = new ArrayList<>();
+    private final Map<String, Integer> stringIds = new HashMap<>();
+    private final Set<String> sources = new HashSet<>();
+    private IntBuffer[] intColumns;
+    private LongBuffer[] longColumns;
+    private boolean stale = false;
+    // the committed state, see the class doc
+    private int rows;
+    private int committedStrings;
+    private long dictBytes;
+    private long sourcesBytes;
+    // per indexed column and value: {last row, number of rows}
+    private List<Map<Integer, int[]>> heads;
+
+    /**
+     * Open (or create) a store, dropping what an interrupted append left.
+     * @param dir The directory of the store.
+     * @throws IOException If the store can't be read.
+     */
+    public SolutionDatabase(Path dir) throws IOException {
+        this.dir = dir;
+        Files.createDirectories(dir);
+        ReadCommit();
+        Rollback();
+        Path dict = dir.resolve(DICT_FILE);
+        if (Files.exists(dict)) {
+            for (String s : Files.readAllLines(dict, StandardCharsets.UTF_8)) {
+                stringIds.put(s, strings.size());
+                strings.add(s);
+            }
+        }
+        committedStrings = strings.size();
+        Path src = dir.resolve(SOURCES_FILE);
+        if (Files.exists(src)) {
+            sources.addAll(Files.readAllLines(src, StandardCharsets.UTF_8));
+        }
+        MapColumns();
+    }
+
+    /**
+     * Read the committed state. Without a commit file the store is empty.
+     * @throws IOException If the commit file can't be read.
+     */
+    private void ReadCommit() throws IOException {
+        heads = new ArrayList<>();
+        for (int i = 0; i < INDEXED.length; i++) heads.add(new HashMap<>());
+        Path commit = dir.resolve(COMMIT_FILE);
+        if (!Files.exists(commit)) return;
+
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(commit)))) {
+            rows = in.readInt();
+            dictBytes = in.readLong();
+            sourcesBytes = in.readLong();
+            for (var index : heads) {
+                int values = in.readInt();
+                for (int i = 0; i < values; i++) {
+                    int value = in.readInt();
+                    int last = in.readInt();
+                    int count = in.readInt();
+                    index.put(value, new int[] {last, count});
+                }
+            }
+        }
+    }
+
+    /**
+     * Replace the commit file, making an append visible.
+     * @throws IOException If the commit file can't be written.
+     */
+    private void WriteCommit(
+        int rows, long dictBytes, long sourcesBytes, List<Map<Integer, int[]>> heads
+    ) throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        var out = new DataOutputStream(bytes);
+        out.writeInt(rows);
+        out.writeLong(dictBytes);
+        out.writeLong(sourcesBytes);
+        for (var index : heads) {
+            out.writeInt(index.size());
+            for (var entry : index.entrySet()) {
+                out.writeInt(entry.getKey());
+                out.writeInt(entry.getValue()[0]);
+                out.writeInt(entry.getValue()[1]);
+            }
+        }
+        out.flush();
+
+        Path tmp = dir.resolve(COMMIT_FILE + ".tmp");
+        try (var channel = FileChannel.open(tmp,
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+            var data = ByteBuffer.wrap(bytes.toByteArray());
+            while (data.hasRemaining()) channel.write(data);
+            channel.force(true);
+        }
+        Files.move(tmp, dir.resolve(COMMIT_FILE),
+            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Truncate all files to their committed sizes.
+     * @throws IOException If a file can't be truncated.
+     */
+    private void Rollback() throws IOException {
+        for (String column : INT_COLUMNS) {
+            Truncate(dir.resolve(column + COL_EXT), (long) rows * Integer.BYTES);
+        }
+        for (String column : LONG_COLUMNS) {
+            Truncate(dir.resolve(column + COL_EXT), (long) rows * Long.BYTES);
+        }
+        Truncate(dir.resolve(DICT_FILE), dictBytes);
+        Truncate(dir.resolve(SOURCES_FILE), sourcesBytes);
+    }
+
+    private static void Truncate(Path file, long size) throws IOException {
+        if (!Files.exists(file)) return;
+        try (var channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            if (channel.size() > size) channel.truncate(size);
+        }
+    }
+
+    /**
+     * Memory map the committed rows of all columns.
+     * @throws IOException If a column can't be mapped.
+     */
+    private void MapColumns() throws IOException {
+        intColumns = new IntBuffer[INT_COLUMNS.length];
+        longColumns = new LongBuffer[LONG_COLUMNS.length];
+        for (int c = 0; c < INT_COLUMNS.length; c++) {
+            intColumns[c] = MapColumn(INT_COLUMNS[c], (long) rows * Integer.BYTES).asIntBuffer();
+        }
+        for (int c = 0; c < LONG_COLUMNS.length; c++) {
+            longColumns[c] = MapColumn(LONG_COLUMNS[c], (long) rows * Long.BYTES).asLongBuffer();
+        }
+    }
+
+    private ByteBuffer MapColumn(String column, long size) throws IOException {
+        if (size == 0) return ByteBuffer.allocate(0);
+        try (var channel = FileChannel.open(dir.resolve(column + COL_EXT), StandardOpenOption.READ)) {
+            if (channel.size() < size) {
+                throw new IOException("Column " + column + " is shorter than the committed rows");
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+    }
+
+    /**
+     * Remap the columns if rows were appended since they were last mapped.
+     * @throws IOException If a column can't be mapped.
+     */
+    private void Refresh() throws IOException {
+        if (stale) {
+            MapColumns();
+            stale = false;
+        }
+    }
+
+    /**
+     * Get the number of rows in the store.
+     * @return The number of rows.
+     */
+    public synchronized int Size() throws IOException {
+        Refresh();
+        return rows;
+    }
+
+    /**
+     * Check whether a solution was already added.
+     * @param run The run directory name.
+     * @param solution The solution name.
+     * @return True if the solution is in the store.
+     */
+    public boolean Contains(String run, String solution) {
+        return sources.contains(run + "/" + solution);
+    }
+
+    /**
+     * Create a sink that collects the records of one solution and appends
+     * them as rows when closed.
+     * @param platform The platform of the run.
+     * @param application The application of the run.
+     * @param run The run directory name.
+     * @param solution The solution name.
+     * @return The sink.
+     */
+    public SolutionSink Sink(
+        String platform, String application, String run, String solution
+    ) {
+        return new SolutionSink() {
+            private final Map<String, long[]> actors = new LinkedHashMap<>();
+
+            private long[] Row(String name) {
+                return actors.computeIfAbsent(name, n -> new long[] {
+                    KIND_ACTOR, NONE, NONE, NONE, 0, 0, 0
+                });
+            }
+
+            @Override
+            public void Accept(SolutionRecord r) {
+                switch (r.kind()) {
+                    case MEMORY_MAPPING -> Row(r.subject())[1] = Intern(r.target());
+                    case SCHEDULE -> Row(r.subject())[2] = Intern(r.target());
+                    case PL_MAPPING -> Row(r.subject())[3] = Intern(r.target());
+                    case THROUGHPUT -> {
+                        Row(r.subject())[4] = r.numerator();
+                        Row(r.subject())[5] = r.denominator();
+                    }
+                    case BUFFER -> {
+                        Row(r.subject())[0] = KIND_BUFFER;
+                        Row(r.subject())[6] = r.BufferBytes();
+                    }
+                    case SUPER_LOOP -> { }
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                Append(platform, application, run, solution, actors);
+            }
+        };
+    }
+
+    private int Intern(String s) {
+        Integer id = stringIds.get(s);
+        if (id != null) return id;
+        id = strings.size();
+        strings.add(s);
+        stringIds.put(s, id);
+        return id;
+    }
+
+    /**
+     * Append the rows of one solution to all columns and commit them.
+     * @param actors Per actor/buffer: kind, memory, scheduler, fpga,
+     * throughput numerator, denominator and buffer bytes.
+     * @throws IOException If the store can't be written.
+     */
+    private synchronized void Append(
+        String platform, String application, String run, String solution,
+        Map<String, long[]> actors
+    ) throws IOException {
+        int p = Intern(platform), a = Intern(application),
+            ru = Intern(run), s = Intern(solution);
+        int n = actors.size();
+
+        var ints = new ByteBuffer[INT_COLUMNS.length];
+        for (int c = 0; c < ints.length; c++) ints[c] = ByteBuffer.allocate(n * 4);
+        var longs = new ByteBuffer[LONG_COLUMNS.length];
+        for (int c = 0; c < longs.length; c++) longs[c] = ByteBuffer.allocate(n * 8);
+
+        // the indexes continue from the committed heads, which stay as they
+        // are until the commit
+        List<Map<Integer, int[]>> next = new ArrayList<>();
+        for (var index : heads) next.add(new HashMap<>(index));
+        int row = rows;
+        for (var entry : actors.entrySet()) {
+            long[] v = entry.getValue();
+            int nm = Intern(entry.getKey());
+            int[] indexed = {p, a, nm};
+            ints[PLATFORM].putInt(p);
+            ints[APPLICATION].putInt(a);
+            ints[RUN].putInt(ru);
+            ints[SOLUTION].putInt(s);
+            ints[KIND].putInt((int) v[0]);
+            ints[NAME].putInt(nm);
+            ints[MEMORY].putInt((int) v[1]);
+            ints[SCHEDULER].putInt((int) v[2]);
+            ints[FPGA].putInt((int) v[3]);
+            longs[THR_NUM].putLong(v[4]);
+            longs[THR_DEN].putLong(v[5]);
+            longs[BUFFER_BYTES].putLong(v[6]);
+            for (int i = 0; i < INDEXED.length; i++) {
+                int[] head = next.get(i).get(indexed[i]);
+                ints[PREVIOUS[i]].putInt(head == null ? NONE : head[0]);
+                next.get(i).put(indexed[i], new int[] {row, head == null ? 1 : head[1] + 1});
+            }
+            row++;
+        }
+
+        var dict = new StringBuilder();
+        for (int i = committedStrings; i < strings.size(); i++) {
+            dict.append(strings.get(i)).append('\n');
+        }
+        String key = run + "/" + solution;
+
+        // drop whatever a failed append left behind, then write and sync
+        // everything before the commit makes it visible
+        Rollback();
+        long newDictBytes = dictBytes + AppendFile(DICT_FILE,
+            ByteBuffer.wrap(dict.toString().getBytes(StandardCharsets.UTF_8)));
+        for (int c = 0; c < INT_COLUMNS.length; c++) AppendFile(INT_COLUMNS[c] + COL_EXT, ints[c].flip());
+        for (int c = 0; c < LONG_COLUMNS.length; c++) AppendFile(LONG_COLUMNS[c] + COL_EXT, longs[c].flip());
+        long newSourcesBytes = sourcesBytes + AppendFile(SOURCES_FILE,
+            ByteBuffer.wrap((key + "\n").getBytes(StandardCharsets.UTF_8)));
+        WriteCommit(rows + n, newDictBytes, newSourcesBytes, next);
+
+        rows += n;
+        dictBytes = newDictBytes;
+        sourcesBytes = newSourcesBytes;
+        committedStrings = strings.size();
+        heads = next;
+        sources.add(key);
+        stale = true;
+    }
+
+    /**
+     * Append data to a file of the store and sync it.
+     * @return The number of appended bytes.
+     */
+    private long AppendFile(String file, ByteBuffer data) throws IOException {
+        long size = data.remaining();
+        try (var channel = FileChannel.open(dir.resolve(file),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (data.hasRemaining()) channel.write(data);
+            channel.force(false);
+        }
+        return size;
+    }
+    private String Str(int id) {
+        return id == NONE ? null : strings.get(id);
+    }
+
+    private Row Get(int r) {
+        return new Row(
+            Str(intColumns[PLATFORM].get(r)), Str(intColumns[APPLICATION].get(r)),
+            Str(intColumns[RUN].get(r)), Str(intColumns[SOLUTION].get(r)),
+            intColumns[KIND].get(r) == KIND_BUFFER, Str(intColumns[NAME].get(r)),
+            Str(intColumns[MEMORY].get(r)), Str(intColumns[SCHEDULER].get(r)),
+            Str(intColumns[FPGA].get(r)),
+            longColumns[THR_NUM].get(r), longColumns[THR_DEN].get(r),
+            longColumns[BUFFER_BYTES].get(r)
+        );
+    }
+
+    /**
+     * Find all rows matching the given platform, application and actor (or
+     * buffer) name. The rows of the most selective value are walked through
+     * its index, and checked against the other values.
+     * @param platform The platform name, null matches all.
+     * @param application The application name, null matches all.
+     * @param name The actor or buffer name, null matches all.
+     * @return The matching rows in insertion order.
+     * @throws IOException If the columns can't be mapped.
+     */
+    public synchronized List<Row> Query(String platform, String application, String name)
+            throws IOException {
+        Refresh();
+        String[] values = {platform, application, name};
+        int[] filter = new int[values.length];
+        int best = -1;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == null) continue;
+            filter[i] = Lookup(values[i]);
+            int[] head = heads.get(i).get(filter[i]);
+            if (head == null) return List.of(); // unknown string or no rows
+            if (best < 0 || head[1] < heads.get(best).get(filter[best])[1]) best = i;
+        }
+
+        List<Row> result = new ArrayList<>();
+        if (best < 0) {
+            for (int r = 0; r < rows; r++) result.add(Get(r));
+            return result;
+        }
+        int[] head = heads.get(best).get(filter[best]);
+        int[] candidates = new int[head[1]];
+        int r = head[0];
+        for (int k = candidates.length - 1; k >= 0; k--) {
+            candidates[k] = r;
+            r = intColumns[PREVIOUS[best]].get(r);
+        }
+        for (int c : candidates) {
+            boolean match = true;
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] != null && intColumns[INDEXED[i]].get(c) != filter[i]) match = false;
+            }
+            if (match) result.add(Get(c));
+        }
+        return result;
+    }
+
+    private int Lookup(String s) {
+        if (s == null) return NONE;
+        return stringIds.getOrDefault(s, Integer.MIN_VALUE);
+    }
+
+    /**
+     * Parse and add all solutions (solution_N.fiodl) of the run directories
+     * in <artifactsDir>. Run directories are named <platform>-<app>-<time>,
+     * solutions already in the store are skipped.
+     * @param artifactsDir The directory holding the run directories.
+     * @return The number of added solutions.
+     * @throws Exception If a solution can't be read.
+     */
+    public int IngestArtifacts(Path artifactsDir) throws Exception {
+        List<Path> runs;
+        try (var files = Files.list(artifactsDir)) {
+            runs = files.filter(Files::isDirectory).sorted().toList();
+        }
+        int added = 0;
+        for (Path runDir : runs) {
+            String run = runDir.getFileName().toString();
+            String[] parts = run.split("-", 3);
+            if (parts.length < 3) continue;
+
+            for (Path solution : SolutionProcessor.ListSolutions(runDir)) {
+                String name = solution.getFileName().toString();
+                if (!name.startsWith(SolutionProcessor.SOLUTION_PREFIX)) continue;
+                String solutionName = Printer.BaseName(name);
+                if (Contains(run, solutionName)) continue;
+
+                var parser = new SolutionParser(new Printer(solution.toString()).Read());
+                try (var sink = Sink(parts[0], parts[1], run, solutionName)) {
+                    parser.ParseSolution(sink);
+                }
+                added++;
+            }
+        }
+        return added;
+    }
+}
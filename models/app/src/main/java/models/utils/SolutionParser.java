@@ -15,6 +15,8 @@
 package models.utils;
 
 import forsyde.io.core.SystemGraph;
+import forsyde.io.core.Trait;
+import forsyde.io.core.Vertex;
 import forsyde.io.lib.hierarchy.ForSyDeHierarchy.MemoryMapped;
 import forsyde.io.lib.hierarchy.ForSyDeHierarchy.Scheduled;
 import forsyde.io.lib.hierarchy.ForSyDeHierarchy.AnalyzedBehavior;
@@ -23,23 +25,32 @@ import forsyde.io.lib.hierarchy.ForSyDeHierarchy.LogicProgrammableSynthetized;
 import forsyde.io.lib.hierarchy.ForSyDeHierarchy.SuperLoopRuntime;
 
 import java.io.IOException;
-import java.io.FileWriter;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
 
 
 /**
- * Functionality to derive concise information from DSE solutions.
+ * Functionality to derive concise information from DSE solutions. The
+ * solution graph is traversed once and every finding is streamed as a
+ * SolutionRecord to one or more sinks (text, JSON Lines, CSV). Solutions on
+ * an application with fused actor chains are expanded back to the original
+ * actors through the FusionTrace.
  */
 public class SolutionParser {
-    private final String BOLD = "\033[1m";
-    private final String STOPBOLD = "\033[0m";
+    // the solution traits, as bits of the traits a vertex has
+    private static final int PL_MAPPING = 1, MEMORY_MAPPING = 2, SCHEDULE = 4;
+    private static final int SUPER_LOOP = 8, THROUGHPUT = 16, BUFFER = 32;
+    private static final int ALL = 63;
+
+    /** Trait names found on vertices without any solution trait. */
+    private final Set<String> plainTraits = new HashSet<>();
+
     private SystemGraph graph;
-    private StringBuilder memoryMappings;
-    private StringBuilder schedules;
-    private StringBuilder plMappings;
-    private StringBuilder superLoops;
-    private StringBuilder actorThroughputs;
-    private StringBuilder boundedBuffers;
-    private String solution;
+    private SolutionSink[] sinks;
+    private FusionTrace trace;
+    private boolean parsed = false;
+    private double minThroughput = Double.NaN;
 
     /**
      * Create a new instance of the parser.
@@ -47,28 +58,22 @@ public class SolutionParser {
      */
     public SolutionParser(SystemGraph g) {
         this.graph = g;
-        this.memoryMappings = new StringBuilder(
-            "\n" + BOLD + "Mappings: Actor/Buffer <--> Memory" + STOPBOLD + "\n" 
-        );
-        this.schedules = new StringBuilder(
-            "\n" + BOLD + "Schedules:" + STOPBOLD + "\n"
-        );
-        this.plMappings = new StringBuilder(
-            "\n" + BOLD + "PL Mappings:" + STOPBOLD + "\n"
-        );
-        this.superLoops = new StringBuilder(
-            "\n" + BOLD + "Superloops:" + STOPBOLD + "\n"
-        );
-        this.actorThroughputs = new StringBuilder(
-            "\n" + BOLD + "Actor throughput:" + STOPBOLD + "\n"
-        );
-        this.boundedBuffers = new StringBuilder(
-            "\n" + BOLD + "Buffers:" + STOPBOLD + "\n"
-        );
+    }
+
+    /**
+     * Create a new instance of the parser for a solution on a fused
+     * application.
+     * @param g The DSE solution as a SystemGraph.
+     * @param trace The trace of the fusion, records of fused actors are
+     * emitted for the original actors.
+     */
+    public SolutionParser(SystemGraph g, FusionTrace trace) {
+        this.graph = g;
+        this.trace = trace;
     }
     
     /**
-     * Parses the DSE solution given in <graph>, producing:
+     * Parses the DSE solution given in <graph> in a single pass, producing:
      * <p>
      * - Memory mappings: Where application code and SDF channels are placed in memory
      * <p>
@@ -81,81 +86,170 @@ public class SolutionParser {
      * - Bounded buffers: Calculated capacity requirement for the SDF channels
      * <p>
      * - Super loop runtimes
+     * @param sinks Where to stream the records to, the sinks are not closed.
+     * @throws IOException If a sink fails to write.
+     */
+    public void ParseSolution(SolutionSink... sinks) throws IOException {
+        this.sinks = sinks;
+        this.minThroughput = Double.NaN;
+        for (Vertex v : graph.vertexSet()) {
+            ParseVertex(v);
+        }
+        if (trace != null) {
+            for (SolutionRecord r : trace.InternalBuffers()) Emit(r);
+        }
+        this.parsed = true;
+    }
+
+    /**
+     * Get which solution traits a trait name stands for.
+     * @param name The trait name, with or without its namespace.
+     * @return The bit of the trait, 0 if it is not a solution trait.
+     */
+    private static int TraitBit(String name) {
+        return switch (name.substring(name.lastIndexOf(':') + 1)) {
+            case "LogicProgrammableSynthetized" -> PL_MAPPING;
+            case "MemoryMapped" -> MEMORY_MAPPING;
+            case "Scheduled" -> SCHEDULE;
+            case "SuperLoopRuntime" -> SUPER_LOOP;
+            case "AnalyzedBehavior" -> THROUGHPUT;
+            case "BoundedBufferLike" -> BUFFER;
+            default -> 0;
+        };
+    }
+
+    /**
+     * Emit the records of a single vertex. Its traits are classified in one
+     * pass and only the solution traits it has are viewed, in a fixed order.
+     * A trait name that is neither a solution trait nor known to be plain may
+     * refine one, so all of them are viewed; if none is found, the names of
+     * the vertex are plain.
+     * @param v The vertex of the solution graph.
+     * @throws IOException If a sink fails to write.
      */
-    public void ParseSolution() {
-        graph.vertexSet().forEach(v -> {
-            LogicProgrammableSynthetized.tryView(graph, v).ifPresent(lps -> {
-                var mappedTo = lps.hostLogicProgrammableModule();
-                plMappings.append(
-                    v.getIdentifier() + " --> " + mappedTo.getIdentifier()
-                + "\n");
-            });
-            MemoryMapped.tryView(graph, v).ifPresent(mm -> {
-                var mappedTo = mm.mappingHost();
-                memoryMappings.append(
-                    v.getIdentifier() + " --> " + mappedTo.getIdentifier()
-                + "\n");
-            });
-            Scheduled.tryView(graph, v).ifPresent(s -> {
-                schedules.append(
-                    v.getIdentifier() + " --> " + s.runtimeHost().getIdentifier()
-                + "\n");
-            });
-            SuperLoopRuntime.tryView(graph, v).ifPresent(sl -> {
-                var entries = sl.superLoopEntries();
+    private void ParseVertex(Vertex v) throws IOException {
+        int traits = 0;
+        boolean unknown = false;
+        for (Trait t : v.getTraits()) {
+            int bit = TraitBit(t.getName());
+            traits |= bit;
+            if (bit == 0 && !plainTraits.contains(t.getName())) unknown = true;
+        }
+        if (unknown) traits = ALL;
+        if (traits == 0) return;
+
+        boolean found = false;
+        if ((traits & PL_MAPPING) != 0) {
+            var lps = LogicProgrammableSynthetized.tryView(graph, v).orElse(null);
+            if (lps != null) {
+                found = true;
+                Emit(SolutionRecord.PLMapping(
+                    v.getIdentifier(), lps.hostLogicProgrammableModule().getIdentifier()
+                ));
+            }
+        }
+        if ((traits & MEMORY_MAPPING) != 0) {
+            var mm = MemoryMapped.tryView(graph, v).orElse(null);
+            if (mm != null) {
+                found = true;
+                Emit(SolutionRecord.MemoryMapping(
+                    v.getIdentifier(), mm.mappingHost().getIdentifier()
+                ));
+            }
+        }
+        if ((traits & SCHEDULE) != 0) {
+            var sched = Scheduled.tryView(graph, v).orElse(null);
+            if (sched != null) {
+                found = true;
+                Emit(SolutionRecord.Schedule(
+                    v.getIdentifier(), sched.runtimeHost().getIdentifier()
+                ));
+            }
+        }
+        if ((traits & SUPER_LOOP) != 0) {
+            var slr = SuperLoopRuntime.tryView(graph, v).orElse(null);
+            if (slr != null) {
+                found = true;
+                var entries = slr.superLoopEntries();
                 if (entries.size() > 0) {
-                    superLoops.append(
-                        sl.getIdentifier() + ": \n\t" + entries + "\n"
-                    );
+                    Emit(SolutionRecord.SuperLoop(v.getIdentifier(), entries));
                 }
-            });
-            AnalyzedBehavior.tryView(graph, v).ifPresent(ab -> {
-                var num = ab.throughputInSecsNumerator();
-                var den = ab.throughputInSecsDenominator();
-                actorThroughputs.append(
-                    ab.getIdentifier()  + " = " + num + "/" + den + " tokens/sec"
-                + "\n");
-            });
-            BoundedBufferLike.tryView(graph, v).ifPresent(bb -> {
-                var tokens = bb.maxElements();
-                var bits = bb.elementSizeInBits();
-                boundedBuffers.append(
-                    bb.getIdentifier() + ": " + tokens + 
-                    " tokens * " + bits + " bits (" 
-                    + (tokens * bits / 8) + " Bytes)\n"
-                );
-            });
-        });
-        
-        this.solution = memoryMappings
-            .append(schedules)
-            .append(plMappings)
-            .append(superLoops)
-            .append(actorThroughputs)
-            .append(boundedBuffers).toString();
+            }
+        }
+        if ((traits & THROUGHPUT) != 0) {
+            var ab = AnalyzedBehavior.tryView(graph, v).orElse(null);
+            if (ab != null) {
+                found = true;
+                Emit(SolutionRecord.Throughput(
+                    v.getIdentifier(),
+                    ab.throughputInSecsNumerator(),
+                    ab.throughputInSecsDenominator()
+                ));
+            }
+        }
+        if ((traits & BUFFER) != 0) {
+            var bb = BoundedBufferLike.tryView(graph, v).orElse(null);
+            if (bb != null) {
+                found = true;
+                Emit(SolutionRecord.Buffer(
+                    v.getIdentifier(), bb.maxElements(), bb.elementSizeInBits()
+                ));
+            }
+        }
+        if (unknown && !found) {
+            for (Trait t : v.getTraits()) plainTraits.add(t.getName());
+        }
+    }
+
+    private void Emit(SolutionRecord record) throws IOException {
+        if (trace == null) {
+            Accept(record);
+            return;
+        }
+        for (SolutionRecord r : trace.Expand(record)) Accept(r);
+    }
+
+    private void Accept(SolutionRecord record) throws IOException {
+        if (record.kind() == SolutionRecord.Kind.THROUGHPUT && record.denominator() != 0) {
+            double throughput = (double) record.numerator() / record.denominator();
+            if (Double.isNaN(minThroughput) || throughput < minThroughput) {
+                minThroughput = throughput;
+            }
+        }
+        for (SolutionSink sink : sinks) {
+            sink.Accept(record);
+        }
     }
 
     /**
-     * Write the solution to stdout.
+     * Get the throughput of the slowest actor, which bounds the throughput of
+     * the whole application.
+     * @return The lowest actor throughput in tokens/sec, NaN if the solution
+     * has no analyzed behavior.
      */
-    public void PrintSolution() {
-        assert solution != null : "Solution must be parsed first.";
-        System.out.println(solution);
+    public double GetMinThroughput() {
+        assert parsed : "Solution must be parsed first.";
+        return minThroughput;
+    }
+
+    /**
+     * Parse the solution and write it to stdout.
+     * @throws IOException If stdout can't be written.
+     */
+    public void PrintSolution() throws IOException {
+        try (var sink = TextSolutionSink.Stdout()) {
+            ParseSolution(sink);
+        }
     }
 
     /**
-     * Write the solution to a file.
+     * Parse the solution and write it to a file, the format is given by the
+     * extension (.txt, .jsonl or .csv).
      * @param outPath Where to save the file to.
      */
     public void WriteSolution(String outPath) {
-        assert solution != null : "Solution must be parsed first.";
-        var stripped = solution
-            .replace(BOLD, "**")
-            .replace(STOPBOLD, "**");
-        try {
-            var writer = new FileWriter(outPath);
-            writer.write(stripped);
-            writer.close();
+        try (var sink = SolutionSink.ForFile(Path.of(outPath))) {
+            ParseSolution(sink);
             System.out.println("Solution written to " + outPath);
         } 
         catch (IOException e) {
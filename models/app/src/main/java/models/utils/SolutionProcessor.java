@@ -0,0 +1,152 @@
+// MIT License
+
+// Copyright (c) 2024 Saab AB
+
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+
+package models.utils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import forsyde.io.core.SystemGraph;
+
+
+/**
+ * Post-processing of the DSE solutions produced by IDeSyDe. Every solution is
+ * copied to the run directory, visualized (.kgt) and parsed (.txt), loading
+ * the solution only once for both outputs.
+ */
+public class SolutionProcessor {
+    public static final String SOLUTION_PREFIX = "solution_";
+
+    private final String outDir;
+
+    /**
+     * Create a new instance of the processor.
+     * @param outDir Where to store the processed solutions.
+     */
+    public SolutionProcessor(String outDir) {
+        this.outDir = outDir;
+    }
+
+    /**
+     * List the solutions (.fiodl or .fiodl.gz) of a directory in the same order as a
+     * shell glob would.
+     * @param dir The directory to search, e.g. the IDeSyDe 'reversed' folder.
+     * @return The sorted solution paths.
+     * @throws IOException If the directory can't be listed.
+     */
+    public static List<Path> ListSolutions(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files
+                .filter(p -> Printer.IsFiodl(p.getFileName().toString()))
+                .sorted()
+                .toList();
+        }
+    }
+
+    /**
+     * Get the name of a processed solution from the file IDeSyDe wrote, so
+     * a solution is named the same by ProcessDirectory and SolutionWatcher,
+     * whatever order the solutions are processed in.
+     * @param source The solution produced by IDeSyDe.
+     * @return The name, solution_<file name without extension>.
+     */
+    public static String SolutionName(Path source) {
+        String base = Printer.BaseName(source.getFileName().toString());
+        return base.startsWith(SOLUTION_PREFIX) ? base : SOLUTION_PREFIX + base;
+    }
+
+    /**
+     * Copy, visualize and parse a single solution.
+     * @param source The solution produced by IDeSyDe.
+     * @param solutionName The name of the solution in the output directory.
+     * @return The parser holding the parsed solution.
+     * @throws Exception If the solution can't be read or written.
+     */
+    public SolutionParser ProcessSolution(Path source, String solutionName) throws Exception {
+        String basePath = outDir + "/" + solutionName;
+        boolean compress = Printer.Compressed() && !source.toString().endsWith(Printer.GZ_EXT);
+        Path copy = Path.of(basePath + Printer.FIODL_EXT + (compress ? Printer.GZ_EXT : ""));
+        if (compress) {
+            Printer.Compress(source, copy);
+        } else if (!copy.toAbsolutePath().equals(source.toAbsolutePath())) {
+            // IDeSyDe never rewrites a solution, so a link is as good as a copy
+            Files.deleteIfExists(copy);
+            try {
+                Files.createLink(copy, source);
+            } catch (UnsupportedOperationException | IOException e) {
+                Files.copy(source, copy, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+
+        SystemGraph g = new Printer(source.toString()).Read();
+        new Printer(basePath + Printer.KGT_EXT).PrintKGT(g);
+
+        var parser = new SolutionParser(g);
+        parser.WriteSolution(basePath + SolutionSink.TEXT_EXT);
+        return parser;
+    }
+
+    /**
+     * Process all solutions of a directory on a bounded work-stealing pool.
+     * Solutions are named by SolutionName.
+     * @param dir The directory with the solutions.
+     * @param parallelism The maximum number of solutions processed at once.
+     * @return The number of solutions that could not be processed.
+     * @throws IOException If the directory can't be listed.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    public int ProcessDirectory(Path dir, int parallelism)
+            throws IOException, InterruptedException {
+        List<Path> solutions = ListSolutions(dir);
+        List<Callable<SolutionParser>> tasks = new ArrayList<>();
+        for (int i = 0; i < solutions.size(); i++) {
+            Path source = solutions.get(i);
+            String solutionName = SolutionName(source);
+            tasks.add(() -> ProcessSolution(source, solutionName));
+        }
+
+        var pool = new ForkJoinPool(Math.max(1, parallelism));
+        int failures = 0;
+        try {
+            List<Future<SolutionParser>> results = pool.invokeAll(tasks);
+            for (int i = 0; i < results.size(); i++) {
+                try {
+                    results.get(i).get();
+                } catch (ExecutionException e) {
+                    failures++;
+                    System.err.println(
+                        "Failed to process " + solutions.get(i) + ": " +
+                        e.getCause().getMessage()
+                    );
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+        System.out.println(
+            (solutions.size() - failures) + "/" + solutions.size() +
+            " solutions processed from " + dir
+        );
+        return failures;
+    }
+}
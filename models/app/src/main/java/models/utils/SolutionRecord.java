@@ -0,0 +1,88 @@
+// MIT License
+
+// Copyright (c) 2024 Saab AB
+
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+
+package models.utils;
+
+import java.util.List;
+
+
+/**
+ * A single piece of information extracted from a DSE solution, e.g. that an
+ * actor is mapped to a memory. Fields that don't apply to the kind of the
+ * record are empty (null, 0 or an empty list).
+ * @param kind What the record describes.
+ * @param subject The actor, buffer or runtime the record is about.
+ * @param target The component the subject is mapped/scheduled to.
+ * @param numerator Throughput numerator (tokens/sec).
+ * @param denominator Throughput denominator.
+ * @param tokens Maximum number of tokens in a buffer.
+ * @param bitsPerToken Size of a buffer token in bits.
+ * @param entries The firing order of a super loop.
+ */
+public record SolutionRecord(
+    Kind kind, String subject, String target,
+    long numerator, long denominator,
+    long tokens, long bitsPerToken,
+    List<String> entries
+) {
+    /**
+     * The kinds of records, in the order they are presented in text form.
+     */
+    public enum Kind {
+        MEMORY_MAPPING("Mappings: Actor/Buffer <--> Memory"),
+        SCHEDULE("Schedules:"),
+        PL_MAPPING("PL Mappings:"),
+        SUPER_LOOP("Superloops:"),
+        THROUGHPUT("Actor throughput:"),
+        BUFFER("Buffers:");
+
+        public final String title;
+
+        Kind(String title) {
+            this.title = title;
+        }
+    }
+
+    public static SolutionRecord MemoryMapping(String subject, String memory) {
+        return new SolutionRecord(Kind.MEMORY_MAPPING, subject, memory, 0, 0, 0, 0, List.of());
+    }
+
+    public static SolutionRecord Schedule(String subject, String runtime) {
+        return new SolutionRecord(Kind.SCHEDULE, subject, runtime, 0, 0, 0, 0, List.of());
+    }
+
+    public static SolutionRecord PLMapping(String subject, String fpga) {
+        return new SolutionRecord(Kind.PL_MAPPING, subject, fpga, 0, 0, 0, 0, List.of());
+    }
+
+    public static SolutionRecord SuperLoop(String runtime, List<String> entries) {
+        return new SolutionRecord(Kind.SUPER_LOOP, runtime, null, 0, 0, 0, 0, entries);
+    }
+
+    public static SolutionRecord Throughput(String subject, long num, long den) {
+        return new SolutionRecord(Kind.THROUGHPUT, subject, null, num, den, 0, 0, List.of());
+    }
+
+    public static SolutionRecord Buffer(String subject, long tokens, long bits) {
+        return new SolutionRecord(Kind.BUFFER, subject, null, 0, 0, tokens, bits, List.of());
+    }
+
+    /**
+     * Get the size of a buffer record.
+     * @return The buffer size in bytes.
+     */
+    public long BufferBytes() {
+        return tokens * bitsPerToken / 8;
+    }
+}
@@ -0,0 +1,103 @@
+// MIT License
+
+// Copyright (c) 2024 Saab AB
+
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+
+package models.utils;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+
+/**
+ * Destination for the records streamed out of a DSE solution by the
+ * SolutionParser.
+ */
+public interface SolutionSink extends Closeable {
+    String TEXT_EXT = ".txt";
+    String JSONL_EXT = ".jsonl";
+    String CSV_EXT = ".csv";
+
+    int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Consume the next record of the solution.
+     * @param record The record.
+     * @throws IOException If the record can't be written.
+     */
+    void Accept(SolutionRecord record) throws IOException;
+
+    /**
+     * Create a sink writing to the given file, choosing the format by the
+     * file extension (.txt, .jsonl or .csv). The records go to a temporary
+     * file that replaces the file when the sink is closed.
+     * @param path Where to write the records.
+     * @return The sink.
+     * @throws IOException If the file can't be opened.
+     */
+    static SolutionSink ForFile(Path path) throws IOException {
+        String name = path.getFileName().toString();
+        if (!name.endsWith(JSONL_EXT) && !name.endsWith(CSV_EXT) && !name.endsWith(TEXT_EXT)) {
+            throw new IllegalArgumentException(
+                "Unknown solution format: " + name + " (.txt, .jsonl, .csv)"
+            );
+        }
+
+        Path tmp = Printer.TempFile(path, ".tmp");
+        SolutionSink sink;
+        if (name.endsWith(JSONL_EXT)) {
+            sink = new JsonLinesSolutionSink(OpenWriter(tmp));
+        } else if (name.endsWith(CSV_EXT)) {
+            sink = new CsvSolutionSink(OpenWriter(tmp));
+        } else {
+            sink = new TextSolutionSink(FileChannel.open(tmp,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING
+            ), false);
+        }
+        return new SolutionSink() {
+            @Override
+            public void Accept(SolutionRecord record) throws IOException {
+                sink.Accept(record);
+            }
+
+            @Override
+            public void close() throws IOException {
+                sink.close();
+                Printer.Replace(tmp, path);
+            }
+        };
+    }
+
+    /**
+     * Open a buffered writer on top of a file channel.
+     * @param path The file to write (replaced if it exists).
+     * @return The writer.
+     * @throws IOException If the file can't be opened.
+     */
+    static Writer OpenWriter(Path path) throws IOException {
+        var channel = FileChannel.open(path,
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING
+        );
+        return new BufferedWriter(
+            Channels.newWriter(channel, StandardCharsets.UTF_8), BUFFER_SIZE
+        );
+    }
+}
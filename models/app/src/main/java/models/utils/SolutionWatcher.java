@@ -0,0 +1,216 @@
+// MIT License
+
+// Copyright (c) 2024 Saab AB
+
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+
+package models.utils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Processes DSE solutions while IDeSyDe is still exploring, by watching the
+ * folder the solutions are written to. A solution is processed as soon as its
+ * file has stopped changing, and a summary with the best solution so far
+ * (highest bottleneck throughput) is kept up to date. The watch ends when
+ * the DSE has finished, signalled by a stop file, after a final pass over
+ * all solutions not processed yet, including those that failed before.
+ */
+public class SolutionWatcher {
+    public static final String SUMMARY_FILE = "solutions_summary.txt";
+    private static final long POLL_MILLIS = 200;
+    private static final long SETTLE_MILLIS = 500;
+
+    private final Path dir;
+    private final String outDir;
+    private final SolutionProcessor processor;
+    private final Map<Path, Long> pending = new LinkedHashMap<>();
+    private final Map<Path, Long> pendingSizes = new LinkedHashMap<>();
+    private final Set<Path> processed = new HashSet<>();
+    private final Set<Path> failed = new HashSet<>();
+    private final StringBuilder summary = new StringBuilder();
+    private String bestName = null;
+    private double bestThroughput = Double.NaN;
+
+    /**
+     * Create a new watcher.
+     * @param dir The folder IDeSyDe writes its solutions to.
+     * @param outDir Where to store the processed solutions and the summary.
+     */
+    public SolutionWatcher(Path dir, String outDir) {
+        this.dir = dir;
+        this.outDir = outDir;
+        this.processor = new SolutionProcessor(outDir);
+    }
+
+    /**
+     * Watch the solution folder until <stopFile> exists, then process every
+     * solution that is left. The stop file must only be created once the
+     * DSE has exited, so no solution is written after the final pass.
+     * @param stopFile The file whose creation ends the watch.
+     * @return The number of solutions that could not be processed.
+     * @throws IOException If the folder can't be watched.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    public int Watch(Path stopFile) throws IOException, InterruptedException {
+        Files.createDirectories(dir);
+        try (WatchService watcher = dir.getFileSystem().newWatchService()) {
+            dir.register(watcher,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY
+            );
+            // solutions written before the watch started
+            for (Path p : SolutionProcessor.ListSolutions(dir)) {
+                MarkChanged(p);
+            }
+
+            System.out.println("Watching " + dir + " for solutions");
+            while (!Files.exists(stopFile)) {
+                WatchKey key = watcher.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            for (Path p : SolutionProcessor.ListSolutions(dir)) {
+                                MarkChanged(p);
+                            }
+                            continue;
+                        }
+                        Path p = dir.resolve((Path) event.context());
+                        if (Printer.IsFiodl(p.getFileName().toString())) {
+                            MarkChanged(p);
+                        }
+                    }
+                    if (!key.reset()) {
+                        System.err.println(dir + " is no longer accessible");
+                        break;
+                    }
+                }
+                ProcessSettled(false);
+            }
+        }
+        // the DSE has exited, every file left is complete, and solutions that
+        // failed while being written get another try
+        for (Path p : SolutionProcessor.ListSolutions(dir)) {
+            MarkChanged(p);
+        }
+        ProcessSettled(true);
+        for (Path p : failed) {
+            summary.append(SolutionProcessor.SolutionName(p) + " (" + p.getFileName() + "): failed\n");
+        }
+        if (!failed.isEmpty()) WriteSummary();
+        System.out.println(
+            processed.size() + " solution(s) processed, " + failed.size() + " failed, best: " +
+            (bestName == null ? "none" : bestName + " (" + bestThroughput + " tokens/sec)")
+        );
+        return failed.size();
+    }
+
+    /**
+     * Note that a solution file was created or written to.
+     * @param p The solution file.
+     */
+    private void MarkChanged(Path p) {
+        if (processed.contains(p)) return;
+        failed.remove(p);
+        pending.put(p, System.currentTimeMillis());
+        pendingSizes.put(p, -1L);
+    }
+
+    /**
+     * Process the pending solutions whose files have not changed for a while,
+     * i.e. that IDeSyDe has finished writing.
+     * @param all Process all pending solutions, once IDeSyDe has exited.
+     * @return The number of processed solutions.
+     * @throws IOException If the summary can't be written.
+     */
+    private int ProcessSettled(boolean all) throws IOException {
+        long now = System.currentTimeMillis();
+        int count = 0;
+        var it = pending.entrySet().iterator();
+        while (it.hasNext()) {
+            var entry = it.next();
+            Path p = entry.getKey();
+            if (!all && now - entry.getValue() < SETTLE_MILLIS) continue;
+
+            long size = Files.exists(p) ? Files.size(p) : -1;
+            if (!all && (size <= 0 || size != pendingSizes.get(p))) {
+                // still being written, check again after another settle period
+                pendingSizes.put(p, size);
+                entry.setValue(now);
+                continue;
+            }
+
+            it.remove();
+            pendingSizes.remove(p);
+            String name = SolutionProcessor.SolutionName(p);
+            try {
+                var parser = processor.ProcessSolution(p, name);
+                processed.add(p);
+                count++;
+                Record(name, p, parser.GetMinThroughput());
+            } catch (Exception e) {
+                // retried when the file changes again and in the final pass
+                System.err.println("Failed to process " + p + ": " + e.getMessage());
+                failed.add(p);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Add a processed solution to the summary and update the best solution.
+     * @param name The name of the processed solution.
+     * @param source The solution produced by IDeSyDe.
+     * @param throughput The bottleneck throughput of the solution.
+     * @throws IOException If the summary can't be written.
+     */
+    private void Record(String name, Path source, double throughput) throws IOException {
+        boolean better = !Double.isNaN(throughput) &&
+            (Double.isNaN(bestThroughput) || throughput > bestThroughput);
+        if (better) {
+            bestName = name;
+            bestThroughput = throughput;
+        }
+        summary.append(
+            name + " (" + source.getFileName() + "): " +
+            throughput + " tokens/sec" + (better ? " (new best)" : "") + "\n"
+        );
+        WriteSummary();
+        System.out.println(
+            name + " processed, bottleneck throughput " + throughput +
+            " tokens/sec" + (better ? ", new best" : "")
+        );
+    }
+
+    /**
+     * Write the summary with the best solution so far.
+     * @throws IOException If the summary can't be written.
+     */
+    private void WriteSummary() throws IOException {
+        Printer.WriteString(
+            Path.of(outDir, SUMMARY_FILE),
+            summary + "\nBest so far: " +
+            (bestName == null ? "none" : bestName + " (" + bestThroughput + " tokens/sec)") + "\n"
+        );
+    }
+}
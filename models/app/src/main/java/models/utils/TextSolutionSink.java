@@ -0,0 +1,165 @@
+// MIT License
+
+// Copyright (c) 2024 Saab AB
+
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+
+package models.utils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumMap;
+import java.util.Map;
+
+
+/**
+ * Writes a solution in the human readable text format, grouped in sections.
+ * Records arrive in graph order, so every section is spooled to its own
+ * temporary file and the sections are concatenated on close. Memory use is
+ * therefore independent of the solution size.
+ */
+public class TextSolutionSink implements SolutionSink {
+    private static final String BOLD = "\033[1m";
+    private static final String STOPBOLD = "\033[0m";
+    private static final String MARKDOWN_BOLD = "**";
+
+    private final WritableByteChannel target;
+    private final boolean closeTarget;
+    private final String boldStart;
+    private final String boldStop;
+    private final Map<SolutionRecord.Kind, FileChannel> spools =
+        new EnumMap<>(SolutionRecord.Kind.class);
+    private final Map<SolutionRecord.Kind, Writer> writers =
+        new EnumMap<>(SolutionRecord.Kind.class);
+
+    /**
+     * Create a new text sink.
+     * @param target Where the text is written to, closed with the sink.
+     * @param ansi Whether section titles are made bold with ANSI escape codes
+     * (terminal) or with '**' (files).
+     */
+    public TextSolutionSink(WritableByteChannel target, boolean ansi) {
+        this(target, ansi, true);
+    }
+
+    private TextSolutionSink(WritableByteChannel target, boolean ansi, boolean closeTarget) {
+        this.target = target;
+        this.closeTarget = closeTarget;
+        this.boldStart = ansi ? BOLD : MARKDOWN_BOLD;
+        this.boldStop = ansi ? STOPBOLD : MARKDOWN_BOLD;
+    }
+
+    /**
+     * Create a sink printing to stdout, which is left open.
+     * @return The sink.
+     */
+    public static TextSolutionSink Stdout() {
+        return new TextSolutionSink(Channels.newChannel(System.out), true, false);
+    }
+
+    /**
+     * Get the spool of a section, creating it on first use.
+     * @param kind The section.
+     * @return A writer appending to the section.
+     * @throws IOException If the spool can't be created.
+     */
+    private Writer Section(SolutionRecord.Kind kind) throws IOException {
+        Writer writer = writers.get(kind);
+        if (writer == null) {
+            var spool = FileChannel.open(
+                Files.createTempFile("solution-" + kind.name().toLowerCase(), ".spool"),
+                StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.DELETE_ON_CLOSE
+            );
+            writer = new BufferedWriter(
+                Channels.newWriter(spool, StandardCharsets.UTF_8), BUFFER_SIZE
+            );
+            spools.put(kind, spool);
+            writers.put(kind, writer);
+        }
+        return writer;
+    }
+
+    @Override
+    public void Accept(SolutionRecord r) throws IOException {
+        Writer out = Section(r.kind());
+        switch (r.kind()) {
+            case MEMORY_MAPPING, SCHEDULE, PL_MAPPING -> {
+                out.write(r.subject());
+                out.write(" --> ");
+                out.write(r.target());
+                out.write('\n');
+            }
+            case SUPER_LOOP -> {
+                out.write(r.subject());
+                out.write(": \n\t");
+                out.write(r.entries().toString());
+                out.write('\n');
+            }
+            case THROUGHPUT -> {
+                out.write(r.subject());
+                out.write(" = " + r.numerator() + "/" + r.denominator());
+                out.write(" tokens/sec\n");
+            }
+            case BUFFER -> {
+                out.write(r.subject());
+                out.write(": " + r.tokens() + " tokens * " + r.bitsPerToken());
+                out.write(" bits (" + r.BufferBytes() + " Bytes)\n");
+            }
+        }
+    }
+
+    private void Write(String text) throws IOException {
+        var buffer = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            target.write(buffer);
+        }
+    }
+
+    /**
+     * Concatenate all sections into the target.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            for (var kind : SolutionRecord.Kind.values()) {
+                Write("\n" + boldStart + kind.title + boldStop + "\n");
+                Writer writer = writers.get(kind);
+                if (writer == null) continue;
+
+                writer.flush();
+                FileChannel spool = spools.get(kind);
+                long size = spool.size();
+                long position = 0;
+                while (position < size) {
+                    position += spool.transferTo(position, size - position, target);
+                }
+            }
+        } finally {
+            for (Writer writer : writers.values()) {
+                writer.close();
+            }
+            if (closeTarget) {
+                target.close();
+            } else {
+                System.out.flush();
+            }
+        }
+    }
+}
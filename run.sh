@@ -17,6 +17,9 @@ ROOT_DIR=$(pwd)
 CONTAINER_ARTIFACTS_DIR=/models/app/src/main/java/models/artifacts
 HOST_ARTIFACTS_DIR=$ROOT_DIR$CONTAINER_ARTIFACTS_DIR
 
+### parsed models are cached across runs, outside of the run folders
+export MODEL_CACHE_DIR=${MODEL_CACHE_DIR:-$CONTAINER_ARTIFACTS_DIR/.cache}
+
 gradle_run() {
     $ROOT_DIR/saab-dse-wrapper.sh "--args=$@"
 
@@ -37,24 +40,70 @@ host_dirp=$HOST_ARTIFACTS_DIR/$dirname
 mkdir -p $host_dirp
 container_dirp=$CONTAINER_ARTIFACTS_DIR/$dirname
 
-gradle_run "build $1 $2 $container_dirp"
-
 plat=$1.fiodl
 appl=$2.fiodl
+### the application without hardware implementations that fit no FPGA
+pruned=$2_pruned.fiodl
+
+### with ARTIFACT_COMPRESSION=gzip artifacts are stored as .gz
+gz=""
+if [[ "$ARTIFACT_COMPRESSION" == "gzip" ]]; then
+    gz=.gz
+fi
 
-### visualize specifications
-gradle_run "to_kgt $container_dirp/$plat $container_dirp"
-gradle_run "to_kgt $container_dirp/$appl $container_dirp"
+### build and visualize specifications in a single JVM, failing before the
+### DSE if the application is inconsistent, deadlocks or can't be mapped
+cat > $host_dirp/build.batch <<EOF
+build $1 $2 $container_dirp
+check_sdf $container_dirp/$appl$gz $container_dirp
+prune_fpga $container_dirp/$appl$gz $container_dirp/$plat$gz $container_dirp
+platform_symmetry $container_dirp/$plat$gz $container_dirp
+to_kgt $container_dirp/$plat$gz $container_dirp
+to_kgt $container_dirp/$appl$gz $container_dirp
+EOF
+### IDeSyDe only reads plain specifications
+if [[ -n "$gz" ]]; then
+    cat >> $host_dirp/build.batch <<EOF
+decompress $container_dirp/$plat$gz $container_dirp
+decompress $container_dirp/$pruned$gz $container_dirp
+EOF
+fi
+gradle_run "batch $container_dirp/build.batch"
+
+### optionally process solutions while the DSE is still running, until
+### dse.done signals that IDeSyDe has exited
+if [[ -n "$WATCH_SOLUTIONS" ]]; then
+    gradle_run "watch_solutions $container_dirp/reversed $container_dirp/dse.done $container_dirp" &
+    watcher_pid=$!
+fi
 
 ### dse on constructed system models
 $ROOT_DIR/idesyde-wrapper.sh \
     "$container_dirp/$plat" \
-    "$container_dirp/$appl" \
+    "$container_dirp/$pruned" \
     --run-path $container_dirp \
     -v DEBUG \
     --x-total-time-out 6000
 
-if [[ $? -ne 0 ]]; then
+dse_status=$?
+
+### drop the plain copies handed to IDeSyDe
+if [[ -n "$gz" ]]; then
+    rm -f $host_dirp/$plat $host_dirp/$pruned
+fi
+
+watcher_status=1
+if [[ -n "$WATCH_SOLUTIONS" ]]; then
+    touch $host_dirp/dse.done
+    wait $watcher_pid
+    watcher_status=$?
+    rm -f $host_dirp/dse.done
+    if [[ $watcher_status -ne 0 ]]; then
+        echo "Watching solutions failed, parsing them afterwards"
+    fi
+fi
+
+if [[ $dse_status -ne 0 ]]; then
     echo "DSE failed"
     exit 1
 fi
@@ -65,16 +114,12 @@ if [[ -z "$(ls -A $host_dirp/reversed)" ]]; then
     exit 1
 fi
 
-### visualize and parse solution
-i=1
-for fiodl_file in $host_dirp/reversed/*.fiodl; do
-    solution_name=solution_$i.fiodl
-    echo "Copying $fiodl_file to $host_dirp/$solution_name"
-    cp $fiodl_file $host_dirp/$solution_name
-
-    container_solultion_path=$container_dirp/$solution_name
-    gradle_run "to_kgt $container_solultion_path $container_dirp"
-    gradle_run "parse_solution $container_solultion_path $container_dirp"
-    ((i++))
-done
-
+### copy, visualize and parse all solutions in parallel (unless the watcher
+### already did), then deduplicate the run folder into the content-addressed
+### artifact store
+> $host_dirp/post.batch
+if [[ $watcher_status -ne 0 ]]; then
+    echo "parse_solutions $container_dirp/reversed $container_dirp" >> $host_dirp/post.batch
+fi
+echo "store_ingest $container_dirp $CONTAINER_ARTIFACTS_DIR" >> $host_dirp/post.batch
+gradle_run "batch $container_dirp/post.batch"
@@ -18,4 +18,4 @@ if [[ "$(docker images -q saab-dse 2> /dev/null)" == "" ]]; then
     docker build -t saab-dse .
 fi
 
-docker run --rm -t -v /home/beethoven/Documents/degree-project/dse-for-mpsoc-thesis-2024/models/app/src/main/java/models/artifacts:/models/app/src/main/java/models/artifacts saab-dse "$@"
+docker run --rm -t -e ARTIFACT_COMPRESSION -e MODEL_CACHE -e MODEL_CACHE_DIR -v /home/beethoven/Documents/degree-project/dse-for-mpsoc-thesis-2024/models/app/src/main/java/models/artifacts:/models/app/src/main/java/models/artifacts saab-dse "$@"